@@ -10,6 +10,8 @@
 package science.aist.jack.general.util;
 
 import lombok.CustomLog;
+import lombok.NonNull;
+import science.aist.jack.persistence.core.Codec;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -48,4 +50,18 @@ public final class CopyUtils {
             return null;
         }
     }
+
+    /**
+     * This method makes a "deep copy" of the given object by encoding and decoding it with the given codec, e.g.
+     * {@link science.aist.jack.persistence.core.Codecs#binary(Class)}, which is considerably faster than java
+     * serialization used by {@link CopyUtils#deepCopy(Object)}.
+     *
+     * @param object object to clone
+     * @param codec  codec used to copy the object
+     * @param <T>    type of the object that should be copied
+     * @return deep copy of object
+     */
+    public static <T> T deepCopy(T object, @NonNull Codec<T> codec) {
+        return codec.fromBytes(codec.toBytes(object));
+    }
 }
@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.math;
+
+/**
+ * <p>Parsers for primitive numbers, which work on any {@link CharSequence} and return a default value instead of
+ * throwing an exception if the value can not be parsed. Leading and trailing whitespace is ignored.</p>
+ * <p>The accepted formats are the decimal formats of {@link Long#parseLong(String)} and {@link Double#parseDouble(String)}
+ * (hexadecimal floating point values are not supported). Simple decimal values are converted without creating a
+ * string, others are delegated to the methods of the JDK after the syntax was checked.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+// Weaker access cannot be provided, as this is a library and the functions are used outside this library too
+@SuppressWarnings("WeakerAccess")
+public final class NumberParser {
+    /**
+     * Powers of ten, which are exactly representable as double
+     */
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    /**
+     * Powers of ten, which are exactly representable as float
+     */
+    private static final float[] FLOAT_POWERS_OF_TEN = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+    private static final long MAX_EXACT_DOUBLE_MANTISSA = 1L << 53;
+    private static final long MAX_EXACT_FLOAT_MANTISSA = 1L << 24;
+    private static final int MAX_MANTISSA_DIGITS = 18;
+    private static final int MAX_EXPONENT = 100_000;
+
+    private NumberParser() {
+    }
+
+    /**
+     * Parses the given value as int
+     *
+     * @param value        the value to parse
+     * @param defaultValue the value which is returned if the value is null or not a valid int
+     * @return the parsed value or defaultValue
+     */
+    public static int parseInt(CharSequence value, int defaultValue) {
+        return (int) parseIntegral(value, Integer.MIN_VALUE, Integer.MAX_VALUE, defaultValue);
+    }
+
+    /**
+     * Parses the given value as long
+     *
+     * @param value        the value to parse
+     * @param defaultValue the value which is returned if the value is null or not a valid long
+     * @return the parsed value or defaultValue
+     */
+    public static long parseLong(CharSequence value, long defaultValue) {
+        return parseIntegral(value, Long.MIN_VALUE, Long.MAX_VALUE, defaultValue);
+    }
+
+    /**
+     * Parses the given value as double
+     *
+     * @param value        the value to parse
+     * @param defaultValue the value which is returned if the value is null or not a valid double
+     * @return the parsed value or defaultValue
+     */
+    public static double parseDouble(CharSequence value, double defaultValue) {
+        Decimal decimal = Decimal.parse(value);
+        if (decimal == null) {
+            return defaultValue;
+        }
+        if (decimal.special != 0) {
+            return decimal.special;
+        }
+        double result;
+        if (decimal.exact && decimal.mantissa <= MAX_EXACT_DOUBLE_MANTISSA && Math.abs(decimal.exponent) < DOUBLE_POWERS_OF_TEN.length) {
+            // both operands are exact, so the single operation is correctly rounded
+            result = decimal.exponent < 0
+                    ? decimal.mantissa / DOUBLE_POWERS_OF_TEN[-decimal.exponent]
+                    : decimal.mantissa * DOUBLE_POWERS_OF_TEN[decimal.exponent];
+        } else {
+            result = Math.abs(Double.parseDouble(value.subSequence(decimal.from, decimal.to).toString()));
+        }
+        return decimal.negative ? -result : result;
+    }
+
+    /**
+     * Parses the given value as float
+     *
+     * @param value        the value to parse
+     * @param defaultValue the value which is returned if the value is null or not a valid float
+     * @return the parsed value or defaultValue
+     */
+    public static float parseFloat(CharSequence value, float defaultValue) {
+        Decimal decimal = Decimal.parse(value);
+        if (decimal == null) {
+            return defaultValue;
+        }
+        if (decimal.special != 0) {
+            return (float) decimal.special;
+        }
+        float result;
+        if (decimal.exact && decimal.mantissa <= MAX_EXACT_FLOAT_MANTISSA && Math.abs(decimal.exponent) < FLOAT_POWERS_OF_TEN.length) {
+            result = decimal.exponent < 0
+                    ? decimal.mantissa / FLOAT_POWERS_OF_TEN[-decimal.exponent]
+                    : decimal.mantissa * FLOAT_POWERS_OF_TEN[decimal.exponent];
+        } else {
+            result = Math.abs(Float.parseFloat(value.subSequence(decimal.from, decimal.to).toString()));
+        }
+        return decimal.negative ? -result : result;
+    }
+
+    /**
+     * Checks if the given value can be parsed with {@link NumberParser#parseInt(CharSequence, int)}
+     *
+     * @param value the value to check
+     * @return true iff the value is a valid int
+     */
+    public static boolean isInt(CharSequence value) {
+        return parseInt(value, 0) != 0 || parseInt(value, 1) != 1;
+    }
+
+    /**
+     * Checks if the given value can be parsed with {@link NumberParser#parseLong(CharSequence, long)}
+     *
+     * @param value the value to check
+     * @return true iff the value is a valid long
+     */
+    public static boolean isLong(CharSequence value) {
+        return parseLong(value, 0L) != 0L || parseLong(value, 1L) != 1L;
+    }
+
+    /**
+     * Checks if the given value can be parsed with {@link NumberParser#parseDouble(CharSequence, double)} or
+     * {@link NumberParser#parseFloat(CharSequence, float)}
+     *
+     * @param value the value to check
+     * @return true iff the value is a valid floating point value
+     */
+    public static boolean isDecimal(CharSequence value) {
+        return Decimal.parse(value) != null;
+    }
+
+    private static long parseIntegral(CharSequence value, long min, long max, long defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        int from = 0;
+        int to = value.length();
+        while (from < to && value.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && value.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        if (from == to) {
+            return defaultValue;
+        }
+
+        boolean negative = false;
+        char first = value.charAt(from);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++from == to) {
+                return defaultValue;
+            }
+        }
+        // accumulated negatively, as the negative range is larger than the positive one
+        long limit = negative ? min : -max;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        for (int i = from; i < to; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < multiplyLimit) {
+                return defaultValue;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return defaultValue;
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * <p>Syntactically checked decimal value: [sign] digits [. digits] [(e|E) [sign] digits] [f|F|d|D], "NaN" or
+     * "Infinity"</p>
+     */
+    private static final class Decimal {
+        private boolean negative;
+        private long mantissa;
+        private int exponent;
+        /**
+         * false if the mantissa has too many digits to be represented exactly
+         */
+        private boolean exact = true;
+        /**
+         * NaN or infinity value, 0 otherwise
+         */
+        private double special;
+        /**
+         * trimmed bounds of the value
+         */
+        private int from;
+        private int to;
+
+        @SuppressWarnings("java:S3776") // method complexity
+        private static Decimal parse(CharSequence value) {
+            if (value == null) {
+                return null;
+            }
+            Decimal decimal = new Decimal();
+            int from = 0;
+            int to = value.length();
+            while (from < to && value.charAt(from) <= ' ') {
+                from++;
+            }
+            while (to > from && value.charAt(to - 1) <= ' ') {
+                to--;
+            }
+            decimal.from = from;
+            decimal.to = to;
+            if (from == to) {
+                return null;
+            }
+
+            int i = from;
+            char c = value.charAt(i);
+            if (c == '-' || c == '+') {
+                decimal.negative = c == '-';
+                i++;
+            }
+            if (regionEquals(value, i, to, "NaN")) {
+                decimal.special = Double.NaN;
+                return decimal;
+            }
+            if (regionEquals(value, i, to, "Infinity")) {
+                decimal.special = decimal.negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+                return decimal;
+            }
+            char last = value.charAt(to - 1);
+            if (last == 'f' || last == 'F' || last == 'd' || last == 'D') {
+                to--;
+            }
+
+            int digits = 0;
+            int significantDigits = 0;
+            boolean fraction = false;
+            for (; i < to; i++) {
+                c = value.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    digits++;
+                    if (significantDigits > 0 || c != '0') {
+                        if (significantDigits < MAX_MANTISSA_DIGITS) {
+                            decimal.mantissa = decimal.mantissa * 10 + (c - '0');
+                            significantDigits++;
+                            if (fraction) {
+                                decimal.exponent--;
+                            }
+                        } else {
+                            decimal.exact = false;
+                        }
+                    } else if (fraction) {
+                        decimal.exponent--;
+                    }
+                } else if (c == '.' && !fraction) {
+                    fraction = true;
+                } else {
+                    break;
+                }
+            }
+            if (digits == 0) {
+                return null;
+            }
+            if (i < to) {
+                c = value.charAt(i);
+                if (c != 'e' && c != 'E') {
+                    return null;
+                }
+                boolean negativeExponent = false;
+                if (++i < to && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                    negativeExponent = value.charAt(i) == '-';
+                    i++;
+                }
+                if (i == to) {
+                    return null;
+                }
+                int exponent = 0;
+                for (; i < to; i++) {
+                    int digit = value.charAt(i) - '0';
+                    if (digit < 0 || digit > 9) {
+                        return null;
+                    }
+                    exponent = Math.min(exponent * 10 + digit, MAX_EXPONENT);
+                }
+                decimal.exponent += negativeExponent ? -exponent : exponent;
+            }
+            return decimal;
+        }
+
+        private static boolean regionEquals(CharSequence value, int from, int to, String expected) {
+            if (to - from != expected.length()) {
+                return false;
+            }
+            for (int i = 0; i < expected.length(); i++) {
+                if (value.charAt(from + i) != expected.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,444 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.core;
+
+import science.aist.jack.reflection.Autoboxers;
+import science.aist.jack.reflection.ReflectionUtils;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Reflection based binary codec (see {@link Codecs#binary(Class)}). The fields are resolved and bound to method
+ * handles once per class, so encoding and decoding is a plain walk over the fields. Every object starts with a
+ * presence byte, so null values and nested objects need no further framing.</p>
+ *
+ * @param <V> DataType of the encoded values
+ * @author agent
+ * @since 2.4.0
+ */
+final class BinaryCodec<V> implements Codec<V> {
+    /**
+     * Size of the chunks, in which strings and byte arrays are read
+     */
+    private static final int READ_CHUNK_SIZE = 64 * 1024;
+    private static final Map<Class<?>, BinaryCodec<?>> CODECS = new ConcurrentHashMap<>();
+
+    private static final byte BOOLEAN = 0;
+    private static final byte BYTE = 1;
+    private static final byte SHORT = 2;
+    private static final byte CHAR = 3;
+    private static final byte INT = 4;
+    private static final byte LONG = 5;
+    private static final byte FLOAT = 6;
+    private static final byte DOUBLE = 7;
+    private static final byte STRING = 8;
+    private static final byte ENUM = 9;
+    private static final byte BYTES = 10;
+    private static final byte OBJECT = 11;
+
+    private final Class<V> clazz;
+    private final MethodHandle constructor;
+    private final FieldCodec[] fields;
+
+    private BinaryCodec(Class<V> clazz) {
+        if (clazz.isPrimitive() || clazz.isArray() || clazz.isInterface() || clazz.isEnum()
+                || Modifier.isAbstract(clazz.getModifiers()) || clazz.getName().startsWith("java.")) {
+            throw new IllegalArgumentException("Class " + clazz.getName() + " is not supported by the binary codec");
+        }
+        this.clazz = clazz;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            Constructor<V> defaultConstructor = clazz.getDeclaredConstructor();
+            defaultConstructor.setAccessible(true);
+            this.constructor = lookup.unreflectConstructor(defaultConstructor).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("Class " + clazz.getName() + " has no accessible constructor without parameters", e);
+        }
+
+        // the order of the declared fields is not specified, so they are sorted to get a stable format
+        List<Field> classFields = ReflectionUtils.getAllFieldsOfClass(clazz).stream()
+                .filter(f -> !f.isSynthetic() && !Modifier.isStatic(f.getModifiers()) && !Modifier.isTransient(f.getModifiers()))
+                .sorted(Comparator.comparing((Field f) -> f.getDeclaringClass().getName()).thenComparing(Field::getName))
+                .collect(Collectors.toList());
+        this.fields = new FieldCodec[classFields.size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = new FieldCodec(classFields.get(i), lookup);
+        }
+    }
+
+    /**
+     * @param clazz class of the values
+     * @param <V>   DataType of the values
+     * @return the cached codec of the class
+     */
+    @SuppressWarnings("unchecked")
+    static <V> BinaryCodec<V> of(Class<V> clazz) {
+        BinaryCodec<?> codec = CODECS.get(clazz);
+        if (codec == null) {
+            // not created in computeIfAbsent, as the codecs of nested classes are created while the codec is in use
+            codec = new BinaryCodec<>(clazz);
+            BinaryCodec<?> existing = CODECS.putIfAbsent(clazz, codec);
+            if (existing != null) {
+                codec = existing;
+            }
+        }
+        return (BinaryCodec<V>) codec;
+    }
+
+    @Override
+    public void encode(V value, OutputStream out) throws IOException {
+        write(value, out instanceof DataOutputStream ? (DataOutputStream) out : new DataOutputStream(out));
+    }
+
+    @Override
+    public V decode(InputStream in) throws IOException {
+        return read(in instanceof DataInputStream ? (DataInputStream) in : new DataInputStream(in));
+    }
+
+    private void write(Object value, DataOutputStream out) throws IOException {
+        if (value == null) {
+            out.writeByte(0);
+            return;
+        }
+        if (value.getClass() != clazz) {
+            throw new IllegalArgumentException("Binary codec of " + clazz.getName() + " can't encode " + value.getClass().getName());
+        }
+        out.writeByte(1);
+        try {
+            for (FieldCodec field : fields) {
+                field.write(value, out);
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private V read(DataInputStream in) throws IOException {
+        byte presence = in.readByte();
+        if (presence == 0) {
+            return null;
+        }
+        if (presence != 1) {
+            throw new StreamCorruptedException("Invalid object marker " + presence);
+        }
+        try {
+            Object value = (Object) constructor.invokeExact();
+            for (FieldCodec field : fields) {
+                field.read(value, in);
+            }
+            return clazz.cast(value);
+        } catch (IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Variable length integer is too long");
+    }
+
+    private static void writeZigZag(DataOutputStream out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readZigZag(DataInputStream in) throws IOException {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * @return the length of a nullable value, which is stored incremented by one (0 = null)
+     */
+    private static int readLength(DataInputStream in) throws IOException {
+        long length = readVarLong(in) - 1;
+        if (length < -1 || length > Integer.MAX_VALUE) {
+            throw new StreamCorruptedException("Invalid length " + length);
+        }
+        return (int) length;
+    }
+
+    /**
+     * Reads the given number of bytes in chunks, so a corrupt length fails at the end of the stream instead of
+     * allocating the whole length up front
+     */
+    private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+        byte[] bytes = new byte[Math.min(length, READ_CHUNK_SIZE)];
+        int read = 0;
+        while (read < length) {
+            if (read == bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int) Math.min(length, bytes.length * 2L));
+            }
+            int n = in.read(bytes, read, bytes.length - read);
+            if (n < 0) {
+                throw new EOFException("Expected " + length + " bytes, but the stream ended after " + read + " bytes");
+            }
+            read += n;
+        }
+        return bytes;
+    }
+
+    /**
+     * Codec of a single field, which reads and writes the field using method handles
+     */
+    private static final class FieldCodec {
+        private final Field field;
+        private final byte kind;
+        private final boolean boxed;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final Object[] enumConstants;
+        private BinaryCodec<?> nested;
+
+        private FieldCodec(Field field, MethodHandles.Lookup lookup) {
+            this.field = field;
+            Class<?> type = field.getType();
+            Class<?> primitive = Autoboxers.getBoxingClasses().get(type);
+            this.boxed = primitive != null;
+            this.kind = kindOf(boxed ? primitive : type);
+            if (kind == OBJECT && (type.isArray() || type.isInterface() || Modifier.isAbstract(type.getModifiers())
+                    || type.getName().startsWith("java."))) {
+                throw new IllegalArgumentException("Field " + field.getName() + " of type " + type.getName()
+                        + " is not supported by the binary codec");
+            }
+            this.enumConstants = kind == ENUM ? type.getEnumConstants() : null;
+            Class<?> handleType = type.isPrimitive() ? type : Object.class;
+            try {
+                field.setAccessible(true);
+                this.getter = lookup.unreflectGetter(field).asType(MethodType.methodType(handleType, Object.class));
+                this.setter = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, handleType));
+            } catch (IllegalAccessException | RuntimeException e) {
+                throw new IllegalArgumentException("Field " + field.getName() + " of " + field.getDeclaringClass().getName()
+                        + " is not accessible", e);
+            }
+        }
+
+        private static byte kindOf(Class<?> type) {
+            if (type == boolean.class) {
+                return BOOLEAN;
+            } else if (type == byte.class) {
+                return BYTE;
+            } else if (type == short.class) {
+                return SHORT;
+            } else if (type == char.class) {
+                return CHAR;
+            } else if (type == int.class) {
+                return INT;
+            } else if (type == long.class) {
+                return LONG;
+            } else if (type == float.class) {
+                return FLOAT;
+            } else if (type == double.class) {
+                return DOUBLE;
+            } else if (type == String.class) {
+                return STRING;
+            } else if (type.isEnum()) {
+                return ENUM;
+            } else if (type == byte[].class) {
+                return BYTES;
+            }
+            return OBJECT;
+        }
+
+        private BinaryCodec<?> nested() {
+            // resolved on first use, so classes can contain fields of their own type
+            BinaryCodec<?> codec = nested;
+            if (codec == null) {
+                codec = BinaryCodec.of(field.getType());
+                nested = codec;
+            }
+            return codec;
+        }
+
+        @SuppressWarnings("java:S3776") // kept in one method to avoid boxing of the primitive values
+        private void write(Object obj, DataOutputStream out) throws Throwable {
+            switch (boxed ? -1 : kind) {
+                case BOOLEAN:
+                    out.writeBoolean((boolean) getter.invokeExact(obj));
+                    return;
+                case BYTE:
+                    out.writeByte((byte) getter.invokeExact(obj));
+                    return;
+                case SHORT:
+                    writeZigZag(out, (short) getter.invokeExact(obj));
+                    return;
+                case CHAR:
+                    writeVarLong(out, (char) getter.invokeExact(obj));
+                    return;
+                case INT:
+                    writeZigZag(out, (int) getter.invokeExact(obj));
+                    return;
+                case LONG:
+                    writeZigZag(out, (long) getter.invokeExact(obj));
+                    return;
+                case FLOAT:
+                    out.writeFloat((float) getter.invokeExact(obj));
+                    return;
+                case DOUBLE:
+                    out.writeDouble((double) getter.invokeExact(obj));
+                    return;
+                default:
+                    writeObject((Object) getter.invokeExact(obj), out);
+            }
+        }
+
+        private void writeObject(Object value, DataOutputStream out) throws IOException {
+            if (kind == OBJECT) {
+                nested().write(value, out);
+            } else if (value == null) {
+                out.writeByte(0);
+            } else if (kind == STRING || kind == BYTES) {
+                byte[] bytes = kind == STRING ? ((String) value).getBytes(StandardCharsets.UTF_8) : (byte[]) value;
+                writeVarLong(out, bytes.length + 1L);
+                out.write(bytes);
+            } else if (kind == ENUM) {
+                writeVarLong(out, ((Enum<?>) value).ordinal() + 1L);
+            } else {
+                out.writeByte(1);
+                writeBoxed(value, out);
+            }
+        }
+
+        private void writeBoxed(Object value, DataOutputStream out) throws IOException {
+            switch (kind) {
+                case BOOLEAN:
+                    out.writeBoolean((Boolean) value);
+                    break;
+                case BYTE:
+                    out.writeByte((Byte) value);
+                    break;
+                case CHAR:
+                    writeVarLong(out, (Character) value);
+                    break;
+                case FLOAT:
+                    out.writeFloat((Float) value);
+                    break;
+                case DOUBLE:
+                    out.writeDouble((Double) value);
+                    break;
+                default:
+                    writeZigZag(out, ((Number) value).longValue());
+                    break;
+            }
+        }
+
+        @SuppressWarnings("java:S3776") // kept in one method to avoid boxing of the primitive values
+        private void read(Object obj, DataInputStream in) throws Throwable {
+            switch (boxed ? -1 : kind) {
+                case BOOLEAN:
+                    setter.invokeExact(obj, in.readBoolean());
+                    return;
+                case BYTE:
+                    setter.invokeExact(obj, in.readByte());
+                    return;
+                case SHORT:
+                    setter.invokeExact(obj, (short) readZigZag(in));
+                    return;
+                case CHAR:
+                    setter.invokeExact(obj, (char) readVarLong(in));
+                    return;
+                case INT:
+                    setter.invokeExact(obj, (int) readZigZag(in));
+                    return;
+                case LONG:
+                    setter.invokeExact(obj, readZigZag(in));
+                    return;
+                case FLOAT:
+                    setter.invokeExact(obj, in.readFloat());
+                    return;
+                case DOUBLE:
+                    setter.invokeExact(obj, in.readDouble());
+                    return;
+                default:
+                    setter.invokeExact(obj, readObject(in));
+            }
+        }
+
+        private Object readObject(DataInputStream in) throws IOException {
+            if (kind == OBJECT) {
+                return nested().read(in);
+            }
+            if (kind == STRING || kind == BYTES) {
+                int length = readLength(in);
+                if (length < 0) {
+                    return null;
+                }
+                byte[] bytes = readBytes(in, length);
+                return kind == STRING ? new String(bytes, StandardCharsets.UTF_8) : bytes;
+            }
+            if (kind == ENUM) {
+                int ordinal = readLength(in);
+                if (ordinal >= enumConstants.length) {
+                    throw new StreamCorruptedException("Invalid ordinal " + ordinal + " of " + field.getType().getName());
+                }
+                return ordinal < 0 ? null : enumConstants[ordinal];
+            }
+            return in.readByte() == 0 ? null : readBoxed(in);
+        }
+
+        private Object readBoxed(DataInputStream in) throws IOException {
+            switch (kind) {
+                case BOOLEAN:
+                    return in.readBoolean();
+                case BYTE:
+                    return in.readByte();
+                case SHORT:
+                    return (short) readZigZag(in);
+                case CHAR:
+                    return (char) readVarLong(in);
+                case INT:
+                    return (int) readZigZag(in);
+                case LONG:
+                    return readZigZag(in);
+                case FLOAT:
+                    return in.readFloat();
+                default:
+                    return in.readDouble();
+            }
+        }
+    }
+}
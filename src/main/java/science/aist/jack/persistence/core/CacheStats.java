@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.core;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Statistics of a {@link CachingStorage}. The counters are thread safe and are summed up until they are reset.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public final class CacheStats {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+
+    void hit() {
+        hits.increment();
+    }
+
+    void miss() {
+        misses.increment();
+    }
+
+    void eviction() {
+        evictions.increment();
+    }
+
+    void writeFailure() {
+        writeFailures.increment();
+    }
+
+    /**
+     * @return number of reads, which were answered by the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of reads, which had to be read from the underlying storage
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return ratio of hits to all reads (0 if there were no reads)
+     */
+    public double getHitRate() {
+        long hitCount = getHits();
+        long readCount = hitCount + getMisses();
+        return readCount == 0 ? 0 : (double) hitCount / readCount;
+    }
+
+    /**
+     * @return number of entries, which were evicted to stay within the maximum weight
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return number of write behind operations, which failed and were dropped
+     */
+    public long getWriteFailures() {
+        return writeFailures.sum();
+    }
+
+    /**
+     * Resets all counters to 0
+     */
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        writeFailures.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions()
+                + ", writeFailures=" + getWriteFailures() + '}';
+    }
+}
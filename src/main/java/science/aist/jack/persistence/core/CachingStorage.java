@@ -0,0 +1,392 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.core;
+
+import lombok.CustomLog;
+import lombok.NonNull;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * <p>Decorator of a {@link Storage}, which caches the read objects in memory, so hot keys are not read from the
+ * underlying storage again.</p>
+ * <p>The cache is bounded by a maximum weight (e.g. the number of entries or their estimated size in bytes) and uses a
+ * segmented LRU eviction policy: new entries are put into a probation segment and are promoted to the protected
+ * segment (80% of the weight) when they are read again, so a scan of many keys, which are only read once, can't evict
+ * the frequently read entries. To be usable from many threads the cache is split into independently locked stripes
+ * (selected by the hash of the key), so the eviction order is only maintained per stripe.</p>
+ * <p>Writes are passed to the underlying storage synchronously (write through) by default and invalidate the cached
+ * entry. With {@link CachingStorage#setWriteBehind(Executor)} updates and deletes of known keys only update the cache
+ * and are written to the underlying storage asynchronously, where multiple writes of the same key are coalesced.</p>
+ *
+ * @param <K> DataType of key which is used to save value
+ * @param <V> DataType of objects which should be stored
+ * @author agent
+ * @since 2.4.0
+ */
+@CustomLog
+public class CachingStorage<K, V> implements Storage<K, V> {
+    private static final int MAX_STRIPES = 16;
+    private static final int MIN_STRIPE_WEIGHT = 16;
+    /**
+     * Marker of pending deletes in the write behind queue
+     */
+    private static final Object DELETED = new Object();
+
+    private final Storage<K, V> delegate;
+    private final ToLongFunction<? super V> weigher;
+    private final Stripe<K, V>[] stripes;
+    private final CacheStats stats = new CacheStats();
+    private final Map<K, Object> pendingWrites = new ConcurrentHashMap<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private volatile Executor writeBehindExecutor;
+
+    /**
+     * @param delegate    the cached storage
+     * @param maximumSize maximum number of cached entries
+     */
+    public CachingStorage(Storage<K, V> delegate, long maximumSize) {
+        this(delegate, maximumSize, value -> 1);
+    }
+
+    /**
+     * @param delegate      the cached storage
+     * @param maximumWeight maximum sum of the weights of the cached entries
+     * @param weigher       function, which calculates the (non negative) weight of a value, e.g. its size in bytes.
+     *                      Values, which are heavier than a stripe of the cache, are not cached.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public CachingStorage(@NonNull Storage<K, V> delegate, long maximumWeight, @NonNull ToLongFunction<? super V> weigher) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive");
+        }
+        this.delegate = delegate;
+        this.weigher = weigher;
+        int stripeCount = Integer.highestOneBit((int) Math.max(1, Math.min(MAX_STRIPES, maximumWeight / MIN_STRIPE_WEIGHT)));
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe<>((maximumWeight + stripeCount - 1) / stripeCount, stats);
+        }
+    }
+
+    /**
+     * Enables or disables write behind. If write behind is enabled, updates and deletes of keys, which are cached or
+     * have pending writes, are applied to the cache immediately and written to the underlying storage by the given
+     * executor. Failed writes are logged, counted in {@link CacheStats#getWriteFailures()} and dropped. Other writes
+     * and creates are always written through.
+     *
+     * @param executor executor of the asynchronous writes (null to write through, which flushes the pending writes)
+     */
+    public void setWriteBehind(Executor executor) {
+        this.writeBehindExecutor = executor;
+        if (executor == null) {
+            flush();
+        }
+    }
+
+    /**
+     * @return the statistics of this cache
+     */
+    public CacheStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Writes all pending write behind operations to the underlying storage in the calling thread
+     */
+    public void flush() {
+        drainPendingWrites();
+    }
+
+    private Stripe<K, V> stripeOf(Object key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    @Override
+    public K create(V value) {
+        return delegate.create(value);
+    }
+
+    @Override
+    public K create(V value, K suggestedKey) {
+        return delegate.create(value, suggestedKey);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V read(@NonNull K key) {
+        Stripe<K, V> stripe = stripeOf(key);
+        long version;
+        synchronized (stripe) {
+            V value = stripe.get(key);
+            if (value != null) {
+                stats.hit();
+                return value;
+            }
+            version = stripe.version;
+        }
+        stats.miss();
+
+        Object pending = pendingWrites.get(key);
+        if (pending != null) {
+            return pending == DELETED ? null : (V) pending;
+        }
+        V value = delegate.read(key);
+        if (value != null) {
+            long weight = weigher.applyAsLong(value);
+            synchronized (stripe) {
+                // the value is only cached, if the key was not written while it was read
+                if (stripe.version == version) {
+                    stripe.put(key, value, weight);
+                }
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public Collection<V> read() {
+        flush();
+        return delegate.read();
+    }
+
+    @Override
+    public boolean update(@NonNull K key, V value) {
+        Executor executor = writeBehindExecutor;
+        Stripe<K, V> stripe = stripeOf(key);
+        if (executor != null) {
+            long weight = value == null ? 0 : weigher.applyAsLong(value);
+            synchronized (stripe) {
+                if (value != null && isKnown(stripe, key)) {
+                    pendingWrites.put(key, value);
+                    stripe.version++;
+                    stripe.put(key, value, weight);
+                    scheduleDrain(executor);
+                    return true;
+                }
+                // the key is deleted, even if the delegate still contains it until the delete is written
+                if (pendingWrites.get(key) == DELETED) {
+                    return false;
+                }
+            }
+        }
+        boolean updated = delegate.update(key, value);
+        invalidate(stripe, key);
+        return updated;
+    }
+
+    @Override
+    public boolean delete(@NonNull K key) {
+        Executor executor = writeBehindExecutor;
+        Stripe<K, V> stripe = stripeOf(key);
+        if (executor != null) {
+            synchronized (stripe) {
+                if (isKnown(stripe, key)) {
+                    pendingWrites.put(key, DELETED);
+                    stripe.version++;
+                    stripe.remove(key);
+                    scheduleDrain(executor);
+                    return true;
+                }
+                if (pendingWrites.get(key) == DELETED) {
+                    return false;
+                }
+            }
+        }
+        boolean deleted = delegate.delete(key);
+        invalidate(stripe, key);
+        return deleted;
+    }
+
+    @Override
+    public boolean deleteAll() {
+        drainLock.lock();
+        try {
+            pendingWrites.clear();
+            for (Stripe<K, V> stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.clear();
+                }
+            }
+            return delegate.deleteAll();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * @return true iff the key is cached or has a pending update, i.e. it exists in the (eventually written) storage
+     */
+    private boolean isKnown(Stripe<K, V> stripe, K key) {
+        Object pending = pendingWrites.get(key);
+        return pending == null ? stripe.contains(key) : pending != DELETED;
+    }
+
+    private void invalidate(Stripe<K, V> stripe, K key) {
+        synchronized (stripe) {
+            stripe.version++;
+            stripe.remove(key);
+        }
+    }
+
+    private void scheduleDrain(Executor executor) {
+        if (drainScheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                drainScheduled.set(false);
+                drainPendingWrites();
+            });
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void drainPendingWrites() {
+        drainLock.lock();
+        try {
+            for (Map.Entry<K, Object> pending : pendingWrites.entrySet()) {
+                K key = pending.getKey();
+                Object value = pending.getValue();
+                try {
+                    if (value == DELETED) {
+                        delegate.delete(key);
+                    } else {
+                        delegate.update(key, (V) value);
+                    }
+                } catch (RuntimeException e) {
+                    stats.writeFailure();
+                    log.error("Write behind of key " + key + " failed", e);
+                }
+                // a newer write of the key stays pending and is written by the next drain
+                pendingWrites.remove(key, value);
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * <p>Independently locked part of the cache, which contains the probation and the protected segment. Both
+     * segments are {@link LinkedHashMap}s in access order, so the first entry is the least recently used one. All
+     * methods must be called while holding the lock of the stripe.</p>
+     */
+    private static final class Stripe<K, V> {
+        private final LinkedHashMap<K, Entry<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<K, Entry<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+        private final long maximumWeight;
+        private final long maximumProtectedWeight;
+        private final CacheStats stats;
+        private long probationWeight;
+        private long protectedWeight;
+        /**
+         * Incremented with every write of a key of the stripe, so reads can detect that they read an outdated value
+         */
+        private long version;
+
+        private Stripe(long maximumWeight, CacheStats stats) {
+            this.maximumWeight = maximumWeight;
+            this.maximumProtectedWeight = maximumWeight * 4 / 5;
+            this.stats = stats;
+        }
+
+        private V get(K key) {
+            Entry<V> entry = protectedSegment.get(key);
+            if (entry != null) {
+                return entry.value;
+            }
+            entry = probation.remove(key);
+            if (entry == null) {
+                return null;
+            }
+            // second access: promote to the protected segment and demote its least recently used entries
+            probationWeight -= entry.weight;
+            protectedSegment.put(key, entry);
+            protectedWeight += entry.weight;
+            Iterator<Map.Entry<K, Entry<V>>> lru = protectedSegment.entrySet().iterator();
+            while (protectedWeight > maximumProtectedWeight && lru.hasNext()) {
+                Map.Entry<K, Entry<V>> demoted = lru.next();
+                if (demoted.getValue() == entry) {
+                    break;
+                }
+                lru.remove();
+                protectedWeight -= demoted.getValue().weight;
+                probation.put(demoted.getKey(), demoted.getValue());
+                probationWeight += demoted.getValue().weight;
+            }
+            return entry.value;
+        }
+
+        private boolean contains(K key) {
+            return protectedSegment.containsKey(key) || probation.containsKey(key);
+        }
+
+        private void put(K key, V value, long weight) {
+            remove(key);
+            if (weight > maximumWeight) {
+                return;
+            }
+            probation.put(key, new Entry<>(value, weight));
+            probationWeight += weight;
+            evict();
+        }
+
+        private void evict() {
+            while (probationWeight + protectedWeight > maximumWeight) {
+                LinkedHashMap<K, Entry<V>> segment = probation.isEmpty() ? protectedSegment : probation;
+                Iterator<Entry<V>> lru = segment.values().iterator();
+                Entry<V> evicted = lru.next();
+                lru.remove();
+                if (segment == probation) {
+                    probationWeight -= evicted.weight;
+                } else {
+                    protectedWeight -= evicted.weight;
+                }
+                stats.eviction();
+            }
+        }
+
+        private void remove(K key) {
+            Entry<V> entry = probation.remove(key);
+            if (entry != null) {
+                probationWeight -= entry.weight;
+            }
+            entry = protectedSegment.remove(key);
+            if (entry != null) {
+                protectedWeight -= entry.weight;
+            }
+        }
+
+        private void clear() {
+            version++;
+            probation.clear();
+            protectedSegment.clear();
+            probationWeight = 0;
+            protectedWeight = 0;
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long weight;
+
+        private Entry(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
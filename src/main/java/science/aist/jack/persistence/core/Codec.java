@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.core;
+
+import science.aist.jack.exception.ExceptionUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * <p>Converts values to bytes and back, e.g. to persist them in a {@link Storage}. Built-in codecs are provided by
+ * {@link Codecs}.</p>
+ *
+ * @param <V> DataType of the encoded values
+ * @author agent
+ * @since 2.4.0
+ */
+public interface Codec<V> {
+    /**
+     * Writes the given value to the stream. The stream is neither flushed nor closed.
+     *
+     * @param value the value to encode
+     * @param out   the stream to write to
+     * @throws IOException if the stream can't be written
+     */
+    void encode(V value, OutputStream out) throws IOException;
+
+    /**
+     * Reads a value written by {@link Codec#encode(Object, OutputStream)} from the stream. The stream is not closed.
+     *
+     * @param in the stream to read from
+     * @return the decoded value
+     * @throws IOException if the stream can't be read or does not contain a valid value
+     */
+    V decode(InputStream in) throws IOException;
+
+    /**
+     * @param value the value to encode
+     * @return the encoded value
+     */
+    default byte[] toBytes(V value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            encode(value, out);
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @param bytes the encoded value
+     * @return the decoded value
+     */
+    default V fromBytes(byte[] bytes) {
+        try {
+            return decode(new ByteArrayInputStream(bytes));
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.core;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+
+/**
+ * <p>Built-in {@link Codec}s.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public final class Codecs {
+    private static final Codec<byte[]> BYTES = new Codec<>() {
+        @Override
+        public void encode(byte[] value, OutputStream out) throws IOException {
+            out.write(value);
+        }
+
+        @Override
+        public byte[] decode(InputStream in) throws IOException {
+            return in.readAllBytes();
+        }
+    };
+
+    private Codecs() {
+    }
+
+    /**
+     * Codec, which writes byte arrays as they are. As the encoded value is not delimited, it is the remaining content
+     * of the stream when it is decoded.
+     *
+     * @return the raw byte codec
+     */
+    public static Codec<byte[]> bytes() {
+        return BYTES;
+    }
+
+    /**
+     * Codec using java serialization ({@link ObjectOutputStream}), which supports every {@link Serializable} object
+     * graph. Only use it for trusted content, as deserialization can instantiate arbitrary serializable classes.
+     *
+     * @param clazz class of the values
+     * @param <V>   DataType of the values
+     * @return the java serialization codec
+     */
+    public static <V extends Serializable> Codec<V> javaSerialization(@NonNull Class<V> clazz) {
+        return new Codec<>() {
+            @Override
+            public void encode(V value, OutputStream out) throws IOException {
+                ObjectOutputStream output = new ObjectOutputStream(out);
+                output.writeObject(value);
+                output.flush();
+            }
+
+            @Override
+            public V decode(InputStream in) throws IOException {
+                try {
+                    return clazz.cast(new ObjectInputStream(in).readObject());
+                } catch (ClassNotFoundException e) {
+                    InvalidClassException exception = new InvalidClassException(e.getMessage());
+                    exception.initCause(e);
+                    throw exception;
+                }
+            }
+        };
+    }
+
+    /**
+     * Compact binary codec for plain java objects, which is created once per class using reflection and cached. The
+     * non static, non transient fields of the class and its super classes are written in a fixed order without any
+     * names or type information: integral numbers as variable length zig-zag integers, strings as UTF-8. Supported
+     * field types are primitives and their wrappers, {@link String}, enums (stored by their ordinal), byte arrays and
+     * nested objects of classes, which are supported themselves. The classes need a constructor without parameters.
+     * <p>Only the exact class is supported (no sub classes) and the object graph must be a tree. As the format
+     * contains no schema, values must be decoded with the same version of the class, they were encoded with.</p>
+     *
+     * @param clazz class of the values
+     * @param <V>   DataType of the values
+     * @return the cached binary codec of the class
+     * @throws IllegalArgumentException if the class or one of its fields is not supported
+     */
+    public static <V> Codec<V> binary(@NonNull Class<V> clazz) {
+        return BinaryCodec.of(clazz);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Converts values to a fixed number of bytes and back by writing them directly to a {@link ByteBuffer}, e.g. to
+ * a slot of a memory-mapped file. In contrast to {@link Codec} no streams or intermediate byte arrays are used.</p>
+ * <p>The buffer is shared by multiple threads, so implementations must only use the absolute get and put methods
+ * (e.g. {@link ByteBuffer#putLong(int, long)}) and must not change the position or limit of the buffer.</p>
+ *
+ * @param <V> DataType of the encoded values
+ * @author agent
+ * @since 2.4.0
+ */
+public interface FixedSizeCodec<V> {
+    /**
+     * @return the number of bytes of every encoded value
+     */
+    int size();
+
+    /**
+     * Writes the given value to the bytes at [offset, offset + size()) of the buffer
+     *
+     * @param value  the value to encode
+     * @param buffer the buffer to write to
+     * @param offset the index of the first byte of the value
+     */
+    void encode(V value, ByteBuffer buffer, int offset);
+
+    /**
+     * Reads a value written by {@link FixedSizeCodec#encode(Object, ByteBuffer, int)} from the buffer
+     *
+     * @param buffer the buffer to read from
+     * @param offset the index of the first byte of the value
+     * @return the decoded value
+     */
+    V decode(ByteBuffer buffer, int offset);
+}
@@ -15,12 +15,28 @@ import science.aist.jack.exception.ExceptionUtils;
 import science.aist.jack.persistence.core.Storage;
 
 import java.io.File;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.security.SecureRandom;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
 
 /**
  * <p>Abstract Implementation of Storage Interface for storing objects in the TEMP folder of the file system</p>
+ * <p>By default every object is stored as a file directly in the storage folder. Storages with many objects can use
+ * a sharded layout instead, in which the files are distributed over nested directories named by the hex digits of a
+ * hash of the file name (e.g. "completePath/3f/a0/key.ser" for two shard levels), so no directory contains more than
+ * 256 sub directories and the lookup stays fast as the storage grows. Existing storages can be converted using
+ * {@link AbstractFileStorage#migrateLayout()}.</p>
  *
  * @param <K> DataType of key which is used to save value
  * @param <V> DataType of objects which should be stored
@@ -29,9 +45,14 @@ import java.security.SecureRandom;
  */
 @CustomLog
 public abstract class AbstractFileStorage<K, V> implements Storage<K, V> {
+    /**
+     * Maximum number of shard levels, each level uses 8 bits of the 32 bit hash
+     */
+    public static final int MAX_SHARD_LEVELS = 4;
     protected final String pathToTempFolder;
     protected final String completePath;
     protected final String fileExtension;
+    protected final int shardLevels;
     private final SecureRandom random = new SecureRandom();
 
     public AbstractFileStorage(String pathToSubFolder, String fileExtension) {
@@ -39,6 +60,20 @@ public abstract class AbstractFileStorage<K, V> implements Storage<K, V> {
     }
 
     public AbstractFileStorage(String pathToSubFolder, String fileExtension, String subFolder) {
+        this(pathToSubFolder, fileExtension, subFolder, 0);
+    }
+
+    /**
+     * @param pathToSubFolder path of the storage folder in the sub folder
+     * @param fileExtension   extension of the stored files
+     * @param subFolder       sub folder of the TEMP folder
+     * @param shardLevels     number of nested shard directories (0 = every file is stored in the storage folder)
+     */
+    public AbstractFileStorage(String pathToSubFolder, String fileExtension, String subFolder, int shardLevels) {
+        if (shardLevels < 0 || shardLevels > MAX_SHARD_LEVELS) {
+            throw new IllegalArgumentException("Shard levels must be between 0 and " + MAX_SHARD_LEVELS);
+        }
+        this.shardLevels = shardLevels;
         String tempFolder = System.getProperty("java.io.tmpdir");
         if (tempFolder.endsWith(File.separator)) {
             pathToTempFolder = tempFolder + subFolder;
@@ -76,6 +111,15 @@ public abstract class AbstractFileStorage<K, V> implements Storage<K, V> {
         return fileExtension;
     }
 
+    /**
+     * Method for getting the number of nested shard directories
+     *
+     * @return number of shard levels (0 if every file is stored in the storage folder)
+     */
+    public int getShardLevels() {
+        return shardLevels;
+    }
+
     /**
      * Method for building path with given filename
      *
@@ -84,7 +128,19 @@ public abstract class AbstractFileStorage<K, V> implements Storage<K, V> {
      * @return Complete path containing the name of the .txt file
      */
     protected String buildPath(String filename, String extension) {
-        return completePath + File.separator + filename + extension;
+        if (shardLevels == 0) {
+            return completePath + File.separator + filename + extension;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(filename.getBytes(StandardCharsets.UTF_8));
+        long hash = crc.getValue();
+        StringBuilder path = new StringBuilder(completePath.length() + shardLevels * 3 + filename.length() + extension.length() + 1);
+        path.append(completePath);
+        for (int level = 0; level < shardLevels; level++) {
+            int shard = (int) (hash >>> (24 - level * 8)) & 0xFF;
+            path.append(File.separatorChar).append(Character.forDigit(shard >>> 4, 16)).append(Character.forDigit(shard & 0xF, 16));
+        }
+        return path.append(File.separatorChar).append(filename).append(extension).toString();
     }
 
     /**
@@ -97,6 +153,70 @@ public abstract class AbstractFileStorage<K, V> implements Storage<K, V> {
         return buildPath(filename, fileExtension);
     }
 
+    /**
+     * Method for creating the shard directories of the given file path if they don't exist yet
+     *
+     * @param filePath path built by {@link AbstractFileStorage#buildPath(String)}
+     */
+    protected void createShardDirectories(String filePath) {
+        if (shardLevels == 0) {
+            return;
+        }
+        Path directory = Paths.get(filePath).getParent();
+        if (!Files.isDirectory(directory)) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw ExceptionUtils.unchecked(e);
+            }
+        }
+    }
+
+    /**
+     * Method for moving all files of the storage to the location given by the current layout, e.g. to convert a
+     * storage, which was created without shard directories, to a sharded one (or vice versa). Files, which are already
+     * at the right location, are not touched, so the migration can be repeated after it was interrupted. Directories
+     * emptied by the migration are not deleted. The storage must not be used concurrently while it is migrated.
+     *
+     * @return number of moved files
+     */
+    public long migrateLayout() {
+        Path root = Paths.get(completePath);
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(root)) {
+            files = paths.filter(path -> path.getFileName().toString().endsWith(fileExtension) && Files.isRegularFile(path))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+
+        long moved = 0;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            String target = buildPath(name.substring(0, name.length() - fileExtension.length()));
+            Path targetPath = Paths.get(target);
+            if (!targetPath.equals(file)) {
+                createShardDirectories(target);
+                move(file, targetPath);
+                moved++;
+            }
+        }
+        log.info("Migrated " + moved + " files of " + completePath + " to " + shardLevels + " shard levels");
+        return moved;
+    }
+
+    private static void move(Path source, Path target) {
+        try {
+            try {
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
+
     /**
      * Method for generating a random string key
      *
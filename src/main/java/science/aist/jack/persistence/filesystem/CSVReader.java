@@ -10,8 +10,17 @@
 package science.aist.jack.persistence.filesystem;
 
 
+import science.aist.jack.exception.ExceptionUtils;
+
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * <p>Interface for a CSV file reader</p>
@@ -50,4 +59,107 @@ public interface CSVReader<T> {
      * @return the read elements
      */
     List<T> read(File csvFile, boolean containsColumndefinition, boolean useFileColumnDefinition);
-}
\ No newline at end of file
+
+    /**
+     * Method for lazily reading the given csv file (without a column definition). The lines are only parsed and
+     * converted to the specific element type when the returned stream is consumed.
+     *
+     * @param csvFile source file to read
+     * @return stream of the read elements, which must be closed to release the underlying file
+     */
+    default Stream<T> stream(File csvFile) {
+        return stream(csvFile, false, false);
+    }
+
+    /**
+     * Method for lazily reading the given csv file (without a column definition). The lines are only parsed and
+     * converted to the specific element type when the returned stream is consumed.
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumndefinition flag which signals if the file contains a column definition which will be ignored
+     * @return stream of the read elements, which must be closed to release the underlying file
+     */
+    default Stream<T> stream(File csvFile, boolean containsColumndefinition) {
+        return stream(csvFile, containsColumndefinition, false);
+    }
+
+    /**
+     * Method for lazily reading the given csv file. The lines are only parsed and converted to the specific element
+     * type when the returned stream is consumed, so the memory consumption does not depend on the size of the file.
+     * Use {@link Stream#iterator()} if the elements should be pulled one by one. The default implementation falls
+     * back to {@link CSVReader#read(File, boolean, boolean)}.
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumndefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of a given one (only used if containsColumndefinition == true)
+     * @return stream of the read elements, which must be closed to release the underlying file
+     */
+    default Stream<T> stream(File csvFile, boolean containsColumndefinition, boolean useFileColumnDefinition) {
+        return read(csvFile, containsColumndefinition, useFileColumnDefinition).stream();
+    }
+
+    /**
+     * Method for reading the given csv file (see {@link CSVReader#read(File, boolean, boolean)})
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumndefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of a given one (only used if containsColumndefinition == true)
+     * @return the read elements
+     */
+    default List<T> read(Path csvFile, boolean containsColumndefinition, boolean useFileColumnDefinition) {
+        return read(csvFile.toFile(), containsColumndefinition, useFileColumnDefinition);
+    }
+
+    /**
+     * Method for lazily reading the given csv file (see {@link CSVReader#stream(File, boolean, boolean)})
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumndefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of a given one (only used if containsColumndefinition == true)
+     * @return stream of the read elements, which must be closed to release the underlying file
+     */
+    default Stream<T> stream(Path csvFile, boolean containsColumndefinition, boolean useFileColumnDefinition) {
+        return stream(csvFile.toFile(), containsColumndefinition, useFileColumnDefinition);
+    }
+
+    /**
+     * Method for reading the given csv stream and converting the lines to the specific element type. The given stream
+     * is closed after reading.
+     *
+     * @param csvStream                source stream to read
+     * @param containsColumndefinition flag which signals if the stream contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the stream should be used instead of a given one (only used if containsColumndefinition == true)
+     * @return the read elements
+     */
+    default List<T> read(InputStream csvStream, boolean containsColumndefinition, boolean useFileColumnDefinition) {
+        try (Stream<T> elements = stream(csvStream, containsColumndefinition, useFileColumnDefinition)) {
+            return elements.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Method for lazily reading the given csv stream. The lines are only parsed and converted to the specific element
+     * type when the returned stream is consumed. The default implementation copies the given stream to a temporary
+     * file, which is read by {@link CSVReader#stream(File, boolean, boolean)} and deleted when the returned stream is
+     * closed.
+     *
+     * @param csvStream                source stream to read
+     * @param containsColumndefinition flag which signals if the stream contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the stream should be used instead of a given one (only used if containsColumndefinition == true)
+     * @return stream of the read elements, which must be closed to release the given stream
+     */
+    default Stream<T> stream(InputStream csvStream, boolean containsColumndefinition, boolean useFileColumnDefinition) {
+        Path temp = null;
+        try (InputStream in = csvStream) {
+            temp = Files.createTempFile("csv", ".csv");
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            Path file = temp;
+            return stream(file.toFile(), containsColumndefinition, useFileColumnDefinition).onClose(() -> FileUtils.deleteQuietly(file));
+        } catch (IOException | RuntimeException e) {
+            if (temp != null) {
+                FileUtils.deleteQuietly(temp);
+            }
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
+}
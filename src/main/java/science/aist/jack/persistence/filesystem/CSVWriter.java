@@ -9,8 +9,17 @@
 
 package science.aist.jack.persistence.filesystem;
 
+import science.aist.jack.exception.ExceptionUtils;
+
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * <p>Interface for writing elements to a CSV file</p>
@@ -39,4 +48,73 @@ public interface CSVWriter<T> {
      * @return true iff elements are written successfully
      */
     boolean write(File targetFile, List<T> elements, boolean writeColumnDefinition);
+
+    /**
+     * Method for writing the elements of the given iterator to a csv file. The elements are written while the
+     * iterator is consumed, so they don't need to be materialized. The default implementation collects the elements
+     * and falls back to {@link CSVWriter#write(File, List, boolean)}.
+     *
+     * @param targetFile            target file where to write the elements
+     * @param elements              to be written
+     * @param writeColumnDefinition flag which signals if the column definition should be written in the beginning
+     * @return true iff elements are written successfully
+     */
+    default boolean write(File targetFile, Iterator<T> elements, boolean writeColumnDefinition) {
+        List<T> list = new ArrayList<>();
+        elements.forEachRemaining(list::add);
+        return write(targetFile, list, writeColumnDefinition);
+    }
+
+    /**
+     * Method for writing the elements of the given stream to a csv file (see {@link CSVWriter#write(File, Iterator, boolean)})
+     *
+     * @param targetFile            target file where to write the elements
+     * @param elements              to be written
+     * @param writeColumnDefinition flag which signals if the column definition should be written in the beginning
+     * @return true iff elements are written successfully
+     */
+    default boolean write(File targetFile, Stream<T> elements, boolean writeColumnDefinition) {
+        return write(targetFile, elements.iterator(), writeColumnDefinition);
+    }
+
+    /**
+     * Method for writing the elements of the given iterator to a csv file (see {@link CSVWriter#write(File, Iterator, boolean)})
+     *
+     * @param targetFile            target file where to write the elements
+     * @param elements              to be written
+     * @param writeColumnDefinition flag which signals if the column definition should be written in the beginning
+     * @return true iff elements are written successfully
+     */
+    default boolean write(Path targetFile, Iterator<T> elements, boolean writeColumnDefinition) {
+        return write(targetFile.toFile(), elements, writeColumnDefinition);
+    }
+
+    /**
+     * Method for writing the elements of the given iterator to a stream. The stream is flushed, but not closed. The
+     * default implementation writes the elements to a temporary file using
+     * {@link CSVWriter#write(File, Iterator, boolean)} and copies it to the stream.
+     *
+     * @param targetStream          target stream where to write the elements
+     * @param elements              to be written
+     * @param writeColumnDefinition flag which signals if the column definition should be written in the beginning
+     * @return true iff elements are written successfully
+     */
+    default boolean write(OutputStream targetStream, Iterator<T> elements, boolean writeColumnDefinition) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile("csv", ".csv");
+            if (!write(temp.toFile(), elements, writeColumnDefinition)) {
+                return false;
+            }
+            Files.copy(temp, targetStream);
+            targetStream.flush();
+            return true;
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        } finally {
+            if (temp != null) {
+                FileUtils.deleteQuietly(temp);
+            }
+        }
+    }
 }
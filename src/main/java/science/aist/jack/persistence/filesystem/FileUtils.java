@@ -12,6 +12,7 @@ package science.aist.jack.persistence.filesystem;
 import lombok.CustomLog;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -162,6 +163,19 @@ public class FileUtils {
         return result;
     }
 
+    /**
+     * Deletes the given temporary file, a failure is only logged
+     *
+     * @param file the file to delete
+     */
+    static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Temporary file " + file + " could not be deleted: " + e.getMessage());
+        }
+    }
+
     private static void copyStream(InputStream input, OutputStream output) throws IOException {
         byte[] buffer = new byte[1024];
         int bytesRead;
@@ -9,11 +9,13 @@
 
 package science.aist.jack.persistence.filesystem.implementation;
 
-import science.aist.jack.string.StringUtils;
+import science.aist.jack.string.StringNormalizer;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * <p>Extension of the {@link ReflectionCSVProcessor}. It is advanced as it takes an {@link AdvancedCsvProcessorConfig}
@@ -24,7 +26,9 @@ import java.util.stream.Collectors;
  */
 public class AdvancedCsvProcessor<T> extends ReflectionCSVProcessor<T> {
 
-    private AdvancedCsvProcessorConfig config;
+    private StringNormalizer headerNormalizer;
+    private StringNormalizer contentNormalizer;
+    private String configFingerprint;
 
     /**
      * Constructor of a AdvancedCsvProcessor for domain types with simple-typed properties only (int, double, float,
@@ -39,7 +43,7 @@ public class AdvancedCsvProcessor<T> extends ReflectionCSVProcessor<T> {
     public AdvancedCsvProcessor(char separator, List<String> columnDefinition, Class<T> clazz,
                                 AdvancedCsvProcessorConfig csvProcessorConfig) {
         this(separator, columnDefinition, clazz);
-        this.config = csvProcessorConfig;
+        setConfig(csvProcessorConfig);
     }
 
     /**
@@ -54,14 +58,27 @@ public class AdvancedCsvProcessor<T> extends ReflectionCSVProcessor<T> {
      */
     public AdvancedCsvProcessor(char separator, List<String> columnDefinition, Class<T> clazz) {
         super(separator, columnDefinition, clazz);
-        this.config = CsvProcessorConfigBuilder.builder()
+        setConfig(CsvProcessorConfigBuilder.builder()
                 .headerCharactersToRemove(List.of(" "))
-                .build();
+                .build());
     }
 
     /**
-     * Normalizes the headers according to the {@link AdvancedCsvProcessorConfig}. It first removes the strings defined
-     * in the config.charactersToRemove, then replaces the strings defined in config.charactersToReplace.
+     * Compiles the rules of the given config once, so they don't need to be evaluated again for every value
+     *
+     * @param config the config to use
+     */
+    private void setConfig(AdvancedCsvProcessorConfig config) {
+        this.headerNormalizer = StringNormalizer.compile(config.getHeaderCharactersToRemove(), config.getHeaderCharactersToReplace());
+        this.contentNormalizer = StringNormalizer.compile(config.getContentCharactersToRemove(), config.getContentCharactersToReplace());
+        this.configFingerprint = new TreeSet<>(config.getHeaderCharactersToRemove()) + "|" + new TreeMap<>(config.getHeaderCharactersToReplace())
+                + "|" + new TreeSet<>(config.getContentCharactersToRemove()) + "|" + new TreeMap<>(config.getContentCharactersToReplace());
+    }
+
+    /**
+     * Normalizes the headers according to the {@link AdvancedCsvProcessorConfig}. It strips the headers, removes the
+     * strings defined in the config.charactersToRemove and then replaces the strings defined in
+     * config.charactersToReplace (see {@link StringNormalizer}).
      *
      * @param columnHeader the extracted column headers to be used to map them to object fields
      * @return normalized column headers as define in the {@link AdvancedCsvProcessorConfig}. Should allow mapping
@@ -69,22 +86,44 @@ public class AdvancedCsvProcessor<T> extends ReflectionCSVProcessor<T> {
      */
     @Override
     protected List<String> normalizeColumnDefinition(List<String> columnHeader) {
-        return columnHeader.stream()
-                .map(String::strip)
-                .map(s -> StringUtils.removeAll(s,
-                        config.getHeaderCharactersToRemove()))
-                .map(s -> StringUtils.replaceAll(s,
-                        config.getHeaderCharactersToReplace()))
-                .collect(Collectors.toList());
+        return normalize(columnHeader, headerNormalizer);
+    }
 
+    /**
+     * @return the normalization rules of the config
+     */
+    @Override
+    protected String getSidecarFingerprint() {
+        return configFingerprint;
     }
 
     @Override
     protected List<String> normalizeRow(List<String> csvLine) {
-        return csvLine.stream()
-                .map(String::strip)
-                .map(stringToCheck -> StringUtils.removeAll(stringToCheck, config.getContentCharactersToRemove()))
-                .map(s -> StringUtils.replaceAll(s, config.getContentCharactersToReplace()))
-                .collect(Collectors.toList());
+        return normalize(csvLine, contentNormalizer);
+    }
+
+    /**
+     * Normalizes all values with the given normalizer
+     *
+     * @param values     the values to normalize
+     * @param normalizer the normalizer to use
+     * @return the given list if no value was changed, otherwise a new list with the normalized values
+     */
+    private static List<String> normalize(List<String> values, StringNormalizer normalizer) {
+        String[] normalized = null;
+        for (int i = 0; i < values.size(); i++) {
+            String value = values.get(i);
+            String normalizedValue = normalizer.normalize(value);
+            if (normalized == null && normalizedValue != value) {
+                normalized = new String[values.size()];
+                for (int j = 0; j < i; j++) {
+                    normalized[j] = values.get(j);
+                }
+            }
+            if (normalized != null) {
+                normalized[i] = normalizedValue;
+            }
+        }
+        return normalized == null ? values : Arrays.asList(normalized);
     }
 }
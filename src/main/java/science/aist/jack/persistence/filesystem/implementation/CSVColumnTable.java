@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import science.aist.jack.math.NumberParser;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * <p>Column oriented result of {@link CSVProcessor#readColumns(java.io.File, boolean, boolean, Map)}. Every projected
+ * column is stored as one primitive array (or as dictionary encoded strings), so no object is created per row.</p>
+ * <p>Values which can not be parsed and missing values are stored as 0 (numeric and timestamp columns), false
+ * (boolean columns) or "" (string columns). If the types were inferred (see
+ * {@link CSVProcessor#readColumns(java.io.File, boolean, boolean, int)}) columns are widened instead, see
+ * {@link CSVColumnTable#getColumnType(String)}.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public final class CSVColumnTable {
+    /**
+     * Maximum number of rows, for which the arrays are allocated up front
+     */
+    private static final int MAX_ESTIMATED_ROWS = 4096;
+    private final int rowCount;
+    private final Map<String, Object> columns;
+    private final Map<String, CSVColumnType> types;
+
+    private CSVColumnTable(int rowCount, Map<String, Object> columns, Map<String, CSVColumnType> types) {
+        this.rowCount = rowCount;
+        this.columns = columns;
+        this.types = types;
+    }
+
+    /**
+     * @return the number of rows of the table
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return the names of the columns in the order of the projection
+     */
+    public List<String> getColumnNames() {
+        return List.copyOf(columns.keySet());
+    }
+
+    /**
+     * @param column name of a column
+     * @return the type in which the column is stored
+     */
+    public CSVColumnType getColumnType(String column) {
+        CSVColumnType type = types.get(column);
+        if (type == null) {
+            throw new IllegalArgumentException("Column " + column + " is not part of the table " + columns.keySet());
+        }
+        return type;
+    }
+
+    /**
+     * @param column name of a column of type {@link CSVColumnType#DOUBLE}
+     * @return the values of the column
+     */
+    public double[] getDoubleColumn(String column) {
+        return getColumn(column, double[].class);
+    }
+
+    /**
+     * @param column name of a column of type {@link CSVColumnType#INT}
+     * @return the values of the column
+     */
+    public int[] getIntColumn(String column) {
+        return getColumn(column, int[].class);
+    }
+
+    /**
+     * @param column name of a column of type {@link CSVColumnType#LONG}
+     * @return the values of the column
+     */
+    public long[] getLongColumn(String column) {
+        return getColumn(column, long[].class);
+    }
+
+    /**
+     * @param column name of a column of type {@link CSVColumnType#BOOLEAN}
+     * @return the values of the column
+     */
+    public boolean[] getBooleanColumn(String column) {
+        return getColumn(column, boolean[].class);
+    }
+
+    /**
+     * @param column name of a column of type {@link CSVColumnType#TIMESTAMP}
+     * @return the values of the column as milliseconds since the epoch
+     */
+    public long[] getTimestampColumn(String column) {
+        return getColumn(column, long[].class);
+    }
+
+    /**
+     * @param column name of a column of type {@link CSVColumnType#STRING}
+     * @return the dictionary encoded values of the column
+     */
+    public StringColumn getStringColumn(String column) {
+        return getColumn(column, StringColumn.class);
+    }
+
+    private <A> A getColumn(String column, Class<A> type) {
+        Object values = columns.get(column);
+        if (values == null) {
+            throw new IllegalArgumentException("Column " + column + " is not part of the table " + columns.keySet());
+        }
+        if (!type.isInstance(values)) {
+            throw new IllegalArgumentException("Column " + column + " is not stored as " + type.getSimpleName());
+        }
+        return type.cast(values);
+    }
+
+    /**
+     * <p>Dictionary encoded string column. Every distinct value is stored once in the dictionary and the rows
+     * reference it by its index.</p>
+     */
+    public static final class StringColumn {
+        private final int[] codes;
+        private final List<String> dictionary;
+
+        private StringColumn(int[] codes, List<String> dictionary) {
+            this.codes = codes;
+            this.dictionary = dictionary;
+        }
+
+        /**
+         * @return the index of the value in the dictionary for every row
+         */
+        public int[] getCodes() {
+            return codes;
+        }
+
+        /**
+         * @return the distinct values of the column in the order of their first occurrence
+         */
+        public List<String> getDictionary() {
+            return dictionary;
+        }
+
+        /**
+         * @param row index of the row
+         * @return the value of the given row
+         */
+        public String get(int row) {
+            return dictionary.get(codes[row]);
+        }
+    }
+
+    /**
+     * Reads the remaining records of the given scanner into a table. Only the projected columns are accessed, so all
+     * other columns are skipped without being decoded.
+     * <p>If widen is true, a value which doesn't match the type of its column widens the column (see
+     * {@link CSVTypeInference#widen(CSVColumnType, CSVColumnType)}). The already read values are converted, so the file
+     * is not read again. Values converted to strings use their canonical representation (e.g. "1.50" becomes "1.5").</p>
+     *
+     * @param scanner  scanner positioned before the first data record
+     * @param names    names of the projected columns
+     * @param indices  indices of the projected columns in the records
+     * @param types    types of the projected columns
+     * @param fileSize size of the file, which is used to estimate the number of rows
+     * @param widen    true if columns should be widened instead of storing invalid values as 0
+     * @return the read table
+     * @throws IOException if the file can't be read
+     */
+    static CSVColumnTable read(MappedCSVScanner scanner, String[] names, int[] indices, CSVColumnType[] types, long fileSize, boolean widen) throws IOException {
+        int projected = names.length;
+        CSVColumnType[] columnTypes = types.clone();
+        Object[] arrays = new Object[projected];
+        List<Map<String, Integer>> dictionaries = new ArrayList<>(Collections.nCopies(projected, null));
+        BitSet[] missing = new BitSet[projected];
+        for (int i = 0; i < projected; i++) {
+            if (columnTypes[i] == CSVColumnType.STRING) {
+                dictionaries.set(i, new HashMap<>());
+            }
+        }
+        int capacity = 0;
+        int rows = 0;
+        while (scanner.nextRecord()) {
+            if (rows == capacity) {
+                capacity = rows == 0 ? estimateRows(scanner, fileSize) : (int) Math.min(Integer.MAX_VALUE - 8L, capacity * 2L);
+                for (int i = 0; i < projected; i++) {
+                    arrays[i] = grow(arrays[i], columnTypes[i], capacity);
+                }
+            }
+            int columnCount = scanner.columnCount();
+            for (int i = 0; i < projected; i++) {
+                int index = indices[i];
+                CharSequence value = index < columnCount ? scanner.column(index) : "";
+                if (!set(arrays[i], columnTypes[i], rows, value, dictionaries.get(i)) && widen) {
+                    if (value.length() == 0) {
+                        if (missing[i] == null) {
+                            missing[i] = new BitSet();
+                        }
+                        missing[i].set(rows);
+                    } else {
+                        // the value doesn't fit, so the column is widened and the value is stored again
+                        CSVColumnType widened = CSVTypeInference.widen(columnTypes[i], CSVTypeInference.infer(value));
+                        if (widened == CSVColumnType.STRING) {
+                            dictionaries.set(i, new HashMap<>());
+                        }
+                        arrays[i] = convert(arrays[i], columnTypes[i], widened, rows, missing[i], dictionaries.get(i));
+                        columnTypes[i] = widened;
+                        set(arrays[i], widened, rows, value, dictionaries.get(i));
+                    }
+                }
+            }
+            rows++;
+        }
+
+        Map<String, Object> columns = new LinkedHashMap<>();
+        Map<String, CSVColumnType> resultTypes = new LinkedHashMap<>();
+        for (int i = 0; i < projected; i++) {
+            Object values = capacity == rows && arrays[i] != null ? arrays[i] : grow(arrays[i], columnTypes[i], rows);
+            if (columnTypes[i] == CSVColumnType.STRING) {
+                String[] dictionary = new String[dictionaries.get(i).size()];
+                dictionaries.get(i).forEach((value, code) -> dictionary[code] = value);
+                values = new StringColumn((int[]) values, List.of(dictionary));
+            }
+            columns.put(names[i], values);
+            resultTypes.put(names[i], columnTypes[i]);
+        }
+        return new CSVColumnTable(rows, columns, resultTypes);
+    }
+
+    /**
+     * Stores the given value in the given row of the column
+     *
+     * @return false if the value is empty or doesn't match the type (the default value is stored then)
+     */
+    private static boolean set(Object array, CSVColumnType type, int row, CharSequence value, Map<String, Integer> dictionary) {
+        switch (type) {
+            case DOUBLE: {
+                double result = NumberParser.parseDouble(value, 0.0);
+                ((double[]) array)[row] = result;
+                // a result equal to the default value needs to be checked, as it could also be the result of an invalid value
+                return result != 0.0 || NumberParser.isDecimal(value);
+            }
+            case INT: {
+                int result = NumberParser.parseInt(value, 0);
+                ((int[]) array)[row] = result;
+                return result != 0 || NumberParser.isInt(value);
+            }
+            case LONG: {
+                long result = NumberParser.parseLong(value, 0L);
+                ((long[]) array)[row] = result;
+                return result != 0L || NumberParser.isLong(value);
+            }
+            case BOOLEAN: {
+                boolean result = CSVTypeInference.parseBoolean(value);
+                ((boolean[]) array)[row] = result;
+                return result || CSVTypeInference.isBoolean(value);
+            }
+            case TIMESTAMP: {
+                long result = CSVTypeInference.parseTimestamp(value, 0L);
+                ((long[]) array)[row] = result;
+                return result != 0L || CSVTypeInference.isTimestamp(value);
+            }
+            default: {
+                String string = value.toString();
+                Integer code = dictionary.get(string);
+                if (code == null) {
+                    code = dictionary.size();
+                    dictionary.put(string, code);
+                }
+                ((int[]) array)[row] = code;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Converts the first rows of a column to a wider type
+     *
+     * @param array      values of the column
+     * @param from       current type of the column
+     * @param to         the wider type
+     * @param rows       number of rows to convert
+     * @param missing    rows which were empty (null if none)
+     * @param dictionary empty dictionary if the column is converted to strings
+     * @return the converted values with the same capacity
+     */
+    private static Object convert(Object array, CSVColumnType from, CSVColumnType to, int rows, BitSet missing, Map<String, Integer> dictionary) {
+        Object converted = grow(null, to, Array.getLength(array));
+        for (int row = 0; row < rows; row++) {
+            if (missing != null && missing.get(row)) {
+                if (to == CSVColumnType.STRING) {
+                    set(converted, to, row, "", dictionary);
+                }
+                continue;
+            }
+            switch (to) {
+                case LONG:
+                    ((long[]) converted)[row] = ((int[]) array)[row];
+                    break;
+                case DOUBLE:
+                    ((double[]) converted)[row] = from == CSVColumnType.INT ? ((int[]) array)[row] : ((long[]) array)[row];
+                    break;
+                default:
+                    set(converted, to, row, format(array, from, row), dictionary);
+                    break;
+            }
+        }
+        return converted;
+    }
+
+    private static String format(Object array, CSVColumnType type, int row) {
+        switch (type) {
+            case DOUBLE:
+                return Double.toString(((double[]) array)[row]);
+            case INT:
+                return Integer.toString(((int[]) array)[row]);
+            case LONG:
+                return Long.toString(((long[]) array)[row]);
+            case BOOLEAN:
+                return Boolean.toString(((boolean[]) array)[row]);
+            default:
+                return Instant.ofEpochMilli(((long[]) array)[row]).toString();
+        }
+    }
+
+    /**
+     * Estimates the number of rows using the size of the first record, so the arrays rarely need to grow. The estimate
+     * is capped, as a single short record is no reliable sample of a large file, larger files grow the arrays instead.
+     */
+    private static int estimateRows(MappedCSVScanner scanner, long fileSize) {
+        long recordSize = Math.max(1, scanner.nextOffset() - scanner.recordOffset());
+        long remaining = fileSize - scanner.recordOffset();
+        return (int) Math.max(16, Math.min(MAX_ESTIMATED_ROWS, remaining / recordSize + remaining / recordSize / 8 + 1));
+    }
+
+    private static Object grow(Object array, CSVColumnType type, int length) {
+        switch (type) {
+            case DOUBLE:
+                return array == null ? new double[length] : Arrays.copyOf((double[]) array, length);
+            case LONG:
+            case TIMESTAMP:
+                return array == null ? new long[length] : Arrays.copyOf((long[]) array, length);
+            case BOOLEAN:
+                return array == null ? new boolean[length] : Arrays.copyOf((boolean[]) array, length);
+            default:
+                return array == null ? new int[length] : Arrays.copyOf((int[]) array, length);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+/**
+ * <p>Types of the columns of a {@link CSVColumnTable}</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public enum CSVColumnType {
+    /**
+     * Column stored as double[]
+     */
+    DOUBLE,
+    /**
+     * Column stored as int[]
+     */
+    INT,
+    /**
+     * Column stored as long[]
+     */
+    LONG,
+    /**
+     * Column stored as boolean[] ("true" ignoring the case is true, everything else false)
+     */
+    BOOLEAN,
+    /**
+     * Column of ISO-8601 timestamps stored as long[] of milliseconds since the epoch (timestamps without offset are
+     * interpreted as UTC)
+     */
+    TIMESTAMP,
+    /**
+     * Column stored as dictionary encoded strings (see {@link CSVColumnTable.StringColumn})
+     */
+    STRING
+}
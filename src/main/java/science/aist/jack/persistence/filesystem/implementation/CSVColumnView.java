@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>{@link CharSequence} view of a column of a memory mapped csv file (see {@link MappedCSVScanner}). ASCII content
+ * is accessed directly without creating a string, other content is decoded (UTF-8) on the first access.</p>
+ * <p>Views are reused for the following records, so they are only valid while the record is the current one. Use
+ * {@link CSVColumnView#toString()} to get a persistent copy.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+final class CSVColumnView implements CharSequence {
+    private static final byte UNKNOWN = -1;
+    private static final byte NO = 0;
+    private static final byte YES = 1;
+
+    private ByteBuffer buffer;
+    private int start;
+    private int end;
+    private byte flags;
+    private byte ascii;
+    private String decoded;
+
+    void reset(ByteBuffer buffer, int start, int end, byte flags) {
+        this.buffer = buffer;
+        this.start = start;
+        this.end = end;
+        this.flags = flags;
+        this.ascii = UNKNOWN;
+        this.decoded = null;
+    }
+
+    /**
+     * @return true iff the column was quoted in the file
+     */
+    boolean isQuoted() {
+        return flags != MappedCSVScanner.PLAIN;
+    }
+
+    private boolean isAscii() {
+        if (ascii == UNKNOWN) {
+            ascii = YES;
+            if (flags == MappedCSVScanner.ESCAPED) {
+                ascii = NO;
+            } else {
+                for (int i = start; i < end; i++) {
+                    if (buffer.get(i) < 0) {
+                        ascii = NO;
+                        break;
+                    }
+                }
+            }
+        }
+        return ascii == YES;
+    }
+
+    @Override
+    public int length() {
+        return isAscii() ? end - start : toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (isAscii()) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + (end - start));
+            }
+            return (char) buffer.get(start + index);
+        }
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        return toString().subSequence(from, to);
+    }
+
+    @Override
+    public String toString() {
+        if (decoded == null) {
+            int length = end - start;
+            if (length == 0) {
+                decoded = "";
+            } else {
+                byte[] bytes = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    bytes[i] = buffer.get(start + i);
+                }
+                decoded = new String(bytes, StandardCharsets.UTF_8);
+                if (flags == MappedCSVScanner.ESCAPED) {
+                    decoded = decoded.replace("\"\"", "\"");
+                }
+            }
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import java.io.*;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * <p>Compression formats of csv files, which are detected by their magic bytes when reading and chosen by the file
+ * extension when writing.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+enum CSVCompression {
+    /**
+     * Uncompressed file
+     */
+    NONE,
+    /**
+     * gzip compressed file (RFC 1952), extension ".gz"
+     */
+    GZIP,
+    /**
+     * zlib compressed file (RFC 1950), extensions ".zz" or ".deflate"
+     */
+    DEFLATE;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+    /**
+     * zlib header with deflate compression and a 32K window
+     */
+    private static final int ZLIB_CMF = 0x78;
+
+    /**
+     * Detects the compression using the first two bytes of a file
+     *
+     * @param first  first byte of the file (-1 if the file is empty)
+     * @param second second byte of the file (-1 if the file is shorter)
+     * @return the detected compression
+     */
+    static CSVCompression detect(int first, int second) {
+        if (first == GZIP_MAGIC_1 && second == GZIP_MAGIC_2) {
+            return GZIP;
+        }
+        // the flags of a zlib header without preset dictionary, which are ((CMF * 256 + FLG) % 31 == 0). "x^" is the
+        // only combination of printable characters, which is therefore not accepted as start of an uncompressed file
+        if (first == ZLIB_CMF && (second == 0x01 || second == 0x9c || second == 0xda)) {
+            return DEFLATE;
+        }
+        return NONE;
+    }
+
+    /**
+     * Detects the compression of the given file
+     *
+     * @param file the file to check
+     * @return the detected compression
+     * @throws IOException if the file can't be read
+     */
+    static CSVCompression detect(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            int first = in.read();
+            return detect(first, first < 0 ? -1 : in.read());
+        }
+    }
+
+    /**
+     * Detects the compression of the given stream and wraps it into a decompressing stream if necessary
+     *
+     * @param in the (possibly compressed) stream
+     * @return buffered stream of the uncompressed content
+     * @throws IOException if the stream can't be read
+     */
+    static InputStream decode(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = first < 0 ? -1 : buffered.read();
+        buffered.reset();
+        switch (detect(first, second)) {
+            case GZIP:
+                return new BufferedInputStream(new GZIPInputStream(buffered, BUFFER_SIZE), BUFFER_SIZE);
+            case DEFLATE:
+                return new BufferedInputStream(new InflaterInputStream(buffered), BUFFER_SIZE);
+            default:
+                return buffered;
+        }
+    }
+
+    /**
+     * @param file the file to write
+     * @return the compression matching the extension of the file
+     */
+    static CSVCompression ofFileName(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) {
+            return GZIP;
+        }
+        if (name.endsWith(".zz") || name.endsWith(".deflate")) {
+            return DEFLATE;
+        }
+        return NONE;
+    }
+
+    /**
+     * Wraps the given stream into a compressing stream. Flushing the returned stream flushes the compressor as well
+     * (sync flush), so the written lines can be decompressed up to the last flush.
+     *
+     * @param out the stream to write to
+     * @return stream, which compresses the written content using this compression
+     * @throws IOException if the stream can't be written
+     */
+    OutputStream encode(OutputStream out) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(out, BUFFER_SIZE, true);
+            case DEFLATE:
+                return new DeflaterOutputStream(out, true);
+            default:
+                return out;
+        }
+    }
+}
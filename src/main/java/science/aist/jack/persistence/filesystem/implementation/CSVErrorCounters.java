@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Aggregated counters of the errors of a {@link CSVProcessor}, which replace logging every invalid value. The
+ * counters are thread safe and are summed up over all reads until they are reset.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public final class CSVErrorCounters {
+    private final LongAdder invalidValues = new LongAdder();
+    private final LongAdder rejectedRows = new LongAdder();
+
+    void invalidValue() {
+        invalidValues.increment();
+    }
+
+    void rejectedRow() {
+        rejectedRows.increment();
+    }
+
+    /**
+     * @return number of values, which couldn't be parsed (and were replaced by a default value or caused the row to
+     * be rejected)
+     */
+    public long getInvalidValues() {
+        return invalidValues.sum();
+    }
+
+    /**
+     * @return number of rows, which were rejected by the {@link CSVErrorPolicy}
+     */
+    public long getRejectedRows() {
+        return rejectedRows.sum();
+    }
+
+    /**
+     * Resets all counters to 0
+     */
+    public void reset() {
+        invalidValues.reset();
+        rejectedRows.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "CSVErrorCounters{invalidValues=" + getInvalidValues() + ", rejectedRows=" + getRejectedRows() + '}';
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import lombok.NonNull;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * <p>Policy which decides how a {@link CSVProcessor} handles rows, which can't be converted to an element. A row is
+ * invalid if its conversion function throws a {@link CSVValueException} or a {@link NumberFormatException}.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public final class CSVErrorPolicy {
+    private static final CSVErrorPolicy DEFAULT_VALUE = new CSVErrorPolicy(false, row -> {
+    });
+    private static final CSVErrorPolicy SKIP_ROW = new CSVErrorPolicy(true, row -> {
+    });
+
+    private final boolean rejectRows;
+    private final Consumer<? super CSVRejectedRow> deadLetterSink;
+
+    private CSVErrorPolicy(boolean rejectRows, Consumer<? super CSVRejectedRow> deadLetterSink) {
+        this.rejectRows = rejectRows;
+        this.deadLetterSink = deadLetterSink;
+    }
+
+    /**
+     * @return policy which keeps the rows. Invalid values are replaced by the default value of the converter (e.g.
+     * 0 for numbers of a {@link ReflectionCSVProcessor}) and exceptions of the conversion function are rethrown
+     */
+    public static CSVErrorPolicy defaultValue() {
+        return DEFAULT_VALUE;
+    }
+
+    /**
+     * @return policy which skips invalid rows
+     */
+    public static CSVErrorPolicy skipRow() {
+        return SKIP_ROW;
+    }
+
+    /**
+     * @param deadLetterSink consumer of the invalid rows, which must be thread safe if the file is read in parallel
+     * @return policy which skips invalid rows and hands them to the given consumer
+     */
+    public static CSVErrorPolicy deadLetter(@NonNull Consumer<? super CSVRejectedRow> deadLetterSink) {
+        return new CSVErrorPolicy(true, deadLetterSink);
+    }
+
+    /**
+     * @param deadLetters collection to which the invalid rows are added, which must be thread safe if the file is
+     *                    read in parallel
+     * @return policy which skips invalid rows and adds them to the given collection
+     */
+    public static CSVErrorPolicy deadLetter(@NonNull Collection<? super CSVRejectedRow> deadLetters) {
+        return new CSVErrorPolicy(true, deadLetters::add);
+    }
+
+    /**
+     * @return true iff invalid rows are rejected instead of using default values
+     */
+    public boolean rejectsRows() {
+        return rejectRows;
+    }
+
+    void reject(CSVRejectedRow row) {
+        deadLetterSink.accept(row);
+    }
+}
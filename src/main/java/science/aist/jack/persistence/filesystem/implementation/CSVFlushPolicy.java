@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+/**
+ * <p>Policy which decides when the write buffer of a {@link CSVProcessor} is flushed to the file in addition to the
+ * flushes which happen when the buffer is full and when the file is closed.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+@FunctionalInterface
+public interface CSVFlushPolicy {
+    /**
+     * Called after every written line
+     *
+     * @param linesSinceFlush number of lines written since the last flush
+     * @param bufferedBytes   number of bytes currently buffered
+     * @return true iff the buffer should be flushed now
+     */
+    boolean shouldFlush(long linesSinceFlush, int bufferedBytes);
+
+    /**
+     * @return policy which only flushes if the buffer is full (and when the file is closed)
+     */
+    static CSVFlushPolicy whenFull() {
+        return (linesSinceFlush, bufferedBytes) -> false;
+    }
+
+    /**
+     * @param lines number of lines after which the buffer is flushed
+     * @return policy which flushes the buffer after the given number of lines
+     */
+    static CSVFlushPolicy everyLines(long lines) {
+        if (lines <= 0) {
+            throw new IllegalArgumentException("Number of lines must be positive");
+        }
+        return (linesSinceFlush, bufferedBytes) -> linesSinceFlush >= lines;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Column definition of a csv file, which is resolved once per file. It contains the normalized column names
+ * (see {@link CSVProcessor#normalizeColumnDefinition(List)}) and an index of them, so the rows can be mapped without
+ * normalizing or searching the column definition again. The column names are interned, so the headers of all files
+ * with the same columns share the same strings.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+final class CSVHeader {
+    private final List<String> normalizedColumns;
+    private final Map<String, Integer> indices;
+
+    /**
+     * @param normalizedColumns the normalized column names (null if the processor has no column definition)
+     */
+    CSVHeader(List<String> normalizedColumns) {
+        if (normalizedColumns == null) {
+            this.normalizedColumns = null;
+        } else {
+            List<String> interned = new ArrayList<>(normalizedColumns.size());
+            for (String column : normalizedColumns) {
+                interned.add(column == null ? null : column.intern());
+            }
+            this.normalizedColumns = Collections.unmodifiableList(interned);
+        }
+        this.indices = new HashMap<>();
+        for (int i = this.normalizedColumns == null ? -1 : this.normalizedColumns.size() - 1; i >= 0; i--) {
+            // iterated backwards, so the first column wins for duplicated names
+            indices.put(this.normalizedColumns.get(i), i);
+        }
+    }
+
+    /**
+     * @return the normalized column names. The same instance is returned for every call, so it can be used as a key
+     * for caches
+     */
+    List<String> getNormalizedColumns() {
+        return normalizedColumns;
+    }
+
+    /**
+     * @param column the normalized name of a column
+     * @return the index of the column or -1 if it is not part of the header
+     */
+    int indexOf(String column) {
+        return indices.getOrDefault(column, -1);
+    }
+
+    /**
+     * Resolves the indices of the given columns
+     *
+     * @param columns the normalized names of the columns
+     * @return the index of every given column
+     * @throws IllegalArgumentException if a column is not part of the header
+     */
+    int[] indicesOf(Collection<String> columns) {
+        int[] projection = new int[columns.size()];
+        int i = 0;
+        for (String column : columns) {
+            projection[i] = indexOf(column);
+            if (projection[i] < 0) {
+                throw new IllegalArgumentException("Column " + column + " is not part of the column definition " + normalizedColumns);
+            }
+            i++;
+        }
+        return projection;
+    }
+}
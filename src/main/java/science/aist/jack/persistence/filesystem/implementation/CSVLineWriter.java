@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * <p>Writer for csv lines, which encodes the columns (UTF-8) directly into one reusable byte buffer. The buffer is
+ * only written to the underlying stream if it is full or if the {@link CSVFlushPolicy} requests it, so large files
+ * are written with few system calls.</p>
+ * <p>Every column is followed by the separator and columns are quoted following RFC 4180 if necessary.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+final class CSVLineWriter implements Closeable {
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    /**
+     * maximal number of bytes of an encoded char (4 bytes for a surrogate pair, which consists of 2 chars)
+     */
+    private static final int MAX_CHAR_BYTES = 4;
+
+    private final OutputStream out;
+    private final char separator;
+    private final CSVFlushPolicy flushPolicy;
+    private final byte[] buffer;
+    private int position;
+    private long linesSinceFlush;
+
+    CSVLineWriter(OutputStream out, char separator, int bufferSize, CSVFlushPolicy flushPolicy) {
+        this.out = out;
+        this.separator = separator;
+        this.flushPolicy = flushPolicy;
+        this.buffer = new byte[Math.max(bufferSize, 64)];
+    }
+
+    /**
+     * Writes the given columns as one line
+     *
+     * @param columns the columns to write, null columns are written as empty columns
+     * @throws IOException if the underlying stream fails
+     */
+    void writeLine(List<String> columns) throws IOException {
+        for (String column : columns) {
+            if (column != null) {
+                if (requiresQuotes(column)) {
+                    writeChar(CSVTokenizer.QUOTE);
+                    writeString(column, true);
+                    writeChar(CSVTokenizer.QUOTE);
+                } else {
+                    writeString(column, false);
+                }
+            }
+            writeChar(separator);
+        }
+        if (buffer.length - position < LINE_SEPARATOR.length) {
+            flushBuffer();
+        }
+        System.arraycopy(LINE_SEPARATOR, 0, buffer, position, LINE_SEPARATOR.length);
+        position += LINE_SEPARATOR.length;
+
+        if (flushPolicy.shouldFlush(++linesSinceFlush, position)) {
+            flush();
+        }
+    }
+
+    /**
+     * Checks if the given value has to be quoted (see RFC 4180), because it contains a separator, a quote or a line
+     * break. Values with leading or trailing whitespaces are quoted as well, as unquoted columns are trimmed when read.
+     *
+     * @param s value to check
+     * @return true iff the value must be quoted
+     */
+    private boolean requiresQuotes(String s) {
+        int length = s.length();
+        if (length == 0) {
+            return false;
+        }
+        if (s.charAt(0) <= ' ' || s.charAt(length - 1) <= ' ') {
+            return true;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c == separator || c == CSVTokenizer.QUOTE || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeString(String s, boolean escapeQuotes) throws IOException {
+        byte[] bytes = buffer;
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            if (bytes.length - position < MAX_CHAR_BYTES) {
+                flushBuffer();
+            }
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                bytes[position++] = (byte) c;
+                if (escapeQuotes && c == CSVTokenizer.QUOTE) {
+                    bytes[position++] = (byte) c;
+                }
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                bytes[position++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                writeNonAscii(c);
+            }
+        }
+    }
+
+    private void writeChar(char c) throws IOException {
+        if (buffer.length - position < MAX_CHAR_BYTES) {
+            flushBuffer();
+        }
+        if (c < 0x80) {
+            buffer[position++] = (byte) c;
+        } else {
+            writeNonAscii(c);
+        }
+    }
+
+    private void writeNonAscii(char c) {
+        if (c < 0x800) {
+            buffer[position++] = (byte) (0xC0 | (c >> 6));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+            // unpaired surrogates are replaced, like the UTF-8 encoder of the JDK does
+            buffer[position++] = '?';
+        } else {
+            buffer[position++] = (byte) (0xE0 | (c >> 12));
+            buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    /**
+     * Writes the buffered lines to the underlying stream and flushes it
+     *
+     * @throws IOException if the underlying stream fails
+     */
+    void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+        linesSinceFlush = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * <p>Position of a row in a csv file, which can be used to resume reading the file (see
+ * {@link CSVProcessor#readFrom(java.io.File, boolean, boolean, CSVPosition)}) without parsing the rows before it.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class CSVPosition {
+    /**
+     * Position of the first row of a file
+     */
+    public static final CSVPosition START = new CSVPosition(0, 0);
+
+    /**
+     * byte offset of the row in the file
+     */
+    private final long offset;
+    /**
+     * number of rows (without the column definition) before the position
+     */
+    private final long row;
+
+    private CSVPosition(long offset, long row) {
+        this.offset = offset;
+        this.row = row;
+    }
+
+    /**
+     * @param offset byte offset of the row in the file (must be the start of a row)
+     * @param row    number of rows (without the column definition) before the position
+     * @return the position
+     */
+    public static CSVPosition of(long offset, long row) {
+        if (offset < 0 || row < 0) {
+            throw new IllegalArgumentException("Offset and row must not be negative");
+        }
+        return new CSVPosition(offset, row);
+    }
+}
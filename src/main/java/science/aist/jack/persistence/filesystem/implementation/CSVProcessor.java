@@ -11,19 +11,26 @@ package science.aist.jack.persistence.filesystem.implementation;
 
 import lombok.CustomLog;
 import lombok.NonNull;
-import lombok.SneakyThrows;
+import science.aist.jack.exception.ExceptionUtils;
 import science.aist.jack.general.function.TriConsumer;
 import science.aist.jack.persistence.filesystem.CSVReader;
 import science.aist.jack.persistence.filesystem.CSVWriter;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * <p>Class for accessing domain classes in CSV files. Allows to read and write .csv files containing domain types</p>
@@ -34,10 +41,22 @@ import java.util.stream.Stream;
 @SuppressWarnings("unused")
 @CustomLog
 public class CSVProcessor<T> implements CSVReader<T>, CSVWriter<T> {
+    private static final int DEFAULT_PARALLEL_CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int PIPELINE_BATCH_SIZE = 256;
+    private static final int PIPELINE_QUEUE_CAPACITY = 16;
+    /**
+     * Marker for rows rejected by the error policy or a row filter, which are filtered before the elements are returned
+     */
+    private static final Object REJECTED = new Object();
     protected final char separator;
     protected final List<String> columnDefinition;
     protected BiFunction<T, List<String>, List<String>> elementToFunc;
     protected BiFunction<List<String>, List<String>, T> columnsToElementFunc;
+    private int parallelChunkSize = DEFAULT_PARALLEL_CHUNK_SIZE;
+    private int writeBufferSize = CSVLineWriter.DEFAULT_BUFFER_SIZE;
+    private CSVFlushPolicy flushPolicy = CSVFlushPolicy.whenFull();
+    private CSVErrorPolicy errorPolicy = CSVErrorPolicy.defaultValue();
+    private final CSVErrorCounters errorCounters = new CSVErrorCounters();
 
     /**
      * Creates a CSVPointProcessor with given separator and column definition
@@ -151,12 +170,6 @@ public class CSVProcessor<T> implements CSVReader<T>, CSVWriter<T> {
         return getProcessor(separator, columnDefinition, elementToColumnFunc, func);
     }
 
-    private static List<String> split(String string, String delimiter) {
-        return Stream.of(string.replace(delimiter, " " + delimiter + " ").split(delimiter))
-                .map(String::trim)
-                .collect(Collectors.toList());
-    }
-
     /**
      * Defines the normalisation of the header files. Adapter method
      *
@@ -186,42 +199,727 @@ public class CSVProcessor<T> implements CSVReader<T>, CSVWriter<T> {
      * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of the definition in the constructor (only used if containsColumndefinition == true)
      * @return the read elements
      */
-    @SneakyThrows
-    @SuppressWarnings("java:S3776")
     public List<T> read(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition) {
+        try (Stream<T> elements = stream(csvFile, containsColumnDefinition, useFileColumnDefinition)) {
+            return elements.collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    /**
+     * Method for lazily reading the given csv file. Every line is only read, split, normalized and converted to the
+     * specific element type using the given {@link BiFunction} when the next element of the stream is requested.
+     * The underlying reader is closed together with the returned stream. gzip and zlib compressed files are detected
+     * by their magic bytes and decompressed while they are read.
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumnDefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of the definition in the constructor (only used if containsColumndefinition == true)
+     * @return stream of the read elements, which must be closed to release the underlying file
+     */
+    @Override
+    public Stream<T> stream(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition) {
         if (columnsToElementFunc == null) {
             throw new IllegalStateException("lineToElementFunc must not be null");
         }
 
-        List<T> result = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(csvFile), StandardCharsets.UTF_8))) {
-            String st;
-            List<String> fileColumndefinition = new ArrayList<>();
-            if (containsColumnDefinition) {
-                String s = reader.readLine();
-                for (String s1 : split(s, String.valueOf(separator))) {
-                    fileColumndefinition.add(s1.trim());
+        try {
+            return stream(new FileInputStream(csvFile), containsColumnDefinition, useFileColumnDefinition);
+        } catch (FileNotFoundException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
+
+    /**
+     * Method for lazily reading the given UTF-8 encoded csv stream (see {@link CSVProcessor#stream(File, boolean, boolean)}).
+     * gzip and zlib compressed content is detected by its magic bytes and decompressed while it is parsed, so the
+     * decompressed content is never materialized. The given stream is closed together with the returned stream.
+     *
+     * @param csvStream                source stream to read
+     * @param containsColumnDefinition flag which signals if the stream contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the stream should be used instead of the definition in the constructor (only used if containsColumndefinition == true)
+     * @return stream of the read elements, which must be closed to release the given stream
+     */
+    @Override
+    public Stream<T> stream(@NonNull InputStream csvStream, boolean containsColumnDefinition, boolean useFileColumnDefinition) {
+        if (columnsToElementFunc == null) {
+            closeQuietly(csvStream).run();
+            throw new IllegalStateException("lineToElementFunc must not be null");
+        }
+
+        CSVTokenizer tokenizer = null;
+        try {
+            tokenizer = openTokenizer(csvStream);
+            List<String> fileColumnDefinition = readColumnDefinition(tokenizer, containsColumnDefinition, useFileColumnDefinition);
+            Iterator<T> iterator = new ElementIterator(tokenizer, createHeader(useFileColumnDefinition ? fileColumnDefinition : columnDefinition));
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                    .filter(CSVProcessor::isAccepted)
+                    .onClose(closeQuietly(tokenizer));
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(tokenizer == null ? csvStream : tokenizer).run();
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
+
+    /**
+     * Creates a tokenizer for the given UTF-8 encoded stream, which is decompressed if it is compressed
+     *
+     * @param csvStream the (possibly compressed) stream to read
+     * @return the tokenizer, which closes the given stream when it is closed
+     * @throws IOException if the stream can't be read
+     */
+    private CSVTokenizer openTokenizer(InputStream csvStream) throws IOException {
+        return new CSVTokenizer(new InputStreamReader(CSVCompression.decode(csvStream), StandardCharsets.UTF_8), separator);
+    }
+
+    /**
+     * Checks that the given file is not compressed, as compressed files can't be accessed randomly
+     *
+     * @param csvFile the file to check
+     * @throws IllegalArgumentException if the file is compressed
+     */
+    private static void checkUncompressed(File csvFile) {
+        try {
+            if (CSVCompression.detect(csvFile) != CSVCompression.NONE) {
+                throw new IllegalArgumentException("Compressed csv file " + csvFile + " can't be memory mapped or split, use stream(File, boolean, boolean) instead");
+            }
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
+
+    private List<String> readColumnDefinition(CSVTokenizer tokenizer, boolean containsColumnDefinition, boolean useFileColumnDefinition) throws IOException {
+        List<String> fileColumndefinition = List.of();
+        if (containsColumnDefinition) {
+            List<String> header = tokenizer.nextRecord();
+            if (header != null) {
+                fileColumndefinition = header;
+            }
+            checkColumnDefinition(fileColumndefinition, useFileColumnDefinition);
+        }
+        return fileColumndefinition;
+    }
+
+    private List<String> readColumnDefinition(MappedCSVScanner scanner, boolean containsColumnDefinition, boolean useFileColumnDefinition) throws IOException {
+        List<String> fileColumndefinition = List.of();
+        if (containsColumnDefinition) {
+            if (scanner.nextRecord()) {
+                fileColumndefinition = new ArrayList<>(scanner.values());
+            }
+            checkColumnDefinition(fileColumndefinition, useFileColumnDefinition);
+        }
+        return fileColumndefinition;
+    }
+
+    private void checkColumnDefinition(List<String> fileColumndefinition, boolean useFileColumnDefinition) {
+        if (!useFileColumnDefinition) {
+            Set<String> fileColumns = new HashSet<>(fileColumndefinition);
+            for (String column : columnDefinition) {
+                if (!fileColumns.contains(column)) {
+                    throw new IllegalStateException("CSV File doesnt contain the required column " + column + " in column definition " + fileColumndefinition);
                 }
+            }
+        }
+    }
 
-                if (!useFileColumnDefinition) {
-                    for (String column : columnDefinition) {
-                        if (!fileColumndefinition.contains(column)) {
-                            throw new IllegalStateException("CSV File doesnt contain the required column " + column + " in column definition " + fileColumndefinition);
-                        }
+    /**
+     * Method for lazily reading the given UTF-8 encoded csv file using a memory mapped file. The bytes of the file are
+     * tokenized directly, and the columns are only decoded to strings, when they are accessed by
+     * {@link CSVProcessor#normalizeRow(List)} or the columnsToElementFunc. The list of columns given to these functions
+     * is reused for the following lines, so it must not be stored. Compressed files can't be memory mapped.
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumnDefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of the definition in the constructor (only used if containsColumndefinition == true)
+     * @return stream of the read elements, which must be closed to release the underlying file
+     */
+    public Stream<T> streamMapped(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition) {
+        if (columnsToElementFunc == null) {
+            throw new IllegalStateException("lineToElementFunc must not be null");
+        }
+        return mappedStream(csvFile, containsColumnDefinition, useFileColumnDefinition, Collections.emptyMap(),
+                (scanner, header) -> convert(scanner.values(), header));
+    }
+
+    /**
+     * Method for reading the elements of the given UTF-8 encoded csv file, which match all given column predicates
+     * (see {@link CSVProcessor#streamWhere(File, boolean, boolean, Map)}).
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumnDefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of the definition in the constructor (only used if containsColumndefinition == true)
+     * @param predicates               names of the filtered columns and the predicates their values must match
+     * @return the read elements, which match all predicates
+     */
+    public List<T> readWhere(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition,
+                             @NonNull Map<String, ? extends Predicate<? super CharSequence>> predicates) {
+        try (Stream<T> elements = streamWhere(csvFile, containsColumnDefinition, useFileColumnDefinition, predicates)) {
+            return elements.collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    /**
+     * Method for lazily reading the elements of the given UTF-8 encoded csv file, which match all given column
+     * predicates. The predicates are evaluated on the {@link CharSequence} views of the raw columns (see
+     * {@link CSVProcessor#streamMapped(File, boolean, boolean, BiFunction)}) in the iteration order of the map, before
+     * the row is normalized or converted to an element. So only the filtered columns of a rejected row are decoded and
+     * the evaluation stops at the first predicate, which does not match. Put the most selective predicates first.
+     * <p>The views are only valid while the predicate is called, so they must not be stored. Columns, which are
+     * missing in a row, are given as empty sequence. Filtered rows are not counted as rejected rows.</p>
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumnDefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of the definition in the constructor (only used if containsColumndefinition == true)
+     * @param predicates               names of the filtered columns and the predicates their values must match
+     * @return stream of the read elements, which match all predicates and must be closed to release the underlying file
+     * @throws IllegalArgumentException if a filtered column is not part of the column definition or the file is compressed
+     */
+    public Stream<T> streamWhere(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition,
+                                 @NonNull Map<String, ? extends Predicate<? super CharSequence>> predicates) {
+        if (columnsToElementFunc == null) {
+            throw new IllegalStateException("lineToElementFunc must not be null");
+        }
+        return mappedStream(csvFile, containsColumnDefinition, useFileColumnDefinition, predicates,
+                (scanner, header) -> convert(scanner.values(), header));
+    }
+
+    /**
+     * Method for lazily reading the given UTF-8 encoded csv file using a memory mapped file. In contrast to
+     * {@link CSVProcessor#streamMapped(File, boolean, boolean)} the columns are given to the viewsToElementFunc as
+     * {@link CharSequence} views of the mapped bytes, so values which are e.g. parsed to numbers are never copied into
+     * a string. The views (and the list) are reused for the following lines, so they must not be stored (use
+     * {@link CharSequence#toString()} instead). The rows are not normalized using {@link CSVProcessor#normalizeRow(List)}.
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumnDefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of the definition in the constructor (only used if containsColumndefinition == true)
+     * @param viewsToElementFunc       function to convert the column views of a csv line to a element. Second parameter == column definition
+     * @return stream of the read elements, which must be closed to release the underlying file
+     */
+    public Stream<T> streamMapped(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition,
+                                  @NonNull BiFunction<List<CharSequence>, List<String>, T> viewsToElementFunc) {
+        return mappedStream(csvFile, containsColumnDefinition, useFileColumnDefinition, Collections.emptyMap(),
+                (scanner, header) -> viewsToElementFunc.apply(scanner.views(), header.getNormalizedColumns()));
+    }
+
+    private Stream<T> mappedStream(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition,
+                                   Map<String, ? extends Predicate<? super CharSequence>> predicates,
+                                   BiFunction<MappedCSVScanner, CSVHeader, T> recordToElementFunc) {
+        checkUncompressed(csvFile);
+        MappedCSVScanner scanner = null;
+        try {
+            scanner = new MappedCSVScanner(csvFile.toPath(), separator);
+            List<String> fileColumnDefinition = readColumnDefinition(scanner, containsColumnDefinition, useFileColumnDefinition);
+            CSVHeader header = createHeader(useFileColumnDefinition ? fileColumnDefinition : columnDefinition);
+            Iterator<T> iterator = new MappedElementIterator(scanner, header,
+                    predicates.isEmpty() ? recordToElementFunc : filtered(header, predicates, recordToElementFunc));
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                    .filter(CSVProcessor::isAccepted)
+                    .onClose(closeQuietly(scanner));
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(scanner).run();
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
+
+    /**
+     * Wraps the given conversion, so it is only called for records, which match all predicates
+     *
+     * @param header              the column definition
+     * @param predicates          names of the filtered columns and the predicates their values must match
+     * @param recordToElementFunc the conversion of a matching record
+     * @return conversion, which returns {@link CSVProcessor#REJECTED} for records, which don't match
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> BiFunction<MappedCSVScanner, CSVHeader, T> filtered(CSVHeader header,
+                                                                          Map<String, ? extends Predicate<? super CharSequence>> predicates,
+                                                                          BiFunction<MappedCSVScanner, CSVHeader, T> recordToElementFunc) {
+        int[] indices = header.indicesOf(predicates.keySet());
+        List<Predicate<? super CharSequence>> filters = new ArrayList<>(predicates.values());
+        return (scanner, h) -> {
+            for (int i = 0; i < indices.length; i++) {
+                CharSequence value = indices[i] < scanner.columnCount() ? scanner.column(indices[i]) : "";
+                if (!filters.get(i).test(value)) {
+                    return (T) REJECTED;
+                }
+            }
+            return recordToElementFunc.apply(scanner, h);
+        };
+    }
+
+    /**
+     * Method for lazily reading the given UTF-8 encoded csv file starting at the given position (see
+     * {@link CSVProcessor#readFrom(File, boolean, boolean, CSVPosition, long, Consumer)}).
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumnDefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of the definition in the constructor (only used if containsColumndefinition == true)
+     * @param from                     position of the first row to read (e.g. {@link CSVPosition#START})
+     * @return stream of the read elements, which must be closed to release the underlying file
+     */
+    public Stream<T> readFrom(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition, @NonNull CSVPosition from) {
+        return readFrom(csvFile, containsColumnDefinition, useFileColumnDefinition, from, Long.MAX_VALUE, position -> {
+        });
+    }
+
+    /**
+     * Method for lazily reading the given UTF-8 encoded csv file starting at the given position, which allows to
+     * resume an interrupted read or to split a file at known positions without parsing the rows before them. The
+     * column definition is still read from the beginning of the file if containsColumnDefinition is true.
+     * <p>Every checkpointInterval rows and at the end of the file the checkpoint consumer is called with the position
+     * of the next row. It is called before the next row is read, so all elements before the position have been
+     * consumed by a sequential stream. Reading from a checkpoint continues with the next row and row number.</p>
+     * <p>The file is read using a memory mapped file, so it must not be compressed.</p>
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumnDefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of the definition in the constructor (only used if containsColumndefinition == true)
+     * @param from                     position of the first row to read (e.g. {@link CSVPosition#START} or a checkpoint)
+     * @param checkpointInterval       number of rows between two checkpoints
+     * @param checkpoint               consumer of the checkpoints
+     * @return stream of the read elements, which must be closed to release the underlying file
+     */
+    public Stream<T> readFrom(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition, @NonNull CSVPosition from,
+                              long checkpointInterval, @NonNull Consumer<? super CSVPosition> checkpoint) {
+        if (columnsToElementFunc == null) {
+            throw new IllegalStateException("lineToElementFunc must not be null");
+        }
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        checkUncompressed(csvFile);
+
+        MappedCSVScanner scanner = null;
+        try {
+            scanner = new MappedCSVScanner(csvFile.toPath(), separator);
+            List<String> fileColumnDefinition = readColumnDefinition(scanner, containsColumnDefinition, useFileColumnDefinition);
+            CSVHeader header = createHeader(useFileColumnDefinition ? fileColumnDefinition : columnDefinition);
+            if (from.getOffset() > scanner.nextOffset()) {
+                scanner.close();
+                scanner = new MappedCSVScanner(csvFile.toPath(), separator, from.getOffset(), MappedCSVScanner.DEFAULT_WINDOW_SIZE);
+            }
+            Iterator<T> iterator = new CheckpointIterator(scanner, header, from.getRow(), checkpointInterval, checkpoint);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                    .filter(CSVProcessor::isAccepted)
+                    .onClose(closeQuietly(scanner));
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(scanner).run();
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
+
+    /**
+     * Method for reading the given UTF-8 encoded csv file into a column oriented table, which contains only the
+     * projected columns. Instead of creating an element per line the values are stored in primitive arrays (or
+     * dictionary encoded for strings), columns which are not projected are skipped without being decoded. The
+     * columnsToElementFunc is not used by this method.
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumnDefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of the definition in the constructor (only used if containsColumndefinition == true)
+     * @param projection               names of the columns to read (in the order of the resulting table) and their types
+     * @return table with the projected columns
+     * @throws IllegalArgumentException if a projected column is not part of the column definition or the file is compressed
+     */
+    public CSVColumnTable readColumns(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition,
+                                      @NonNull Map<String, CSVColumnType> projection) {
+        checkUncompressed(csvFile);
+        try (MappedCSVScanner scanner = new MappedCSVScanner(csvFile.toPath(), separator)) {
+            List<String> fileColumnDefinition = readColumnDefinition(scanner, containsColumnDefinition, useFileColumnDefinition);
+            CSVHeader header = createHeader(useFileColumnDefinition ? fileColumnDefinition : columnDefinition);
+
+            return readColumns(scanner, header, projection, csvFile.length(), false);
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
+
+    /**
+     * Method for reading all columns of the given UTF-8 encoded csv file into a column oriented table (see
+     * {@link CSVProcessor#readColumns(File, boolean, boolean, Map)}), whose types are inferred from the first
+     * sampleRows rows (see {@link CSVProcessor#inferSchema(File, boolean, boolean, int)}). If a later value doesn't
+     * match the inferred type of its column, the column is widened (INT to LONG to DOUBLE, every other conflict to
+     * STRING) and the already read values are converted, so the file is not read again. Converted string values use
+     * their canonical representation (e.g. "1.50" becomes "1.5"), use {@link CSVColumnTable#getColumnType(String)} to
+     * get the final types.
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumnDefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of the definition in the constructor (only used if containsColumndefinition == true)
+     * @param sampleRows               number of rows used to infer the types of the columns
+     * @return table with all columns of the column definition
+     * @throws IllegalArgumentException if the file is compressed
+     * @throws IllegalStateException    if there is no column definition
+     */
+    public CSVColumnTable readColumns(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition, int sampleRows) {
+        checkUncompressed(csvFile);
+        try (MappedCSVScanner scanner = new MappedCSVScanner(csvFile.toPath(), separator)) {
+            List<String> fileColumnDefinition = readColumnDefinition(scanner, containsColumnDefinition, useFileColumnDefinition);
+            CSVHeader header = createHeader(useFileColumnDefinition ? fileColumnDefinition : columnDefinition);
+            long dataOffset = scanner.nextOffset();
+            Map<String, CSVColumnType> schema = inferSchema(scanner, header, sampleRows);
+            try (MappedCSVScanner data = new MappedCSVScanner(csvFile.toPath(), separator, dataOffset, MappedCSVScanner.DEFAULT_WINDOW_SIZE)) {
+                return readColumns(data, header, schema, csvFile.length(), true);
+            }
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
+
+    private static CSVColumnTable readColumns(MappedCSVScanner scanner, CSVHeader header, Map<String, CSVColumnType> projection,
+                                              long fileSize, boolean widen) throws IOException {
+        String[] names = projection.keySet().toArray(new String[0]);
+        int[] indices = header.indicesOf(projection.keySet());
+        CSVColumnType[] types = new CSVColumnType[projection.size()];
+        for (int i = 0; i < names.length; i++) {
+            types[i] = Objects.requireNonNull(projection.get(names[i]), "Type of column " + names[i] + " must not be null");
+        }
+        return CSVColumnTable.read(scanner, names, indices, types, fileSize, widen);
+    }
+
+    /**
+     * Infers the types of the columns of the given UTF-8 encoded csv file from its first sampleRows rows. Every column
+     * gets the narrowest type (INT, LONG, DOUBLE, BOOLEAN, TIMESTAMP or STRING), which can store all of its sampled
+     * values. Empty values are ignored, columns without sampled values are STRING columns and columns without name are
+     * skipped. The result can be used
+     * as projection for {@link CSVProcessor#readColumns(File, boolean, boolean, Map)}.
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumnDefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of the definition in the constructor (only used if containsColumndefinition == true)
+     * @param sampleRows               number of rows used to infer the types
+     * @return the inferred types by the (normalized) names of the columns in the order of the column definition
+     * @throws IllegalArgumentException if the file is compressed
+     * @throws IllegalStateException    if there is no column definition
+     */
+    public Map<String, CSVColumnType> inferSchema(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition, int sampleRows) {
+        checkUncompressed(csvFile);
+        try (MappedCSVScanner scanner = new MappedCSVScanner(csvFile.toPath(), separator)) {
+            List<String> fileColumnDefinition = readColumnDefinition(scanner, containsColumnDefinition, useFileColumnDefinition);
+            return inferSchema(scanner, createHeader(useFileColumnDefinition ? fileColumnDefinition : columnDefinition), sampleRows);
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
+
+    private static Map<String, CSVColumnType> inferSchema(MappedCSVScanner scanner, CSVHeader header, int sampleRows) throws IOException {
+        if (sampleRows <= 0) {
+            throw new IllegalArgumentException("Number of sample rows must be positive");
+        }
+        List<String> columns = header.getNormalizedColumns();
+        if (columns == null) {
+            throw new IllegalStateException("Column definition is required to infer the schema");
+        }
+        CSVColumnType[] types = new CSVColumnType[columns.size()];
+        for (int row = 0; row < sampleRows && scanner.nextRecord(); row++) {
+            for (int i = 0; i < types.length && i < scanner.columnCount(); i++) {
+                types[i] = CSVTypeInference.widen(types[i], CSVTypeInference.infer(scanner.column(i)));
+            }
+        }
+        Map<String, CSVColumnType> schema = new LinkedHashMap<>();
+        for (int i = 0; i < types.length; i++) {
+            // columns without name (e.g. after a trailing separator) are skipped
+            if (!columns.get(i).isEmpty()) {
+                schema.putIfAbsent(columns.get(i), types[i] == null ? CSVColumnType.STRING : types[i]);
+            }
+        }
+        return schema;
+    }
+
+    private static Runnable closeQuietly(Closeable closeable) {
+        return () -> {
+            if (closeable == null) {
+                return;
+            }
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                log.error("Could not close csv file", e);
+            }
+        };
+    }
+
+    /**
+     * Method for reading the given csv file in parallel. The file is split into chunks (aligned to line boundaries)
+     * which are read, split and converted using the given executor. The elements are returned in the order of the file.
+     * <p>Attention: The chunks are aligned to line breaks, so columns must not contain quoted line breaks and the file must not
+     * be compressed. As the chunks are read independently, rows rejected by the
+     * {@link CSVErrorPolicy} are reported with the row number -1.</p>
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumnDefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of the definition in the constructor (only used if containsColumndefinition == true)
+     * @param executor                 executor (e.g. a {@link java.util.concurrent.ForkJoinPool}) used for reading the chunks
+     * @return the read elements in the order of the file
+     */
+    public List<T> readParallel(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition, @NonNull Executor executor) {
+        CSVHeader header = readChunkedColumnDefinition(csvFile, containsColumnDefinition, useFileColumnDefinition);
+        List<CompletableFuture<List<T>>> chunks = splitIntoChunks(csvFile, containsColumnDefinition).stream()
+                .map(chunk -> CompletableFuture.supplyAsync(() -> readChunk(csvFile, chunk, header), executor))
+                .collect(Collectors.toList());
+
+        List<T> result = new ArrayList<>();
+        for (CompletableFuture<List<T>> chunk : chunks) {
+            try {
+                result.addAll(chunk.join());
+            } catch (CompletionException e) {
+                throw ExceptionUtils.unchecked(e.getCause());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Method for reading the given csv file as an unordered parallel stream. The file is split into chunks (aligned to
+     * line boundaries), which are read, split and converted in the {@link java.util.concurrent.ForkJoinPool} executing
+     * the terminal operation of the stream.
+     * <p>Attention: The chunks are aligned to line breaks, so columns must not contain quoted line breaks and the file must not
+     * be compressed. As the chunks are read independently, rows rejected by the
+     * {@link CSVErrorPolicy} are reported with the row number -1.</p>
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumnDefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of the definition in the constructor (only used if containsColumndefinition == true)
+     * @return unordered parallel stream of the read elements
+     */
+    public Stream<T> parallelStream(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition) {
+        CSVHeader header = readChunkedColumnDefinition(csvFile, containsColumnDefinition, useFileColumnDefinition);
+        return splitIntoChunks(csvFile, containsColumnDefinition).parallelStream()
+                .unordered()
+                .flatMap(chunk -> readChunk(csvFile, chunk, header).stream());
+    }
+
+    /**
+     * Method for reading the given csv file asynchronously. Reading and tokenizing the file, converting the lines to
+     * elements and consuming the elements run as pipelined stages on the given executor. The stages are connected by
+     * bounded buffers, so a slow subscriber slows down the reading of the file (backpressure) instead of buffering the
+     * whole file. The file is read when the (only) subscriber subscribes, cancelling the subscription stops the
+     * reading and closes the file. If reading or converting fails, the subscriber receives the error and elements
+     * which were not delivered yet are dropped.
+     * <p>Attention: The stages block while waiting for each other, so the executor must be able to run at least
+     * three tasks at the same time (e.g. {@link java.util.concurrent.Executors#newCachedThreadPool()}).</p>
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumnDefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of the definition in the constructor (only used if containsColumndefinition == true)
+     * @param executor                 executor used to run the stages and to deliver the elements to the subscriber
+     * @return publisher of the read elements in the order of the file, which supports exactly one subscriber
+     */
+    public Flow.Publisher<T> publish(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition, @NonNull Executor executor) {
+        if (columnsToElementFunc == null) {
+            throw new IllegalStateException("lineToElementFunc must not be null");
+        }
+        AtomicBoolean subscribed = new AtomicBoolean();
+        return subscriber -> {
+            if (!subscribed.compareAndSet(false, true)) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                        // nothing will be published
                     }
+
+                    @Override
+                    public void cancel() {
+                        // nothing will be published
+                    }
+                });
+                subscriber.onError(new IllegalStateException("The csv file can only be published to one subscriber"));
+                return;
+            }
+            Pipeline pipeline = new Pipeline(csvFile, containsColumnDefinition, useFileColumnDefinition, executor);
+            pipeline.publisher.subscribe(subscriber);
+            pipeline.start();
+        };
+    }
+
+    /**
+     * Method for reading the given csv file asynchronously (see
+     * {@link CSVProcessor#publish(File, boolean, boolean, Executor)}) and passing the elements to the given consumer.
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumnDefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of the definition in the constructor (only used if containsColumndefinition == true)
+     * @param executor                 executor used to run the stages and the consumer
+     * @param consumer                 consumer which is called for every element in the order of the file
+     * @return future which is completed when all elements are consumed or exceptionally if reading or consuming fails
+     */
+    public CompletableFuture<Void> readAsync(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition,
+                                             @NonNull Executor executor, @NonNull Consumer<? super T> consumer) {
+        if (columnsToElementFunc == null) {
+            throw new IllegalStateException("lineToElementFunc must not be null");
+        }
+        Pipeline pipeline = new Pipeline(csvFile, containsColumnDefinition, useFileColumnDefinition, executor);
+        CompletableFuture<Void> result = pipeline.publisher.consume(consumer);
+        pipeline.start();
+        return result;
+    }
+
+    /**
+     * Sets the size of the chunks (in bytes) used by {@link CSVProcessor#readParallel(File, boolean, boolean, Executor)}
+     * and {@link CSVProcessor#parallelStream(File, boolean, boolean)}
+     *
+     * @param parallelChunkSize the targeted size of a chunk in bytes
+     */
+    public void setParallelChunkSize(int parallelChunkSize) {
+        if (parallelChunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.parallelChunkSize = parallelChunkSize;
+    }
+
+    private CSVHeader readChunkedColumnDefinition(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition) {
+        if (columnsToElementFunc == null) {
+            throw new IllegalStateException("lineToElementFunc must not be null");
+        }
+        checkUncompressed(csvFile);
+
+        try (CSVTokenizer tokenizer = new CSVTokenizer(new InputStreamReader(new FileInputStream(csvFile), StandardCharsets.UTF_8), separator)) {
+            List<String> fileColumnDefinition = readColumnDefinition(tokenizer, containsColumnDefinition, useFileColumnDefinition);
+            return createHeader(useFileColumnDefinition ? fileColumnDefinition : columnDefinition);
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
+
+    private List<long[]> splitIntoChunks(File csvFile, boolean containsColumnDefinition) {
+        List<long[]> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long from = containsColumnDefinition ? nextLineStart(channel, 0, size) : 0;
+            while (from < size) {
+                long to = from + parallelChunkSize >= size ? size : nextLineStart(channel, from + parallelChunkSize, size);
+                chunks.add(new long[]{from, to});
+                from = to;
+            }
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+        return chunks;
+    }
+
+    /**
+     * Searches the start of the next line after the given position
+     *
+     * @param channel  the channel to search in
+     * @param position position where the search starts
+     * @param size     size of the channel
+     * @return the position after the next line feed or the size if there is no further line feed
+     * @throws IOException if the channel can't be read
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
                 }
             }
-            while ((st = reader.readLine()) != null) {
-                List<String> splitLine = split(st, String.valueOf(separator));
-                result.add(columnsToElementFunc.apply(normalizeRow(splitLine), useFileColumnDefinition ?
-                        normalizeColumnDefinition(fileColumndefinition) :
-                        normalizeColumnDefinition(columnDefinition)));
+            position += read;
+        }
+        return size;
+    }
+
+    private List<T> readChunk(File csvFile, long[] chunk, CSVHeader header) {
+        byte[] bytes = new byte[Math.toIntExact(chunk[1] - chunk[0])];
+        try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            int read = 0;
+            while (buffer.hasRemaining() && read >= 0) {
+                read = channel.read(buffer, chunk[0] + buffer.position());
             }
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
         }
 
+        List<T> result = new ArrayList<>();
+        CSVTokenizer tokenizer = new CSVTokenizer(new StringReader(new String(bytes, StandardCharsets.UTF_8)), separator);
+        try {
+            Supplier<String> text = tokenizer::recordText;
+            List<String> line;
+            while ((line = tokenizer.nextRecord()) != null) {
+                T element = toElement(line, text, header, -1);
+                if (isAccepted(element)) {
+                    result.add(element);
+                }
+            }
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
         return result;
     }
 
+    /**
+     * Converts the given line to an element, rows which can't be converted are handled by the error policy
+     *
+     * @param line   the columns of the line
+     * @param text   supplies the text of the line as it is contained in the file, only called if the row is rejected
+     * @param header the column definition
+     * @param row    number of the row in the file (-1 if unknown)
+     * @return the element or {@link CSVProcessor#REJECTED} if the row was rejected
+     */
+    private T toElement(List<String> line, Supplier<String> text, CSVHeader header, long row) {
+        try {
+            return convert(line, header);
+        } catch (CSVValueException | NumberFormatException e) {
+            return reject(errorPolicy, text.get(), row, e);
+        }
+    }
+
+    private T convert(List<String> line, CSVHeader header) {
+        return columnsToElementFunc.apply(normalizeRow(line), header.getNormalizedColumns());
+    }
+
+    @SuppressWarnings("unchecked")
+    private T reject(CSVErrorPolicy policy, String text, long row, RuntimeException e) {
+        if (!policy.rejectsRows()) {
+            throw e;
+        }
+        errorCounters.rejectedRow();
+        policy.reject(CSVRejectedRow.of(row, text, e.getMessage()));
+        return (T) REJECTED;
+    }
+
+    private static boolean isAccepted(Object element) {
+        return element != REJECTED;
+    }
+
+    /**
+     * Sets the policy for rows which can't be converted to an element (default: {@link CSVErrorPolicy#defaultValue()})
+     *
+     * @param errorPolicy the error policy
+     */
+    public void setErrorPolicy(@NonNull CSVErrorPolicy errorPolicy) {
+        this.errorPolicy = errorPolicy;
+    }
+
+    /**
+     * @return the policy for rows which can't be converted to an element
+     */
+    public CSVErrorPolicy getErrorPolicy() {
+        return errorPolicy;
+    }
+
+    /**
+     * @return the aggregated counters of invalid values and rejected rows of this processor
+     */
+    public CSVErrorCounters getErrorCounters() {
+        return errorCounters;
+    }
+
+    /**
+     * Normalizes the given column definition once, so the rows of a file can be mapped without normalizing it again
+     *
+     * @param columns the column definition of the file
+     * @return the resolved header
+     */
+    private CSVHeader createHeader(List<String> columns) {
+        return new CSVHeader(columns == null ? null : normalizeColumnDefinition(columns));
+    }
+
     /**
      * Method for writing the given elements to a csv file
      *
@@ -231,14 +929,69 @@ public class CSVProcessor<T> implements CSVReader<T>, CSVWriter<T> {
      * @return true iff elements are written successfully
      */
     public boolean write(File targetFile, List<T> elements, boolean writeColumnDefinition) {
-        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(targetFile), StandardCharsets.UTF_8)) {
-            if (writeColumnDefinition) {
-                writeLine(writer, columnDefinition);
-            }
+        return write(targetFile, elements.iterator(), writeColumnDefinition);
+    }
 
-            for (T element : elements) {
-                writeLine(writer, elementToFunc.apply(element, columnDefinition));
-            }
+    /**
+     * Method for writing the elements of the given iterator to a csv file. The lines are encoded into a reusable buffer
+     * (see {@link CSVProcessor#setWriteBufferSize(int)}), which is written to the file if it is full or the
+     * {@link CSVFlushPolicy} requests it, so the memory consumption does not depend on the number of elements. Files
+     * with the extension ".gz" are gzip compressed, files with the extension ".zz" or ".deflate" are zlib compressed.
+     *
+     * @param targetFile            target file where to write the elements
+     * @param elements              to be written
+     * @param writeColumnDefinition flag which signals if the column definition should be written in the beginning
+     * @return true iff elements are written successfully
+     */
+    @Override
+    public boolean write(File targetFile, Iterator<T> elements, boolean writeColumnDefinition) {
+        return writeElements(targetFile, elements, writeColumnDefinition, false);
+    }
+
+    /**
+     * Method for writing the elements of the given iterator as UTF-8 encoded csv lines to the given stream (see
+     * {@link CSVProcessor#write(File, Iterator, boolean)}). The stream is flushed but not closed, so it can e.g. be a
+     * {@link java.util.zip.GZIPOutputStream}, which must be closed (finished) by the caller.
+     *
+     * @param targetStream          target stream where to write the elements
+     * @param elements              to be written
+     * @param writeColumnDefinition flag which signals if the column definition should be written in the beginning
+     * @return true iff elements are written successfully
+     */
+    @Override
+    public boolean write(@NonNull OutputStream targetStream, Iterator<T> elements, boolean writeColumnDefinition) {
+        try {
+            writeElements(targetStream, elements, writeColumnDefinition).flush();
+        } catch (IOException e) {
+            log.error("Could not write stream", e);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Method for appending the elements of the given iterator to a csv file (see
+     * {@link CSVProcessor#write(File, Iterator, boolean)}). The file is created if it doesn't exist. Appending to a
+     * gzip compressed file adds a new gzip member, which is read transparently together with the existing ones.
+     *
+     * @param targetFile            target file where to append the elements
+     * @param elements              to be written
+     * @param writeColumnDefinition flag which signals if the column definition should be written in the beginning, if
+     *                              the file doesn't exist or is empty
+     * @return true iff elements are written successfully
+     * @throws IllegalArgumentException if the file is a non empty zlib compressed file, which can't be appended
+     */
+    public boolean append(File targetFile, Iterator<T> elements, boolean writeColumnDefinition) {
+        if (CSVCompression.ofFileName(targetFile) == CSVCompression.DEFLATE && targetFile.length() > 0) {
+            throw new IllegalArgumentException("Can't append to zlib compressed file " + targetFile);
+        }
+        return writeElements(targetFile, elements, writeColumnDefinition && targetFile.length() == 0, true);
+    }
+
+    private boolean writeElements(File targetFile, Iterator<T> elements, boolean writeColumnDefinition, boolean append) {
+        try (FileOutputStream file = new FileOutputStream(targetFile, append);
+             OutputStream out = CSVCompression.ofFileName(targetFile).encode(file)) {
+            writeElements(out, elements, writeColumnDefinition).close();
         } catch (IOException e) {
             log.error("Could not write file", e);
             return false;
@@ -246,15 +999,316 @@ public class CSVProcessor<T> implements CSVReader<T>, CSVWriter<T> {
         return true;
     }
 
-    private void writeLine(OutputStreamWriter writer, List<String> columns) throws IOException {
-        for (String s : columns) {
-            writeColumn(writer, s);
+    /**
+     * Writes the column definition (if requested) and the elements to the given stream
+     *
+     * @return the writer, which still contains buffered lines and must be flushed or closed
+     */
+    private CSVLineWriter writeElements(OutputStream out, Iterator<T> elements, boolean writeColumnDefinition) throws IOException {
+        CSVLineWriter writer = new CSVLineWriter(out, separator, writeBufferSize, flushPolicy);
+        if (writeColumnDefinition) {
+            writer.writeLine(columnDefinition);
+        }
+
+        while (elements.hasNext()) {
+            writer.writeLine(elementToFunc.apply(elements.next(), columnDefinition));
+        }
+        return writer;
+    }
+
+    /**
+     * Sets the size of the buffer (in bytes) used for writing csv files
+     *
+     * @param writeBufferSize the size of the buffer in bytes
+     */
+    public void setWriteBufferSize(int writeBufferSize) {
+        if (writeBufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.writeBufferSize = writeBufferSize;
+    }
+
+    /**
+     * Sets the policy which decides when the write buffer is flushed in addition to the flushes when the buffer is full
+     * (default: {@link CSVFlushPolicy#whenFull()})
+     *
+     * @param flushPolicy the flush policy
+     */
+    public void setFlushPolicy(@NonNull CSVFlushPolicy flushPolicy) {
+        this.flushPolicy = flushPolicy;
+    }
+
+    /**
+     * Iterator which lazily reads the lines of a csv file and converts them to elements
+     */
+    private class ElementIterator implements Iterator<T> {
+        private final CSVTokenizer tokenizer;
+        private final Supplier<String> text;
+        private final CSVHeader header;
+        private List<String> nextLine;
+        private long row;
+
+        private ElementIterator(CSVTokenizer tokenizer, CSVHeader header) {
+            this.tokenizer = tokenizer;
+            this.text = tokenizer::recordText;
+            this.header = header;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextLine == null) {
+                try {
+                    nextLine = tokenizer.nextRecord();
+                } catch (IOException e) {
+                    throw ExceptionUtils.unchecked(e);
+                }
+            }
+            return nextLine != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            List<String> splitLine = nextLine;
+            nextLine = null;
+            return toElement(splitLine, text, header, row++);
+        }
+    }
+
+    /**
+     * Iterator which lazily scans the records of a memory mapped csv file and converts them to elements
+     */
+    private class MappedElementIterator implements Iterator<T> {
+        private final MappedCSVScanner scanner;
+        private final CSVHeader header;
+        private final BiFunction<MappedCSVScanner, CSVHeader, T> recordToElementFunc;
+        private boolean scanned;
+        private boolean hasNext;
+        private long row;
+
+        private MappedElementIterator(MappedCSVScanner scanner, CSVHeader header, BiFunction<MappedCSVScanner, CSVHeader, T> recordToElementFunc) {
+            this.scanner = scanner;
+            this.header = header;
+            this.recordToElementFunc = recordToElementFunc;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!scanned) {
+                try {
+                    hasNext = scanner.nextRecord();
+                } catch (IOException e) {
+                    throw ExceptionUtils.unchecked(e);
+                }
+                scanned = true;
+            }
+            return hasNext;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            scanned = false;
+            try {
+                return recordToElementFunc.apply(scanner, header);
+            } catch (CSVValueException | NumberFormatException e) {
+                return reject(errorPolicy, scanner.recordText(), row, e);
+            } finally {
+                row++;
+            }
+        }
+    }
+
+    /**
+     * Iterator which lazily reads the records of a memory mapped csv file and reports the position of the next
+     * record every checkpointInterval records
+     */
+    private class CheckpointIterator implements Iterator<T> {
+        private final MappedCSVScanner scanner;
+        private final CSVHeader header;
+        private final long checkpointInterval;
+        private final Consumer<? super CSVPosition> checkpoint;
+        private long row;
+        private long rowsSinceCheckpoint;
+        private boolean scanned;
+        private boolean hasNext;
+
+        private CheckpointIterator(MappedCSVScanner scanner, CSVHeader header, long row, long checkpointInterval, Consumer<? super CSVPosition> checkpoint) {
+            this.scanner = scanner;
+            this.header = header;
+            this.row = row;
+            this.checkpointInterval = checkpointInterval;
+            this.checkpoint = checkpoint;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!scanned) {
+                if (rowsSinceCheckpoint >= checkpointInterval) {
+                    reportCheckpoint();
+                }
+                try {
+                    hasNext = scanner.nextRecord();
+                } catch (IOException e) {
+                    throw ExceptionUtils.unchecked(e);
+                }
+                scanned = true;
+                if (!hasNext && rowsSinceCheckpoint > 0) {
+                    reportCheckpoint();
+                }
+            }
+            return hasNext;
+        }
+
+        private void reportCheckpoint() {
+            checkpoint.accept(CSVPosition.of(scanner.nextOffset(), row));
+            rowsSinceCheckpoint = 0;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            scanned = false;
+            T element = toElement(new ArrayList<>(scanner.values()), scanner::recordText, header, row);
+            row++;
+            rowsSinceCheckpoint++;
+            return element;
         }
-        writer.write(System.lineSeparator());
     }
 
-    private void writeColumn(OutputStreamWriter writer, String s) throws IOException {
-        writer.write(s);
-        writer.write(separator);
+    /**
+     * <p>Pipeline used by {@link CSVProcessor#publish(File, boolean, boolean, Executor)}. The first stage reads and
+     * tokenizes the file and hands batches of lines to the second stage, which converts them to elements and submits
+     * them to the publisher. Both hand-overs are bounded and block if the next stage is behind.</p>
+     */
+    private class Pipeline {
+        private final Batch endOfFile = new Batch(false);
+        /**
+         * The error policy is fixed for the whole pipeline, as the first stage only keeps the text of the lines if
+         * rows are rejected
+         */
+        private final CSVErrorPolicy policy = errorPolicy;
+        private final File csvFile;
+        private final boolean containsColumnDefinition;
+        private final boolean useFileColumnDefinition;
+        private final Executor executor;
+        private final SubmissionPublisher<T> publisher;
+        private final BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(PIPELINE_QUEUE_CAPACITY);
+        private volatile boolean stopped;
+        private volatile Throwable readFailure;
+        /**
+         * Set by the first stage before the first batch is handed over
+         */
+        private CSVHeader header;
+
+        private Pipeline(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition, Executor executor) {
+            this.csvFile = csvFile;
+            this.containsColumnDefinition = containsColumnDefinition;
+            this.useFileColumnDefinition = useFileColumnDefinition;
+            this.executor = executor;
+            this.publisher = new SubmissionPublisher<>(executor, Flow.defaultBufferSize());
+        }
+
+        private void start() {
+            executor.execute(this::readLines);
+            executor.execute(this::convertLines);
+        }
+
+        private void readLines() {
+            try (CSVTokenizer tokenizer = openTokenizer(new FileInputStream(csvFile))) {
+                List<String> fileColumnDefinition = readColumnDefinition(tokenizer, containsColumnDefinition, useFileColumnDefinition);
+                header = createHeader(useFileColumnDefinition ? fileColumnDefinition : columnDefinition);
+                boolean keepText = policy.rejectsRows();
+                Batch batch = new Batch(keepText);
+                List<String> line;
+                while (!stopped && (line = tokenizer.nextRecord()) != null) {
+                    batch.lines.add(line);
+                    if (keepText) {
+                        batch.texts.add(tokenizer.recordText());
+                    }
+                    if (batch.lines.size() == PIPELINE_BATCH_SIZE) {
+                        handOver(batch);
+                        batch = new Batch(keepText);
+                    }
+                }
+                if (!batch.lines.isEmpty()) {
+                    handOver(batch);
+                }
+            } catch (IOException | RuntimeException e) {
+                readFailure = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                readFailure = e;
+            } finally {
+                try {
+                    handOver(endOfFile);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void handOver(Batch batch) throws InterruptedException {
+            while (!stopped && !batches.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                // wait until the next stage took a batch or stopped
+            }
+        }
+
+        private void convertLines() {
+            try {
+                Batch batch;
+                long row = 0;
+                while ((batch = batches.take()) != endOfFile) {
+                    for (int i = 0; i < batch.lines.size(); i++) {
+                        if (publisher.getNumberOfSubscribers() == 0) {
+                            // the subscriber cancelled its subscription
+                            stopped = true;
+                            publisher.close();
+                            return;
+                        }
+                        T element;
+                        try {
+                            element = convert(batch.lines.get(i), header);
+                        } catch (CSVValueException | NumberFormatException e) {
+                            element = reject(policy, batch.texts.isEmpty() ? null : batch.texts.get(i), row, e);
+                        }
+                        row++;
+                        if (isAccepted(element)) {
+                            publisher.submit(element);
+                        }
+                    }
+                }
+                if (readFailure == null) {
+                    publisher.close();
+                } else {
+                    publisher.closeExceptionally(readFailure);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopped = true;
+                publisher.closeExceptionally(e);
+            } catch (RuntimeException e) {
+                stopped = true;
+                publisher.closeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Lines handed over between the stages of a {@link Pipeline} together with their text, if it is kept
+     */
+    private static final class Batch {
+        private final List<List<String>> lines = new ArrayList<>(PIPELINE_BATCH_SIZE);
+        private final List<String> texts;
+
+        private Batch(boolean keepText) {
+            this.texts = keepText ? new ArrayList<>(PIPELINE_BATCH_SIZE) : Collections.emptyList();
+        }
     }
 }
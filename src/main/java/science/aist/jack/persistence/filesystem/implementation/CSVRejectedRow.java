@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * <p>Row of a csv file, which was rejected by the {@link CSVErrorPolicy} of a {@link CSVProcessor}, because it
+ * couldn't be converted to an element.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+@AllArgsConstructor(staticName = "of")
+public final class CSVRejectedRow {
+    /**
+     * number of the row in the file (starting with 0, without the column definition) or -1 if it is unknown, because
+     * the file was read in parallel chunks
+     */
+    private final long row;
+    /**
+     * the text of the row as it is contained in the file (without line break)
+     */
+    private final String line;
+    /**
+     * the reason why the row was rejected
+     */
+    private final String reason;
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import java.io.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+/**
+ * <p>Binary column oriented cache of the elements read from a csv file, which is stored as sidecar file next to the csv
+ * file. Instead of the text, the values of the bound fields are stored per column (primitive values as arrays), so
+ * the elements can be restored from the memory mapped sidecar without tokenizing and parsing the csv file again.</p>
+ * <p>A sidecar is only used if the fingerprint of the reading configuration and the size of the csv file are the same
+ * as when it was written, and either the modification time or the CRC32C checksum of the csv file did not change. So
+ * the csv file is only read again, if it was touched since the sidecar was written. Supported field types are
+ * primitives, their wrappers, {@link String} and enums.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+final class CSVSidecar {
+    static final String EXTENSION = ".jackcache";
+    /**
+     * "JACKCSV" followed by the format version
+     */
+    private static final long MAGIC = 0x4A41434B43535601L;
+    private static final int CHECKSUM_BUFFER_SIZE = 1024 * 1024;
+    private static final Map<Class<?>, Byte> TYPES = Map.ofEntries(
+            Map.entry(boolean.class, (byte) 'Z'), Map.entry(char.class, (byte) 'C'),
+            Map.entry(int.class, (byte) 'I'), Map.entry(long.class, (byte) 'J'),
+            Map.entry(float.class, (byte) 'F'), Map.entry(double.class, (byte) 'D'),
+            Map.entry(Boolean.class, (byte) 'z'), Map.entry(Character.class, (byte) 'c'),
+            Map.entry(Integer.class, (byte) 'i'), Map.entry(Long.class, (byte) 'j'),
+            Map.entry(Float.class, (byte) 'f'), Map.entry(Double.class, (byte) 'd'),
+            Map.entry(String.class, (byte) 'S'));
+    private static final byte ENUM = 'E';
+
+    private CSVSidecar() {
+    }
+
+    /**
+     * @param csvFile the csv file
+     * @return the sidecar file of the given csv file
+     */
+    static Path sidecarOf(File csvFile) {
+        return csvFile.toPath().resolveSibling(csvFile.getName() + EXTENSION);
+    }
+
+    /**
+     * @param fieldType type of a field
+     * @return true iff fields of the given type can be stored in a sidecar
+     */
+    static boolean supports(Class<?> fieldType) {
+        return TYPES.containsKey(fieldType) || fieldType.isEnum();
+    }
+
+    /**
+     * Reads the attributes of the given csv file, which identify its content without reading it
+     *
+     * @param csvFile the csv file
+     * @return size and modification time of the file
+     * @throws IOException if the attributes can't be read
+     */
+    static long[] statOf(File csvFile) throws IOException {
+        Path path = csvFile.toPath();
+        return new long[]{Files.size(path), Files.getLastModifiedTime(path).toMillis()};
+    }
+
+    /**
+     * @param csvFile the csv file
+     * @return CRC32C checksum of the content of the file
+     * @throws IOException if the file can't be read
+     */
+    static long checksumOf(File csvFile) throws IOException {
+        CRC32C checksum = new CRC32C();
+        try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(CHECKSUM_BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                checksum.update(buffer);
+                buffer.clear();
+            }
+        }
+        return checksum.getValue();
+    }
+
+    /**
+     * Reads the elements of the given sidecar, if it matches the csv file and the fingerprint. The content of the csv
+     * file is only read to compare its checksum, if it has the same size but another modification time as when the
+     * sidecar was written.
+     *
+     * @param sidecar       the sidecar file
+     * @param csvFile       the csv file
+     * @param stat          size and modification time of the csv file (see {@link CSVSidecar#statOf(File)})
+     * @param fingerprint   fingerprint of the reading configuration
+     * @param fieldOfColumn returns the accessible field of the element class for a column (null if there is none)
+     * @param constructor   default constructor of the element class with the type ()Object
+     * @return the restored elements or null if there is no matching sidecar
+     * @throws IOException if the sidecar can't be read
+     */
+    static List<Object> read(Path sidecar, File csvFile, long[] stat, String fingerprint, Function<String, Field> fieldOfColumn, MethodHandle constructor) throws IOException {
+        if (!Files.isRegularFile(sidecar)) {
+            return null;
+        }
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(sidecar, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.getLong() != MAGIC || buffer.getLong() != stat[0]) {
+                return null;
+            }
+            long modified = buffer.getLong();
+            long checksum = buffer.getLong();
+            if (!fingerprint.equals(getString(buffer)) || (modified != stat[1] && checksum != checksumOf(csvFile))) {
+                return null;
+            }
+            int rows = buffer.getInt();
+            int columnCount = buffer.getInt();
+            MethodHandle[] setters = new MethodHandle[columnCount];
+            byte[] types = new byte[columnCount];
+            Object[] values = new Object[columnCount];
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            for (int c = 0; c < columnCount; c++) {
+                Field field = fieldOfColumn.apply(getString(buffer));
+                types[c] = buffer.get();
+                if (field == null || typeOf(field.getType()) != types[c]) {
+                    // the element class changed since the sidecar was written
+                    return null;
+                }
+                Class<?> fieldType = field.getType();
+                setters[c] = lookup.unreflectSetter(field)
+                        .asType(MethodType.methodType(void.class, Object.class, fieldType.isPrimitive() ? fieldType : Object.class));
+                values[c] = readColumn(buffer, types[c], fieldType, rows);
+            }
+            return restore(rows, setters, types, values, constructor);
+        } catch (IllegalAccessException | RuntimeException e) {
+            // broken sidecars are treated like missing ones, so the csv file is read again
+            return null;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object readColumn(ByteBuffer buffer, byte type, Class<?> fieldType, int rows) {
+        switch (type) {
+            case 'Z': {
+                boolean[] column = new boolean[rows];
+                for (int r = 0; r < rows; r++) {
+                    column[r] = buffer.get() != 0;
+                }
+                return column;
+            }
+            case 'C': {
+                char[] column = new char[rows];
+                buffer.asCharBuffer().get(column);
+                buffer.position(buffer.position() + rows * Character.BYTES);
+                return column;
+            }
+            case 'I': {
+                int[] column = new int[rows];
+                buffer.asIntBuffer().get(column);
+                buffer.position(buffer.position() + rows * Integer.BYTES);
+                return column;
+            }
+            case 'J': {
+                long[] column = new long[rows];
+                buffer.asLongBuffer().get(column);
+                buffer.position(buffer.position() + rows * Long.BYTES);
+                return column;
+            }
+            case 'F': {
+                float[] column = new float[rows];
+                buffer.asFloatBuffer().get(column);
+                buffer.position(buffer.position() + rows * Float.BYTES);
+                return column;
+            }
+            case 'D': {
+                double[] column = new double[rows];
+                buffer.asDoubleBuffer().get(column);
+                buffer.position(buffer.position() + rows * Double.BYTES);
+                return column;
+            }
+            default: {
+                Object[] column = new Object[rows];
+                for (int r = 0; r < rows; r++) {
+                    column[r] = buffer.get() == 0 ? null : readValue(buffer, type, (Class) fieldType);
+                }
+                return column;
+            }
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object readValue(ByteBuffer buffer, byte type, Class fieldType) {
+        switch (type) {
+            case 'z':
+                return buffer.get() != 0;
+            case 'c':
+                return buffer.getChar();
+            case 'i':
+                return buffer.getInt();
+            case 'j':
+                return buffer.getLong();
+            case 'f':
+                return buffer.getFloat();
+            case 'd':
+                return buffer.getDouble();
+            case ENUM:
+                return Enum.valueOf(fieldType, getString(buffer));
+            default:
+                return getString(buffer);
+        }
+    }
+
+    private static List<Object> restore(int rows, MethodHandle[] setters, byte[] types, Object[] values, MethodHandle constructor) {
+        List<Object> elements = new ArrayList<>(rows);
+        try {
+            for (int r = 0; r < rows; r++) {
+                Object element = (Object) constructor.invokeExact();
+                for (int c = 0; c < setters.length; c++) {
+                    MethodHandle setter = setters[c];
+                    switch (types[c]) {
+                        case 'Z':
+                            setter.invokeExact(element, ((boolean[]) values[c])[r]);
+                            break;
+                        case 'C':
+                            setter.invokeExact(element, ((char[]) values[c])[r]);
+                            break;
+                        case 'I':
+                            setter.invokeExact(element, ((int[]) values[c])[r]);
+                            break;
+                        case 'J':
+                            setter.invokeExact(element, ((long[]) values[c])[r]);
+                            break;
+                        case 'F':
+                            setter.invokeExact(element, ((float[]) values[c])[r]);
+                            break;
+                        case 'D':
+                            setter.invokeExact(element, ((double[]) values[c])[r]);
+                            break;
+                        default:
+                            setter.invokeExact(element, ((Object[]) values[c])[r]);
+                            break;
+                    }
+                }
+                elements.add(element);
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        return elements;
+    }
+
+    /**
+     * Writes the given elements to the sidecar. The sidecar is written to a temporary file first, which is moved to
+     * the sidecar, so concurrent readers never see a partially written sidecar.
+     *
+     * @param sidecar     the sidecar file
+     * @param key         size, modification time (see {@link CSVSidecar#statOf(File)}) and checksum of the csv file
+     * @param fingerprint fingerprint of the reading configuration
+     * @param fields      the fields to store (see {@link CSVSidecar#supports(Class)})
+     * @param elements    the elements read from the csv file
+     * @throws IOException if the sidecar can't be written
+     */
+    static void write(Path sidecar, long[] key, String fingerprint, List<Field> fields, List<?> elements) throws IOException {
+        Path temp = Files.createTempFile(sidecar.toAbsolutePath().getParent(), sidecar.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+                out.writeLong(MAGIC);
+                out.writeLong(key[0]);
+                out.writeLong(key[1]);
+                out.writeLong(key[2]);
+                putString(out, fingerprint);
+                out.writeInt(elements.size());
+                out.writeInt(fields.size());
+                for (Field field : fields) {
+                    byte type = typeOf(field.getType());
+                    putString(out, field.getName());
+                    out.writeByte(type);
+                    for (Object element : elements) {
+                        writeValue(out, type, field.get(element));
+                    }
+                }
+            }
+            try {
+                Files.move(temp, sidecar, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, byte type, Object value) throws IOException {
+        if (Character.isLowerCase(type) || type == 'S' || type == ENUM) {
+            // nullable types are prefixed with a presence flag
+            out.writeBoolean(value != null);
+            if (value == null) {
+                return;
+            }
+        }
+        switch (Character.toUpperCase(type)) {
+            case 'Z':
+                out.writeBoolean((Boolean) value);
+                break;
+            case 'C':
+                out.writeChar((Character) value);
+                break;
+            case 'I':
+                out.writeInt((Integer) value);
+                break;
+            case 'J':
+                out.writeLong((Long) value);
+                break;
+            case 'F':
+                out.writeFloat((Float) value);
+                break;
+            case 'D':
+                out.writeDouble((Double) value);
+                break;
+            case ENUM:
+                putString(out, ((Enum<?>) value).name());
+                break;
+            default:
+                putString(out, (String) value);
+                break;
+        }
+    }
+
+    private static byte typeOf(Class<?> fieldType) {
+        Byte type = TYPES.get(fieldType);
+        if (type != null) {
+            return type;
+        }
+        if (fieldType.isEnum()) {
+            return ENUM;
+        }
+        throw new IllegalArgumentException("Fields of type " + fieldType.getName() + " can't be stored in a sidecar");
+    }
+
+    private static void putString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
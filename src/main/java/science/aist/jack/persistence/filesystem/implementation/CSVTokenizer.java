@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Single pass tokenizer for csv files. The characters of the underlying reader are scanned exactly once and the
+ * bounds of the columns are collected in a reusable buffer, so only the resulting column values are allocated.</p>
+ * <p>Every column is trimmed (see {@link String#trim()}) and empty columns (also trailing ones) are kept, so a line
+ * with n separators always results in n + 1 columns. Lines are terminated by "\n", "\r" or "\r\n".</p>
+ * <p>Quoting follows RFC 4180: a column which starts with a double quote may contain separators, line breaks and
+ * doubled double quotes (representing one double quote). The content of a quoted column is not trimmed. Quotes
+ * inside of an unquoted column are kept as they are.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+final class CSVTokenizer implements Closeable {
+    static final char QUOTE = '"';
+    private static final String QUOTE_STRING = String.valueOf(QUOTE);
+    private static final String ESCAPED_QUOTE = QUOTE_STRING + QUOTE_STRING;
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int UNQUOTED = 0;
+    private static final int QUOTED = 1;
+    private static final int QUOTE_IN_QUOTED = 2;
+    private static final int AFTER_QUOTED = 3;
+
+    private final Reader reader;
+    private final char separator;
+    private char[] buffer;
+    private int position;
+    private int limit;
+    private int recordStart;
+    /**
+     * End index of the current record (without the line break)
+     */
+    private int recordEnd;
+    private boolean skipLineFeed;
+    /**
+     * Start and end indices (relative to recordStart) of the columns of the current record
+     */
+    private int[] columnBounds = new int[32];
+    private int columnCount;
+
+    CSVTokenizer(Reader reader, char separator) {
+        this(reader, separator, DEFAULT_BUFFER_SIZE);
+    }
+
+    CSVTokenizer(Reader reader, char separator, int bufferSize) {
+        this.reader = reader;
+        this.separator = separator;
+        this.buffer = new char[Math.max(bufferSize, 16)];
+    }
+
+    /**
+     * Reads the next record of the underlying reader
+     *
+     * @return the trimmed columns of the next record or null if the end of the reader is reached
+     * @throws IOException if the reader fails
+     */
+    List<String> nextRecord() throws IOException {
+        recordStart = position;
+        if (skipLineFeed) {
+            skipLineFeed = false;
+            if ((position < limit || fill()) && buffer[position] == '\n') {
+                recordStart = ++position;
+            }
+        }
+
+        columnCount = 0;
+        int state = UNQUOTED;
+        // relative to recordStart, as filling the buffer may move the current record
+        int fieldStart = 0;
+        int quoteEnd = 0;
+        boolean escapedQuotes = false;
+        while (true) {
+            if (position == limit && !fill()) {
+                if (position == recordStart) {
+                    return null;
+                }
+                if (state == UNQUOTED) {
+                    addColumn(recordStart + fieldStart, position);
+                } else {
+                    // a quoted field which is not closed until the end of the input contains the rest of the input
+                    int end;
+                    if (state == QUOTED) {
+                        end = position;
+                    } else if (state == QUOTE_IN_QUOTED) {
+                        end = position - 1;
+                    } else {
+                        end = recordStart + quoteEnd;
+                    }
+                    addQuotedColumn(recordStart + fieldStart, end, escapedQuotes);
+                }
+                recordEnd = position;
+                return buildRecord();
+            }
+
+            // scan the available characters using locals, so the loops do not touch any fields
+            char[] chars = buffer;
+            char sep = separator;
+            int base = recordStart;
+            int pos = position;
+            int end = limit;
+            if (state == UNQUOTED) {
+                while (pos < end) {
+                    char c = chars[pos];
+                    if (c == sep) {
+                        addColumn(base + fieldStart, pos);
+                        fieldStart = ++pos - base;
+                    } else if (c == '\n' || c == '\r') {
+                        addColumn(base + fieldStart, pos);
+                        recordEnd = pos;
+                        position = pos + 1;
+                        skipLineFeed = c == '\r';
+                        return buildRecord();
+                    } else if (c == QUOTE && isBlank(chars, base + fieldStart, pos)) {
+                        state = QUOTED;
+                        escapedQuotes = false;
+                        fieldStart = ++pos - base;
+                        break;
+                    } else {
+                        pos++;
+                    }
+                }
+            } else if (state == QUOTED) {
+                while (pos < end) {
+                    if (chars[pos++] == QUOTE) {
+                        state = QUOTE_IN_QUOTED;
+                        break;
+                    }
+                }
+            } else if (state == QUOTE_IN_QUOTED) {
+                if (chars[pos] == QUOTE) {
+                    // doubled quote inside of a quoted field
+                    escapedQuotes = true;
+                    state = QUOTED;
+                    pos++;
+                } else {
+                    quoteEnd = pos - 1 - base;
+                    state = AFTER_QUOTED;
+                }
+            } else {
+                // characters between the closing quote and the next separator are ignored
+                while (pos < end) {
+                    char c = chars[pos];
+                    if (c == sep) {
+                        addQuotedColumn(base + fieldStart, base + quoteEnd, escapedQuotes);
+                        state = UNQUOTED;
+                        fieldStart = ++pos - base;
+                        break;
+                    } else if (c == '\n' || c == '\r') {
+                        addQuotedColumn(base + fieldStart, base + quoteEnd, escapedQuotes);
+                        recordEnd = pos;
+                        position = pos + 1;
+                        skipLineFeed = c == '\r';
+                        return buildRecord();
+                    } else {
+                        pos++;
+                    }
+                }
+            }
+            position = pos;
+        }
+    }
+
+    /**
+     * Returns the text of the record returned by the last call of {@link CSVTokenizer#nextRecord()} as it is contained
+     * in the input (without the line break)
+     *
+     * @return the text of the current record
+     */
+    String recordText() {
+        return new String(buffer, recordStart, recordEnd - recordStart);
+    }
+
+    private static boolean isBlank(char[] chars, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (chars[i] > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addColumn(int from, int to) {
+        while (from < to && buffer[from] <= ' ') {
+            from++;
+        }
+        while (to > from && buffer[to - 1] <= ' ') {
+            to--;
+        }
+        addBounds(from - recordStart, to - recordStart);
+    }
+
+    private void addQuotedColumn(int from, int to, boolean escapedQuotes) {
+        // columns containing doubled quotes are marked with a negative start index
+        addBounds(escapedQuotes ? -(from - recordStart) - 1 : from - recordStart, to - recordStart);
+    }
+
+    private void addBounds(int from, int to) {
+        int index = columnCount * 2;
+        if (index + 1 >= columnBounds.length) {
+            columnBounds = Arrays.copyOf(columnBounds, columnBounds.length * 2);
+        }
+        columnBounds[index] = from;
+        columnBounds[index + 1] = to;
+        columnCount++;
+    }
+
+    private List<String> buildRecord() {
+        String[] columns = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            int from = columnBounds[i * 2];
+            int to = columnBounds[i * 2 + 1];
+            if (from < 0) {
+                from = -from - 1;
+                columns[i] = new String(buffer, recordStart + from, to - from).replace(ESCAPED_QUOTE, QUOTE_STRING);
+            } else {
+                columns[i] = from == to ? "" : new String(buffer, recordStart + from, to - from);
+            }
+        }
+        return Arrays.asList(columns);
+    }
+
+    /**
+     * Moves the current record to the beginning of the buffer (or grows the buffer if the record fills it) and reads
+     * the next characters
+     *
+     * @return true iff at least one new character is available
+     * @throws IOException if the reader fails
+     */
+    private boolean fill() throws IOException {
+        int recordLength = limit - recordStart;
+        if (recordLength == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        } else if (recordStart > 0) {
+            System.arraycopy(buffer, recordStart, buffer, 0, recordLength);
+        }
+        position -= recordStart;
+        recordStart = 0;
+        limit = recordLength;
+
+        int read;
+        do {
+            read = reader.read(buffer, limit, buffer.length - limit);
+        } while (read == 0);
+        if (read < 0) {
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import science.aist.jack.math.NumberParser;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+
+/**
+ * <p>Inference of the {@link CSVColumnType} of csv values. The types form a lattice, in which INT is widened to LONG
+ * and DOUBLE, and every other conflict is widened to STRING.</p>
+ * <p>Timestamps are ISO-8601 dates with an optional time (separated by 'T' or a space) and an optional offset
+ * ('Z' or +hh:mm), e.g. "2020-01-31", "2020-01-31 12:30" or "2020-01-31T12:30:15.250+01:00". Timestamps without
+ * offset are interpreted as UTC.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+final class CSVTypeInference {
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final long INVALID = Long.MIN_VALUE;
+
+    private CSVTypeInference() {
+    }
+
+    /**
+     * @param value the value of a column
+     * @return the narrowest type which can store the value or null if the value is empty
+     */
+    static CSVColumnType infer(CharSequence value) {
+        if (value.length() == 0) {
+            return null;
+        }
+        if (NumberParser.isInt(value)) {
+            return CSVColumnType.INT;
+        }
+        if (NumberParser.isLong(value)) {
+            return CSVColumnType.LONG;
+        }
+        if (NumberParser.isDecimal(value)) {
+            return CSVColumnType.DOUBLE;
+        }
+        if (isBoolean(value)) {
+            return CSVColumnType.BOOLEAN;
+        }
+        if (parseTimestamp(value) != INVALID) {
+            return CSVColumnType.TIMESTAMP;
+        }
+        return CSVColumnType.STRING;
+    }
+
+    /**
+     * @param a a type (null if it is unknown)
+     * @param b another type (null if it is unknown)
+     * @return the narrowest type, which can store the values of both types
+     */
+    static CSVColumnType widen(CSVColumnType a, CSVColumnType b) {
+        if (a == null || a == b) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (isNumeric(a) && isNumeric(b)) {
+            return a == CSVColumnType.DOUBLE || b == CSVColumnType.DOUBLE ? CSVColumnType.DOUBLE : CSVColumnType.LONG;
+        }
+        return CSVColumnType.STRING;
+    }
+
+    private static boolean isNumeric(CSVColumnType type) {
+        return type == CSVColumnType.INT || type == CSVColumnType.LONG || type == CSVColumnType.DOUBLE;
+    }
+
+    /**
+     * @param value the value to check
+     * @return true iff the value is "true" or "false" (ignoring the case)
+     */
+    static boolean isBoolean(CharSequence value) {
+        return equalsIgnoreCase(value, "true") || equalsIgnoreCase(value, "false");
+    }
+
+    /**
+     * @param value the value to parse
+     * @return true iff the value is "true" (ignoring the case)
+     */
+    static boolean parseBoolean(CharSequence value) {
+        return equalsIgnoreCase(value, "true");
+    }
+
+    private static boolean equalsIgnoreCase(CharSequence value, String expected) {
+        if (value.length() != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (Character.toLowerCase(value.charAt(i)) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param value        the value to parse
+     * @param defaultValue value returned if the value is not a timestamp
+     * @return the timestamp as milliseconds since the epoch
+     */
+    static long parseTimestamp(CharSequence value, long defaultValue) {
+        long timestamp = parseTimestamp(value);
+        return timestamp == INVALID ? defaultValue : timestamp;
+    }
+
+    /**
+     * @param value the value to check
+     * @return true iff the value is a timestamp
+     */
+    static boolean isTimestamp(CharSequence value) {
+        return parseTimestamp(value) != INVALID;
+    }
+
+    @SuppressWarnings("java:S3776") // parser is kept in one method for performance reasons
+    private static long parseTimestamp(CharSequence s) {
+        int length = s.length();
+        if (length < 10 || s.charAt(4) != '-' || s.charAt(7) != '-') {
+            return INVALID;
+        }
+        int year = digits(s, 0, 4);
+        int month = digits(s, 5, 2);
+        int day = digits(s, 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+            return INVALID;
+        }
+        long millis = LocalDate.of(year, month, day).toEpochDay() * MILLIS_PER_DAY;
+        int pos = 10;
+        if (pos == length) {
+            return millis;
+        }
+
+        char separator = s.charAt(pos);
+        if ((separator != 'T' && separator != ' ') || length < pos + 6 || s.charAt(pos + 3) != ':') {
+            return INVALID;
+        }
+        int hour = digits(s, pos + 1, 2);
+        int minute = digits(s, pos + 4, 2);
+        int second = 0;
+        int milliseconds = 0;
+        pos += 6;
+        if (pos < length && s.charAt(pos) == ':') {
+            second = pos + 3 <= length ? digits(s, pos + 1, 2) : -1;
+            pos += 3;
+            if (pos < length && s.charAt(pos) == '.') {
+                int fractionStart = ++pos;
+                while (pos < length && Character.isDigit(s.charAt(pos))) {
+                    if (pos - fractionStart < 3) {
+                        milliseconds = milliseconds * 10 + (s.charAt(pos) - '0');
+                    }
+                    pos++;
+                }
+                if (pos == fractionStart) {
+                    return INVALID;
+                }
+                for (int i = pos - fractionStart; i < 3; i++) {
+                    milliseconds *= 10;
+                }
+            }
+        }
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID;
+        }
+        millis += ((hour * 60L + minute) * 60L + second) * 1000L + milliseconds;
+
+        if (pos < length && s.charAt(pos) == 'Z') {
+            pos++;
+        } else if (pos < length && (s.charAt(pos) == '+' || s.charAt(pos) == '-')) {
+            if (length != pos + 6 || s.charAt(pos + 3) != ':') {
+                return INVALID;
+            }
+            int offsetHours = digits(s, pos + 1, 2);
+            int offsetMinutes = digits(s, pos + 4, 2);
+            if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+                return INVALID;
+            }
+            long offset = (offsetHours * 60L + offsetMinutes) * 60_000L;
+            millis -= s.charAt(pos) == '+' ? offset : -offset;
+            pos += 6;
+        }
+        return pos == length ? millis : INVALID;
+    }
+
+    /**
+     * @return the value of the given number of decimal digits or -1 if they are not all digits
+     */
+    private static int digits(CharSequence s, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
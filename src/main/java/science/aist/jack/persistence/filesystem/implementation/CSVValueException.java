@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+/**
+ * <p>Exception signalling that a value of a csv row can't be converted. Conversion functions of a
+ * {@link CSVProcessor} throw it to reject the row, which is then handled according to the {@link CSVErrorPolicy}.
+ * The exception doesn't capture a stack trace, as it is expected to be thrown frequently for dirty files.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public class CSVValueException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param message the detail message
+     */
+    public CSVValueException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
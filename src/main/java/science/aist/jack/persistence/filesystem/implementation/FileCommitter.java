@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import lombok.CustomLog;
+import science.aist.jack.exception.ExceptionUtils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * <p>Moves completely written temporary files into place according to a {@link FileDurabilityPolicy}.</p>
+ * <p>Updates replace the target atomically ({@link StandardCopyOption#ATOMIC_MOVE}). Creates must not replace an
+ * existing file, so the temporary file is hard linked to the target, which fails atomically if the target exists;
+ * if the file system does not support hard links the target is claimed by creating it exclusively instead. In both
+ * cases a new key is chosen if the target exists. Without hard links, readers can see the claimed target as an empty
+ * file until the temporary file replaces it.</p>
+ * <p>If the policy syncs, every writer forces its own temporary file before it is committed, so the forces of
+ * concurrent writers run in parallel. Group commits are coordinated without a background thread: the first writer,
+ * whose file is forced, becomes the leader. It waits until the other writers, which are forcing their files at this
+ * moment, joined the group (at most for the group commit interval), then moves the files of the group into place and
+ * forces every affected directory once. Writes, which join while the leader commits, are committed by the leader
+ * afterwards. The other writers wait for the leader.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+@CustomLog
+final class FileCommitter {
+    private final FileDurabilityPolicy policy;
+    private final Function<String, Path> pathOfKey;
+    private final Supplier<String> keyGenerator;
+    private final Object lock = new Object();
+    private List<PendingWrite> group = new ArrayList<>();
+    /**
+     * Number of writers, which are forcing their temporary files and will join the group afterwards
+     */
+    private int forcing;
+    private boolean committing;
+
+    /**
+     * @param policy       the durability policy
+     * @param pathOfKey    resolves the target file of a key (and creates its directory if necessary)
+     * @param keyGenerator generates new keys for creates, which conflict with an existing file
+     */
+    FileCommitter(FileDurabilityPolicy policy, Function<String, Path> pathOfKey, Supplier<String> keyGenerator) {
+        this.policy = policy;
+        this.pathOfKey = pathOfKey;
+        this.keyGenerator = keyGenerator;
+    }
+
+    FileDurabilityPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Moves the given temporary file into place
+     *
+     * @param temp   completely written temporary file in the directory of the target
+     * @param key    key of the target
+     * @param create true if the target must not exist yet (a new key is chosen if it exists), false if it is replaced
+     * @return the key the file was stored with
+     */
+    String commit(Path temp, String key, boolean create) {
+        PendingWrite write = new PendingWrite(temp, key, create);
+        if (policy.getGroupCommitNanos() == 0) {
+            if (forceQuietly(write)) {
+                commit(List.of(write));
+            }
+        } else {
+            synchronized (lock) {
+                forcing++;
+            }
+            boolean forced = forceQuietly(write);
+            boolean leader;
+            synchronized (lock) {
+                forcing--;
+                if (forced) {
+                    group.add(write);
+                }
+                leader = forced && !committing;
+                committing |= leader;
+                lock.notifyAll();
+            }
+            if (leader) {
+                commitGroups();
+            }
+        }
+        try {
+            return write.result.join();
+        } catch (CompletionException e) {
+            throw ExceptionUtils.unchecked(e.getCause());
+        }
+    }
+
+    /**
+     * Commits the groups as leader until no more writes are waiting
+     */
+    private void commitGroups() {
+        boolean interrupted = false;
+        while (true) {
+            List<PendingWrite> writes;
+            synchronized (lock) {
+                long deadline = System.nanoTime() + policy.getGroupCommitNanos();
+                for (long remaining = policy.getGroupCommitNanos(); forcing > 0 && remaining > 0; remaining = deadline - System.nanoTime()) {
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (group.isEmpty()) {
+                    committing = false;
+                    break;
+                }
+                writes = group;
+                group = new ArrayList<>();
+            }
+            commit(writes);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Forces the temporary file of the write, if the policy syncs
+     *
+     * @return true if the file was forced, false if the write failed
+     */
+    private boolean forceQuietly(PendingWrite write) {
+        if (policy.isSync()) {
+            try {
+                force(write.temp);
+            } catch (IOException e) {
+                write.fail(e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the forced temporary files into place and forces their directories (if the policy syncs). The result of
+     * every write is completed with its key or the failure.
+     *
+     * @param writes the writes to commit
+     */
+    private void commit(List<PendingWrite> writes) {
+        List<PendingWrite> moved = new ArrayList<>(writes.size());
+        List<String> keys = new ArrayList<>(writes.size());
+        Set<Path> directories = new LinkedHashSet<>();
+        for (PendingWrite write : writes) {
+            try {
+                String key = write.key;
+                Path target = pathOfKey.apply(key);
+                if (write.create) {
+                    while (!link(write.temp, target)) {
+                        key = keyGenerator.get();
+                        target = pathOfKey.apply(key);
+                    }
+                } else {
+                    move(write.temp, target);
+                }
+                moved.add(write);
+                keys.add(key);
+                directories.add(target.getParent());
+            } catch (IOException | RuntimeException e) {
+                write.fail(e);
+            }
+        }
+        if (policy.isSync()) {
+            directories.forEach(FileCommitter::forceDirectory);
+        }
+        for (int i = 0; i < moved.size(); i++) {
+            moved.get(i).result.complete(keys.get(i));
+        }
+    }
+
+    /**
+     * Moves the temporary file to the target, if the target does not exist
+     *
+     * @return true if the file was moved, false if the target exists
+     */
+    private static boolean link(Path temp, Path target) throws IOException {
+        try {
+            Files.createLink(target, temp);
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (UnsupportedOperationException e) {
+            return claimAndMove(temp, target);
+        } catch (FileSystemException e) {
+            if (!isOperationNotSupported(e)) {
+                throw e;
+            }
+            return claimAndMove(temp, target);
+        }
+        // the target is already committed, so a remaining temporary file is only reported
+        deleteQuietly(temp);
+        return true;
+    }
+
+    /**
+     * Fallback of {@link FileCommitter#link(Path, Path)} for file systems without hard links: claims the target
+     * exclusively and replaces the (empty) claimed file
+     */
+    private static boolean claimAndMove(Path temp, Path target) throws IOException {
+        try {
+            Files.createFile(target);
+        } catch (FileAlreadyExistsException exists) {
+            return false;
+        }
+        move(temp, target);
+        return true;
+    }
+
+    /**
+     * @return true if the file system reported that it does not support the operation (e.g. hard links on FAT)
+     */
+    private static boolean isOperationNotSupported(FileSystemException e) {
+        return e.getClass() == FileSystemException.class && e.getReason() != null
+                && e.getReason().toLowerCase(Locale.ROOT).contains("not supported");
+    }
+
+    private static void move(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void force(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // directories can't be opened on every platform (e.g. Windows), where the rename is durable anyway
+            log.debug("Directory " + directory + " could not be forced: " + e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Temporary file " + file + " could not be deleted: " + e.getMessage());
+        }
+    }
+
+    private static final class PendingWrite {
+        private final Path temp;
+        private final String key;
+        private final boolean create;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+
+        private PendingWrite(Path temp, String key, boolean create) {
+            this.temp = temp;
+            this.key = key;
+            this.create = create;
+        }
+
+        private void fail(Throwable failure) {
+            deleteQuietly(temp);
+            result.completeExceptionally(failure);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Policy which decides when the files written by a {@link GenericFileStorage} are forced to the storage device.
+ * Independent of the policy every file is written to a temporary file first and then atomically moved into place, so
+ * a crash of the process never leaves a partially written object. The policy decides whether a completed write
+ * survives a crash of the operating system or a power loss: with {@link FileDurabilityPolicy#none()} the content of the
+ * temporary file may not be on the device yet when it is renamed, so the object can be empty or truncated after such
+ * a crash.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public final class FileDurabilityPolicy {
+    private static final FileDurabilityPolicy NONE = new FileDurabilityPolicy(false, 0);
+    private static final FileDurabilityPolicy PER_WRITE = new FileDurabilityPolicy(true, 0);
+
+    private final boolean sync;
+    private final long groupCommitNanos;
+
+    private FileDurabilityPolicy(boolean sync, long groupCommitNanos) {
+        this.sync = sync;
+        this.groupCommitNanos = groupCommitNanos;
+    }
+
+    /**
+     * @return policy which never forces the files, so they are written to the device whenever the operating system
+     * decides to
+     */
+    public static FileDurabilityPolicy none() {
+        return NONE;
+    }
+
+    /**
+     * @return policy which forces every file and its directory before the write returns
+     */
+    public static FileDurabilityPolicy perWrite() {
+        return PER_WRITE;
+    }
+
+    /**
+     * Policy, which commits concurrent writes together. Every writer forces its own file, then the files of all
+     * writers, which finished forcing, are moved into place together and every affected directory is forced once
+     * for the whole group instead of once per write. Every write still waits until it is durable. A single writer
+     * behaves like {@link FileDurabilityPolicy#perWrite()}; the directory forces are only shared by concurrent writers
+     * to the same directories. The written files become visible when their group is committed.
+     *
+     * @param intervalMillis maximum time in milliseconds a group waits for concurrent writers, which are still forcing
+     *                       their files
+     * @return the group commit policy
+     */
+    public static FileDurabilityPolicy groupCommit(long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Group commit interval must be positive");
+        }
+        return new FileDurabilityPolicy(true, TimeUnit.MILLISECONDS.toNanos(intervalMillis));
+    }
+
+    /**
+     * @return true iff the written files are forced to the device
+     */
+    boolean isSync() {
+        return sync;
+    }
+
+    /**
+     * @return the group commit interval in nanoseconds (0 if every write is committed on its own)
+     */
+    long getGroupCommitNanos() {
+        return groupCommitNanos;
+    }
+}
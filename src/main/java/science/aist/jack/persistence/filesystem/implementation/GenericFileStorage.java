@@ -10,7 +10,10 @@
 package science.aist.jack.persistence.filesystem.implementation;
 
 import lombok.CustomLog;
+import lombok.NonNull;
 import science.aist.jack.exception.ExceptionUtils;
+import science.aist.jack.persistence.core.Codec;
+import science.aist.jack.persistence.core.Codecs;
 import science.aist.jack.persistence.core.Storage;
 import science.aist.jack.persistence.filesystem.AbstractFileStorage;
 
@@ -22,10 +25,18 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * <p>Description: Generic Implementation of the AbstractFileStorage</p>
+ * <p>The objects are written using a {@link Codec}, which is java serialization by default. Every write goes to a
+ * temporary file ("." + key + ... + ".tmp") in the directory of the object, which is moved into place atomically
+ * according to the {@link FileDurabilityPolicy}.</p>
  *
  * @author Christoph Praschl
  * @since 2.0
@@ -33,7 +44,11 @@ import java.util.stream.Stream;
 @SuppressWarnings("unused")
 @CustomLog
 public class GenericFileStorage<V extends Serializable> extends AbstractFileStorage<String, V> {
+    private static final int BULK_READ_BATCH_SIZE = 256;
+    private static final String TEMP_EXTENSION = ".tmp";
     private final Class<V> clazz;
+    private final Codec<V> codec;
+    private volatile FileCommitter committer;
 
     public GenericFileStorage(Class<V> clazz) {
         this(clazz, ".ser");
@@ -44,8 +59,42 @@ public class GenericFileStorage<V extends Serializable> extends AbstractFileStor
     }
 
     public GenericFileStorage(Class<V> clazz, String fileExtension, String subfolder) {
-        super(File.separator + subfolder, fileExtension);
+        this(clazz, fileExtension, subfolder, 0);
+    }
+
+    /**
+     * @param clazz         class of the stored objects
+     * @param fileExtension extension of the stored files
+     * @param subfolder     name of the storage folder
+     * @param shardLevels   number of nested shard directories (0 = every file is stored in the storage folder, see
+     *                      {@link AbstractFileStorage})
+     */
+    public GenericFileStorage(Class<V> clazz, String fileExtension, String subfolder, int shardLevels) {
+        this(clazz, fileExtension, subfolder, shardLevels, Codecs.javaSerialization(clazz));
+    }
+
+    /**
+     * @param clazz         class of the stored objects
+     * @param fileExtension extension of the stored files
+     * @param codec         codec used to write and read the stored objects (e.g. {@link Codecs#binary(Class)})
+     */
+    public GenericFileStorage(Class<V> clazz, String fileExtension, Codec<V> codec) {
+        this(clazz, fileExtension, File.separator + clazz.getSimpleName(), 0, codec);
+    }
+
+    /**
+     * @param clazz         class of the stored objects
+     * @param fileExtension extension of the stored files
+     * @param subfolder     name of the storage folder
+     * @param shardLevels   number of nested shard directories (0 = every file is stored in the storage folder, see
+     *                      {@link AbstractFileStorage})
+     * @param codec         codec used to write and read the stored objects (default: java serialization)
+     */
+    public GenericFileStorage(Class<V> clazz, String fileExtension, String subfolder, int shardLevels, @NonNull Codec<V> codec) {
+        super(File.separator + subfolder, fileExtension, "aist", shardLevels);
         this.clazz = clazz;
+        this.codec = codec;
+        this.committer = createCommitter(FileDurabilityPolicy.none());
     }
 
     /**
@@ -85,25 +134,65 @@ public class GenericFileStorage<V extends Serializable> extends AbstractFileStor
      */
     @Override
     public String create(V value, String suggestedKey) {
-        String filePath = buildPath(suggestedKey);
-        File file = new File(filePath);
+        String key = write(value, suggestedKey, true);
+        log.info(buildPath(key));
+        return key;
+    }
 
-        // check if file already exists
-        // if so generate new key and call recursively
-        if (file.exists()) {
-            return create(value, generateStringToken());
+    /**
+     * Writes the value to a temporary file next to the target file, which is then moved into place by the committer
+     *
+     * @param value  Object which should be stored
+     * @param key    Key of the object
+     * @param create true if an existing file must not be replaced (a new key is chosen instead)
+     * @return The key of the stored object
+     */
+    private String write(V value, String key, boolean create) {
+        String filePath = buildPath(key);
+        createShardDirectories(filePath);
+        Path temp = Paths.get(filePath).resolveSibling("." + key + "." + generateStringToken() + TEMP_EXTENSION);
+        try (OutputStream os = new FileOutputStream(temp.toFile());
+             OutputStream buffer = new BufferedOutputStream(os)) {
+            codec.encode(value, buffer);
+        } catch (IOException | RuntimeException ex) {
+            deleteQuietly(temp);
+            throw ExceptionUtils.unchecked(ex);
         }
+        return committer.commit(temp, key, create);
+    }
 
-        log.info(file.getPath());
-
-        try (OutputStream os = new FileOutputStream(filePath);
-             OutputStream buffer = new BufferedOutputStream(os);
-             ObjectOutput output = new ObjectOutputStream(buffer)) {
-            output.writeObject(value);
-        } catch (IOException ex) {
-            throw ExceptionUtils.unchecked(ex);
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Temporary file " + file + " could not be deleted: " + e.getMessage());
         }
-        return suggestedKey;
+    }
+
+    /**
+     * Sets the policy, which decides when written objects are forced to the storage device (default:
+     * {@link FileDurabilityPolicy#none()}). Independent of the policy objects are written to a temporary file, which is
+     * atomically moved into place, so a crash never leaves a partially written object.
+     *
+     * @param durabilityPolicy the durability policy
+     */
+    public void setDurabilityPolicy(@NonNull FileDurabilityPolicy durabilityPolicy) {
+        this.committer = createCommitter(durabilityPolicy);
+    }
+
+    /**
+     * @return the policy, which decides when written objects are forced to the storage device
+     */
+    public FileDurabilityPolicy getDurabilityPolicy() {
+        return committer.getPolicy();
+    }
+
+    private FileCommitter createCommitter(FileDurabilityPolicy durabilityPolicy) {
+        return new FileCommitter(durabilityPolicy, key -> {
+            String filePath = buildPath(key);
+            createShardDirectories(filePath);
+            return Paths.get(filePath);
+        }, this::generateStringToken);
     }
 
     /**
@@ -114,9 +203,8 @@ public class GenericFileStorage<V extends Serializable> extends AbstractFileStor
      */
     private V readFileToObject(String filepath) {
         try (InputStream file = new FileInputStream(filepath);
-             InputStream buffer = new BufferedInputStream(file);
-             ObjectInput input = new ObjectInputStream(buffer)) {
-            return clazz.cast(input.readObject());
+             InputStream buffer = new BufferedInputStream(file)) {
+            return codec.decode(buffer);
         } catch (Exception ex) {
             log.error(ex.getMessage(), ex);
             return null;
@@ -135,26 +223,95 @@ public class GenericFileStorage<V extends Serializable> extends AbstractFileStor
     }
 
     /**
-     * Method for reading all objects managed by the storage
+     * Method for reading all objects managed by the storage. Files, which can't be read, are logged and skipped.
      *
      * @return Collection of all managed objects
      */
     public Collection<V> read() {
         List<V> l = new ArrayList<>();
-        try {
-            try (Stream<Path> paths = Files.walk(Paths.get(completePath))) {
-                paths.filter(Files::isRegularFile).forEach(path -> {
-                    V value = readFileToObject(path.toString());
-                    l.add(value);
-                });
-            }
-        } catch (IOException e) {
+        try (Stream<Path> paths = storedFiles()) {
+            paths.map(path -> readFileToObject(path.toString()))
+                    .filter(Objects::nonNull)
+                    .forEach(l::add);
+        } catch (IOException | UncheckedIOException e) {
             log.error(e.getMessage(), e);
-            return l;
         }
         return l;
     }
 
+    /**
+     * Method for lazily reading all objects managed by the storage. The files are only read, when the next object of
+     * the stream is requested, so the objects don't have to fit into memory at once. Files, which can't be read, are
+     * logged and skipped.
+     *
+     * @return stream of all managed objects, which must be closed to release the underlying directory streams
+     */
+    public Stream<V> stream() {
+        try {
+            return storedFiles()
+                    .map(path -> readFileToObject(path.toString()))
+                    .filter(Objects::nonNull);
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
+
+    /**
+     * Method for reading all objects managed by the storage in parallel. The files are listed first and then read and
+     * decoded in batches by the given executor. The objects are returned in the order of the files in the storage
+     * folder. Files, which can't be read, are logged and skipped.
+     *
+     * @param executor executor used to read the batches of files
+     * @return Collection of all managed objects
+     */
+    public Collection<V> readParallel(@NonNull Executor executor) {
+        List<Path> files;
+        try (Stream<Path> paths = storedFiles()) {
+            files = paths.collect(Collectors.toList());
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+
+        List<CompletableFuture<List<V>>> batches = new ArrayList<>();
+        for (int from = 0; from < files.size(); from += BULK_READ_BATCH_SIZE) {
+            List<Path> batch = files.subList(from, Math.min(files.size(), from + BULK_READ_BATCH_SIZE));
+            batches.add(CompletableFuture.supplyAsync(() -> readFilesToObjects(batch), executor));
+        }
+
+        List<V> result = new ArrayList<>(files.size());
+        for (CompletableFuture<List<V>> batch : batches) {
+            try {
+                result.addAll(batch.join());
+            } catch (CompletionException e) {
+                throw ExceptionUtils.unchecked(e.getCause());
+            }
+        }
+        return result;
+    }
+
+    private List<V> readFilesToObjects(List<Path> files) {
+        List<V> values = new ArrayList<>(files.size());
+        for (Path file : files) {
+            V value = readFileToObject(file.toString());
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Lists the stored files using the attributes read while the directories are walked, so no additional file
+     * system call is needed per file
+     *
+     * @return stream of the stored files, which must be closed
+     * @throws IOException if the storage folder can't be read
+     */
+    private Stream<Path> storedFiles() throws IOException {
+        return Files.find(Paths.get(completePath), Integer.MAX_VALUE,
+                (path, attributes) -> attributes.isRegularFile() && path.getFileName().toString().endsWith(fileExtension));
+    }
+
     /**
      * Method for updating the stored object at a given key
      *
@@ -164,18 +321,9 @@ public class GenericFileStorage<V extends Serializable> extends AbstractFileStor
      */
     @Override
     public boolean update(String key, V value) {
-        String path = buildPath(key);
-        File file = new File(path);
-        if (!file.exists()) return false;
-
-        try (OutputStream os = new FileOutputStream(file);
-             OutputStream buffer = new BufferedOutputStream(os);
-             ObjectOutput output = new ObjectOutputStream(buffer)) {
-            output.writeObject(value);
-            return true;
-        } catch (IOException ex) {
-            throw ExceptionUtils.unchecked(ex);
-        }
+        if (!new File(buildPath(key)).exists()) return false;
+        write(value, key, false);
+        return true;
     }
 
     /**
@@ -0,0 +1,749 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import lombok.CustomLog;
+import lombok.NonNull;
+import science.aist.jack.exception.ExceptionUtils;
+import science.aist.jack.persistence.core.Codec;
+import science.aist.jack.persistence.filesystem.AbstractFileStorage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * <p>Storage, which appends the objects as records to segment files instead of storing every object in its own file.
+ * An in-memory index maps every key to the location of its latest record, so a read is a single positional read and
+ * a create, update or delete is a single append to a write buffer. When the active segment reaches the maximum segment
+ * size a new segment is started.</p>
+ * <p>Updates and deletes leave dead records in the older segments. {@link LogStructuredStorage#compact()} copies the
+ * live records of segments, which are mostly dead, to the active segment and deletes the old segment files. It can be
+ * run in the background by {@link LogStructuredStorage#setCompactionExecutor(Executor)}.</p>
+ * <p>Every record is protected by a CRC32C checksum. When the storage is opened, the index is rebuilt by scanning the
+ * segments, and a partially written record at the end of the last segment (e.g. after a crash) is truncated. Older
+ * segments are forced to the storage device before a new segment is started, so an invalid record in one of them is
+ * reported as {@link java.io.StreamCorruptedException} instead of being truncated. Records
+ * are buffered, so they are only written to the file when the buffer is full, when they are read, or on
+ * {@link LogStructuredStorage#flush()} and {@link LogStructuredStorage#close()}. Use
+ * {@link LogStructuredStorage#sync()} to force them to the storage device.</p>
+ * <p>Record format: int length of the rest of the record, byte type (put or delete), int length of the key, the UTF-8
+ * encoded key, the value encoded by the {@link Codec} (empty for deletes) and the CRC32C of type, key and value.</p>
+ *
+ * @param <V> DataType of objects which should be stored
+ * @author agent
+ * @since 2.4.0
+ */
+@CustomLog
+public class LogStructuredStorage<V> extends AbstractFileStorage<String, V> implements Closeable {
+    /**
+     * Default maximum size of a segment file in bytes
+     */
+    public static final long DEFAULT_MAX_SEGMENT_SIZE = 64L * 1024 * 1024;
+    private static final double COMPACTION_THRESHOLD = 0.5;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    /**
+     * length, type and key length
+     */
+    private static final int HEADER_SIZE = 4 + 1 + 4;
+    private static final int CRC_SIZE = 4;
+
+    private final Codec<V> codec;
+    private final long maxSegmentSize;
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    /**
+     * Read lock is held while records are read, write lock while segments are removed
+     */
+    private final ReentrantReadWriteLock segmentLock = new ReentrantReadWriteLock();
+    private final Object appendLock = new Object();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final AtomicBoolean compactionDue = new AtomicBoolean();
+    private volatile Executor compactionExecutor;
+    private volatile Segment active;
+    private volatile boolean closed;
+
+    /**
+     * @param codec     codec used to write and read the stored objects
+     * @param subfolder name of the storage folder
+     */
+    public LogStructuredStorage(Codec<V> codec, String subfolder) {
+        this(codec, subfolder, DEFAULT_MAX_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param codec          codec used to write and read the stored objects
+     * @param subfolder      name of the storage folder
+     * @param maxSegmentSize size in bytes after which a new segment file is started
+     */
+    public LogStructuredStorage(@NonNull Codec<V> codec, String subfolder, long maxSegmentSize) {
+        super(File.separator + subfolder, ".log");
+        if (maxSegmentSize <= 0) {
+            throw new IllegalArgumentException("Maximum segment size must be positive");
+        }
+        this.codec = codec;
+        this.maxSegmentSize = maxSegmentSize;
+        try {
+            recover();
+        } catch (IOException e) {
+            close();
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
+
+    /**
+     * Opens the existing segments and rebuilds the index by replaying their records in order
+     */
+    private void recover() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(Paths.get(completePath))) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.matches("\\d+" + Pattern.quote(fileExtension)))
+                    .forEach(name -> ids.add(Long.parseLong(name.substring(0, name.length() - fileExtension.length()))));
+        }
+        ids.sort(null);
+        for (int i = 0; i < ids.size(); i++) {
+            Segment segment = new Segment(ids.get(i), segmentPath(ids.get(i)));
+            segments.put(segment.id, segment);
+            long valid = replay(segment);
+            if (valid < segment.channel.size() && i < ids.size() - 1) {
+                // sealed segments are forced before the next segment is started, so they can't be torn by a crash
+                throw new StreamCorruptedException("Invalid record at offset " + valid + " of the sealed segment " + segment.path);
+            }
+            if (valid < segment.channel.size()) {
+                log.warn("Truncating " + (segment.channel.size() - valid) + " invalid bytes at the end of " + segment.path);
+                segment.channel.truncate(valid);
+            }
+            segment.size = valid;
+            segment.flushedSize = valid;
+        }
+        Segment last = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        active = last != null && last.size < maxSegmentSize ? last : newSegment(last == null ? 0 : last.id + 1);
+    }
+
+    /**
+     * @return the size of the valid records at the beginning of the segment
+     */
+    private long replay(Segment segment) throws IOException {
+        try (RecordScanner scanner = new RecordScanner(segment, segment.channel.size())) {
+            Record record;
+            while ((record = scanner.next()) != null) {
+                Location previous;
+                if (record.type == PUT) {
+                    previous = index.put(record.key, new Location(segment, record.offset, record.length));
+                } else {
+                    previous = index.remove(record.key);
+                    segment.deadBytes.addAndGet(record.length);
+                }
+                if (previous != null) {
+                    previous.segment.deadBytes.addAndGet(previous.length);
+                }
+            }
+            return scanner.validSize();
+        }
+    }
+
+    private Path segmentPath(long id) {
+        return Paths.get(completePath, String.format("%010d", id) + fileExtension);
+    }
+
+    private Segment newSegment(long id) throws IOException {
+        Segment segment = new Segment(id, segmentPath(id));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    /**
+     * Sets the executor, which compacts the segments in the background, whenever a new segment is started and a
+     * sealed segment is mostly dead (null to only compact on {@link LogStructuredStorage#compact()})
+     *
+     * @param compactionExecutor the executor
+     */
+    public void setCompactionExecutor(Executor compactionExecutor) {
+        this.compactionExecutor = compactionExecutor;
+    }
+
+    @Override
+    public String create(V value) {
+        return create(value, generateStringToken());
+    }
+
+    @Override
+    public String create(V value, @NonNull String suggestedKey) {
+        byte[] encoded = codec.toBytes(value);
+        String key = suggestedKey;
+        synchronized (appendLock) {
+            ensureOpen();
+            while (index.containsKey(key)) {
+                key = generateStringToken();
+            }
+            index.put(key, append(PUT, key, encoded));
+        }
+        scheduleCompaction();
+        return key;
+    }
+
+    @Override
+    public V read(@NonNull String key) {
+        while (true) {
+            ensureOpen();
+            Location location = index.get(key);
+            if (location == null) {
+                return null;
+            }
+            byte[] record = readRecord(location);
+            if (record != null) {
+                return decodeRecord(record, key);
+            }
+            // the segment was compacted while the record was read, so the record has been moved
+        }
+    }
+
+    /**
+     * Method for reading all objects managed by the storage by scanning the segments sequentially
+     *
+     * @return Collection of all managed objects
+     */
+    @Override
+    public Collection<V> read() {
+        flush();
+        List<V> values = new ArrayList<>(index.size());
+        Lock lock = segmentLock.readLock();
+        lock.lock();
+        try {
+            for (Segment segment : segments.values()) {
+                try (RecordScanner scanner = new RecordScanner(segment, segment.flushedSize)) {
+                    Record record;
+                    while ((record = scanner.next()) != null) {
+                        Location location = index.get(record.key);
+                        if (record.type == PUT && location != null && location.segment == segment && location.offset == record.offset) {
+                            V value = decodeValue(record.bytes, record.key);
+                            if (value != null) {
+                                values.add(value);
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        } finally {
+            lock.unlock();
+        }
+        return values;
+    }
+
+    @Override
+    public boolean update(@NonNull String key, V value) {
+        byte[] encoded = codec.toBytes(value);
+        synchronized (appendLock) {
+            ensureOpen();
+            Location previous = index.get(key);
+            if (previous == null) {
+                return false;
+            }
+            index.put(key, append(PUT, key, encoded));
+            previous.segment.deadBytes.addAndGet(previous.length);
+        }
+        scheduleCompaction();
+        return true;
+    }
+
+    @Override
+    public boolean delete(@NonNull String key) {
+        synchronized (appendLock) {
+            ensureOpen();
+            Location previous = index.remove(key);
+            if (previous == null) {
+                return false;
+            }
+            Location tombstone = append(DELETE, key, new byte[0]);
+            tombstone.segment.deadBytes.addAndGet(tombstone.length);
+            previous.segment.deadBytes.addAndGet(previous.length);
+        }
+        scheduleCompaction();
+        return true;
+    }
+
+    /**
+     * Method for deleting all stored objects, which deletes all segment files
+     *
+     * @return True if all segments were deleted; else false
+     */
+    @Override
+    public boolean deleteAll() {
+        synchronized (appendLock) {
+            ensureOpen();
+            Lock lock = segmentLock.writeLock();
+            lock.lock();
+            try {
+                writeBuffer.clear();
+                index.clear();
+                long nextId = active.id + 1;
+                for (Segment segment : segments.values()) {
+                    segment.close();
+                    Files.deleteIfExists(segment.path);
+                }
+                segments.clear();
+                active = newSegment(nextId);
+                return true;
+            } catch (IOException e) {
+                log.debug(e.getMessage(), e);
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered records to the active segment file
+     */
+    public void flush() {
+        synchronized (appendLock) {
+            ensureOpen();
+            try {
+                flushBuffer();
+            } catch (IOException e) {
+                throw ExceptionUtils.unchecked(e);
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered records to the active segment file and forces it to the storage device
+     */
+    public void sync() {
+        synchronized (appendLock) {
+            ensureOpen();
+            try {
+                flushBuffer();
+                active.channel.force(false);
+            } catch (IOException e) {
+                throw ExceptionUtils.unchecked(e);
+            }
+        }
+    }
+
+    /**
+     * Flushes the buffered records and closes the segment files. The storage can't be used afterwards.
+     */
+    @Override
+    public void close() {
+        synchronized (appendLock) {
+            closed = true;
+            Lock lock = segmentLock.writeLock();
+            lock.lock();
+            try {
+                if (active != null && active.channel.isOpen()) {
+                    flushBuffer();
+                }
+                for (Segment segment : segments.values()) {
+                    segment.close();
+                }
+            } catch (IOException e) {
+                throw ExceptionUtils.unchecked(e);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Copies the live records of all sealed segments, of which at least half of the bytes are dead, to the active
+     * segment and deletes the segment files. Does nothing if a compaction is already running.
+     */
+    public void compact() {
+        ensureOpen();
+        if (!compacting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<Segment> compacted = new ArrayList<>();
+            Set<Segment> targets = new HashSet<>();
+            for (Segment segment : segments.values()) {
+                if (segment != active && segment.deadRatio() >= COMPACTION_THRESHOLD) {
+                    copyLiveRecords(segment, targets);
+                    compacted.add(segment);
+                }
+            }
+            if (!compacted.isEmpty()) {
+                delete(compacted, targets);
+            }
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    /**
+     * Copies the live records and the still needed tombstones of the segment to the active segment and collects the
+     * segments, which the copies were written to
+     */
+    private void copyLiveRecords(Segment segment, Set<Segment> targets) throws IOException {
+        long moved = 0;
+        try (RecordScanner scanner = new RecordScanner(segment, segment.size)) {
+            Record record;
+            while ((record = scanner.next()) != null) {
+                synchronized (appendLock) {
+                    Location location = index.get(record.key);
+                    if (record.type == PUT && location != null && location.segment == segment && location.offset == record.offset) {
+                        Location copy = appendRecord(record.bytes);
+                        index.put(record.key, copy);
+                        targets.add(copy.segment);
+                        moved++;
+                    } else if (record.type == DELETE && location == null && segments.firstKey() < segment.id) {
+                        // the tombstone is still needed, as an older segment can contain a record of the key
+                        Location copy = appendRecord(record.bytes);
+                        copy.segment.deadBytes.addAndGet(record.length);
+                        targets.add(copy.segment);
+                    }
+                }
+            }
+        }
+        log.debug("Copied " + moved + " live records of " + segment.path);
+    }
+
+    /**
+     * Deletes the compacted segments after the copies of their live records were forced to the storage device, as a
+     * crash would otherwise lose the records
+     */
+    private void delete(List<Segment> compacted, Set<Segment> targets) throws IOException {
+        synchronized (appendLock) {
+            flushBuffer();
+            for (Segment target : targets) {
+                if (segments.get(target.id) == target) {
+                    target.channel.force(false);
+                }
+            }
+        }
+        Lock lock = segmentLock.writeLock();
+        lock.lock();
+        try {
+            for (Segment segment : compacted) {
+                if (segments.remove(segment.id, segment)) {
+                    segment.close();
+                    Files.deleteIfExists(segment.path);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts a background compaction, if a new segment was started and a sealed segment is mostly dead. Must not be
+     * called while holding the append lock.
+     */
+    private void scheduleCompaction() {
+        Executor executor = compactionExecutor;
+        // a new segment started during a running compaction stays due until the compaction finished
+        if (executor != null && !compacting.get() && compactionDue.compareAndSet(true, false)
+                && segments.values().stream().anyMatch(segment -> segment != active && segment.deadRatio() >= COMPACTION_THRESHOLD)) {
+            executor.execute(this::compact);
+        }
+    }
+
+    /**
+     * Appends a record to the active segment. Must be called while holding the append lock.
+     */
+    private Location append(byte type, String key, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int length = HEADER_SIZE + keyBytes.length + value.length + CRC_SIZE;
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(length - 4).put(type).putInt(keyBytes.length).put(keyBytes).put(value);
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), 4, length - 4 - CRC_SIZE);
+        record.putInt((int) crc.getValue());
+        return appendRecord(record.array());
+    }
+
+    /**
+     * Appends a complete record to the active segment. Must be called while holding the append lock.
+     */
+    private Location appendRecord(byte[] record) {
+        try {
+            Segment segment = active;
+            if (segment.size > 0 && segment.size + record.length > maxSegmentSize) {
+                flushBuffer();
+                segment.channel.force(false);
+                segment = newSegment(segment.id + 1);
+                active = segment;
+                compactionDue.set(true);
+            }
+            long offset = segment.size;
+            if (record.length > writeBuffer.remaining()) {
+                flushBuffer();
+            }
+            if (record.length > writeBuffer.capacity()) {
+                writeFully(segment, ByteBuffer.wrap(record));
+            } else {
+                writeBuffer.put(record);
+            }
+            segment.size += record.length;
+            return new Location(segment, offset, record.length);
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
+
+    /**
+     * Must be called while holding the append lock
+     */
+    private void flushBuffer() throws IOException {
+        int buffered = writeBuffer.position();
+        writeBuffer.flip();
+        try {
+            writeFully(active, writeBuffer);
+        } catch (IOException | RuntimeException e) {
+            // the flushed size of the segment was not advanced, so the records stay buffered for the next flush
+            writeBuffer.limit(writeBuffer.capacity());
+            writeBuffer.position(buffered);
+            throw e;
+        }
+        writeBuffer.clear();
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Storage " + completePath + " is closed");
+        }
+    }
+
+    private static void writeFully(Segment segment, ByteBuffer buffer) throws IOException {
+        long position = segment.flushedSize;
+        while (buffer.hasRemaining()) {
+            position += segment.channel.write(buffer, position);
+        }
+        segment.flushedSize = position;
+    }
+
+    /**
+     * @return the record or null if the segment was removed in the meantime
+     */
+    private byte[] readRecord(Location location) {
+        Segment segment = location.segment;
+        if (location.offset + location.length > segment.flushedSize) {
+            flush();
+        }
+        Lock lock = segmentLock.readLock();
+        lock.lock();
+        try {
+            if (!segment.channel.isOpen()) {
+                return null;
+            }
+            ByteBuffer record = ByteBuffer.allocate(location.length);
+            while (record.hasRemaining()) {
+                if (segment.channel.read(record, location.offset + record.position()) < 0) {
+                    throw new EOFException("Record at " + location.offset + " exceeds " + segment.path);
+                }
+            }
+            return record.array();
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the decoded value of the record or null if the record is corrupted or can't be decoded
+     */
+    private V decodeRecord(byte[] record, String key) {
+        if (!Record.isValid(record)) {
+            log.error("Checksum of the record of key " + key + " does not match");
+            return null;
+        }
+        return decodeValue(record, key);
+    }
+
+    private V decodeValue(byte[] record, String key) {
+        int valueStart = Record.valueStart(record);
+        try {
+            return codec.decode(new ByteArrayInputStream(record, valueStart, record.length - CRC_SIZE - valueStart));
+        } catch (IOException | RuntimeException e) {
+            log.error("Record of key " + key + " can't be decoded", e);
+            return null;
+        }
+    }
+
+    /**
+     * Segment file, of which only the last one (the active segment) is appended to
+     */
+    private static final class Segment {
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private final AtomicLong deadBytes = new AtomicLong();
+        /**
+         * size including the buffered records (only changed while holding the append lock)
+         */
+        private volatile long size;
+        /**
+         * size of the records written to the file
+         */
+        private volatile long flushedSize;
+
+        private Segment(long id, Path path) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        private double deadRatio() {
+            long total = size;
+            return total == 0 ? 0 : (double) deadBytes.get() / total;
+        }
+
+        private void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Location of the latest record of a key
+     */
+    private static final class Location {
+        private final Segment segment;
+        private final long offset;
+        private final int length;
+
+        private Location(Segment segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Record read by a {@link RecordScanner}
+     */
+    private static final class Record {
+        private final long offset;
+        private final byte type;
+        private final String key;
+        private final byte[] bytes;
+        private final int length;
+
+        private Record(long offset, byte type, String key, byte[] bytes) {
+            this.offset = offset;
+            this.type = type;
+            this.key = key;
+            this.bytes = bytes;
+            this.length = bytes.length;
+        }
+
+        private static int valueStart(byte[] record) {
+            return HEADER_SIZE + ByteBuffer.wrap(record).getInt(5);
+        }
+
+        /**
+         * @return true iff the record has a valid type, key length and checksum
+         */
+        private static boolean isValid(byte[] record) {
+            if (record.length < HEADER_SIZE + CRC_SIZE) {
+                return false;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            byte type = buffer.get(4);
+            int keyLength = buffer.getInt(5);
+            if ((type != PUT && type != DELETE) || keyLength < 0 || keyLength > record.length - HEADER_SIZE - CRC_SIZE) {
+                return false;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(record, 4, record.length - 4 - CRC_SIZE);
+            return (int) crc.getValue() == buffer.getInt(record.length - CRC_SIZE);
+        }
+    }
+
+    /**
+     * Sequential reader of the records of a segment, which stops at the first invalid record
+     */
+    private static final class RecordScanner implements Closeable {
+        private final DataInputStream in;
+        private final long limit;
+        private long offset;
+
+        private RecordScanner(Segment segment, long limit) throws IOException {
+            InputStream file = Files.newInputStream(segment.path);
+            this.in = new DataInputStream(new BufferedInputStream(file, WRITE_BUFFER_SIZE));
+            this.limit = limit;
+        }
+
+        /**
+         * @return the next valid record or null at the end of the valid records
+         */
+        private Record next() throws IOException {
+            if (offset + HEADER_SIZE + CRC_SIZE > limit) {
+                return null;
+            }
+            int length = in.readInt();
+            if (length < HEADER_SIZE - 4 + CRC_SIZE || offset + 4 + length > limit) {
+                return null;
+            }
+            byte[] bytes = new byte[4 + length];
+            ByteBuffer.wrap(bytes).putInt(length);
+            in.readFully(bytes, 4, length);
+            if (!Record.isValid(bytes)) {
+                return null;
+            }
+            int keyLength = ByteBuffer.wrap(bytes).getInt(5);
+            Record record = new Record(offset, bytes[4], new String(bytes, HEADER_SIZE, keyLength, StandardCharsets.UTF_8), bytes);
+            offset += bytes.length;
+            return record;
+        }
+
+        /**
+         * @return the size of the records returned so far
+         */
+        private long validSize() {
+            return offset;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Tokenizer for UTF-8 encoded csv files, which scans the bytes of a memory mapped file directly. Instead of
+ * creating strings, the columns of the current record are exposed as {@link CSVColumnView}s, which are only decoded
+ * if their content is accessed.</p>
+ * <p>The semantics are the same as the ones of {@link CSVTokenizer}. As all structural characters (separator, quote
+ * and line breaks) are ASCII characters they can never be part of a multi byte UTF-8 sequence, which allows to scan
+ * the bytes without decoding them. Large files are mapped in windows, which are moved along the records.</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+final class MappedCSVScanner implements Closeable {
+    static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+    static final byte PLAIN = 0;
+    static final byte QUOTED = 1;
+    static final byte ESCAPED = 2;
+
+    private static final byte QUOTE = (byte) CSVTokenizer.QUOTE;
+
+    private final FileChannel channel;
+    private final byte separator;
+    private final long size;
+    private final int initialWindowSize;
+    private ByteBuffer window;
+    private long windowStart;
+    private int windowLimit;
+    private int windowSize;
+
+    private long recordOffset;
+    /**
+     * Offset of the end of the current record (without the line break)
+     */
+    private long recordEnd;
+    private long nextOffset;
+    private boolean skipLineFeed;
+    private int[] columnBounds = new int[32];
+    private byte[] columnFlags = new byte[16];
+    private int columnCount;
+    private CSVColumnView[] views = new CSVColumnView[0];
+    private long[] viewRecords = new long[0];
+    private long recordNumber = -1;
+    private final List<CharSequence> viewList = new AbstractList<>() {
+        @Override
+        public CharSequence get(int index) {
+            return column(index);
+        }
+
+        @Override
+        public int size() {
+            return columnCount;
+        }
+    };
+    private final List<String> valueList = new AbstractList<>() {
+        @Override
+        public String get(int index) {
+            return column(index).toString();
+        }
+
+        @Override
+        public int size() {
+            return columnCount;
+        }
+    };
+
+    MappedCSVScanner(Path csvFile, char separator) throws IOException {
+        this(csvFile, separator, 0, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Creates a scanner, which starts scanning at the given offset
+     *
+     * @param csvFile    the file to scan
+     * @param separator  the separator of the columns
+     * @param offset     byte offset of the first record to scan (e.g. {@link MappedCSVScanner#nextOffset()} of a
+     *                   previous scan)
+     * @param windowSize initial size of the mapped windows
+     * @throws IOException if the file can't be opened
+     */
+    MappedCSVScanner(Path csvFile, char separator, long offset, int windowSize) throws IOException {
+        if (separator >= 0x80 || separator == '\n' || separator == '\r' || separator == CSVTokenizer.QUOTE) {
+            throw new IllegalArgumentException("Separator must be an ASCII character, which is neither a line break nor a quote");
+        }
+        this.channel = FileChannel.open(csvFile, StandardOpenOption.READ);
+        this.separator = (byte) separator;
+        this.size = channel.size();
+        this.initialWindowSize = Math.max(windowSize, 16);
+        this.windowSize = initialWindowSize;
+        this.nextOffset = offset;
+        try {
+            // an offset between \r and \n (the end of a record in a file with windows line breaks) starts after the \n
+            this.skipLineFeed = offset > 0 && offset <= size && byteAt(offset - 1) == '\r';
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Advances to the next record of the file
+     *
+     * @return true iff there is a next record, false if the end of the file is reached
+     * @throws IOException if the file can't be mapped
+     */
+    boolean nextRecord() throws IOException {
+        long start = nextOffset;
+        if (skipLineFeed) {
+            skipLineFeed = false;
+            if (start < size && byteAt(start) == '\n') {
+                start++;
+            }
+        }
+        if (start >= size) {
+            recordOffset = size;
+            nextOffset = size;
+            columnCount = 0;
+            return false;
+        }
+
+        while (!scanRecord(start)) {
+            // the record exceeds the current window, so map a window starting with the record
+            if (start == windowStart) {
+                windowSize = (int) Math.min(Integer.MAX_VALUE, windowSize * 2L);
+            }
+            map(start);
+        }
+        recordOffset = start;
+        recordNumber++;
+        return true;
+    }
+
+    /**
+     * Tries to scan the record starting at the given offset
+     *
+     * @param start offset of the record in the file
+     * @return true if the record was scanned, false if it is not completely contained in the current window
+     * @throws IOException if the file can't be mapped
+     */
+    @SuppressWarnings("java:S3776") // state machine is kept in one method for performance reasons
+    private boolean scanRecord(long start) throws IOException {
+        if (window == null || start < windowStart || start >= windowStart + windowLimit) {
+            map(start);
+        }
+        boolean lastWindow = windowStart + windowLimit == size;
+        ByteBuffer buffer = window;
+        byte sep = separator;
+        int end = windowLimit;
+        int pos = (int) (start - windowStart);
+        int fieldStart = pos;
+        columnCount = 0;
+        while (true) {
+            if (pos == end) {
+                if (!lastWindow) {
+                    return false;
+                }
+                addColumn(fieldStart, end);
+                recordEnd = size;
+                nextOffset = size;
+                return true;
+            }
+
+            byte b = buffer.get(pos);
+            if (b == sep) {
+                addColumn(fieldStart, pos);
+                fieldStart = ++pos;
+            } else if (b == '\n' || b == '\r') {
+                addColumn(fieldStart, pos);
+                return finishRecord(pos, b);
+            } else if (b == QUOTE && isBlank(buffer, fieldStart, pos)) {
+                // quoted column: search the closing quote, doubled quotes are escaped quotes
+                int contentStart = ++pos;
+                int contentEnd = -1;
+                boolean escaped = false;
+                while (contentEnd < 0) {
+                    if (pos == end) {
+                        if (!lastWindow) {
+                            return false;
+                        }
+                        // a quoted column which is not closed contains the rest of the file
+                        contentEnd = end;
+                    } else if (buffer.get(pos++) == QUOTE) {
+                        if (pos == end && !lastWindow) {
+                            return false;
+                        }
+                        if (pos < end && buffer.get(pos) == QUOTE) {
+                            escaped = true;
+                            pos++;
+                        } else {
+                            contentEnd = pos - 1;
+                        }
+                    }
+                }
+                // characters between the closing quote and the next separator are ignored
+                while (pos < end && (b = buffer.get(pos)) != sep && b != '\n' && b != '\r') {
+                    pos++;
+                }
+                addBounds(contentStart, contentEnd, escaped ? ESCAPED : QUOTED);
+                if (pos == end) {
+                    if (!lastWindow) {
+                        return false;
+                    }
+                    recordEnd = size;
+                    nextOffset = size;
+                    return true;
+                }
+                if (b == sep) {
+                    fieldStart = ++pos;
+                } else {
+                    return finishRecord(pos, b);
+                }
+            } else {
+                pos++;
+            }
+        }
+    }
+
+    private boolean finishRecord(int lineBreak, byte lineBreakCharacter) {
+        skipLineFeed = lineBreakCharacter == '\r';
+        recordEnd = windowStart + lineBreak;
+        nextOffset = windowStart + lineBreak + 1;
+        return true;
+    }
+
+    private static boolean isBlank(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if ((buffer.get(i) & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addColumn(int from, int to) {
+        ByteBuffer buffer = window;
+        while (from < to && (buffer.get(from) & 0xFF) <= ' ') {
+            from++;
+        }
+        while (to > from && (buffer.get(to - 1) & 0xFF) <= ' ') {
+            to--;
+        }
+        addBounds(from, to, PLAIN);
+    }
+
+    private void addBounds(int from, int to, byte flags) {
+        if (columnCount * 2 + 1 >= columnBounds.length) {
+            columnBounds = Arrays.copyOf(columnBounds, columnBounds.length * 2);
+            columnFlags = Arrays.copyOf(columnFlags, columnFlags.length * 2);
+        }
+        columnBounds[columnCount * 2] = from;
+        columnBounds[columnCount * 2 + 1] = to;
+        columnFlags[columnCount] = flags;
+        columnCount++;
+    }
+
+    private byte byteAt(long offset) throws IOException {
+        if (window == null || offset < windowStart || offset >= windowStart + windowLimit) {
+            map(offset);
+        }
+        return window.get((int) (offset - windowStart));
+    }
+
+    private void map(long start) throws IOException {
+        long length = Math.min(windowSize, size - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        windowStart = start;
+        windowLimit = (int) length;
+        if (windowSize > initialWindowSize && length < windowSize / 2) {
+            windowSize = initialWindowSize;
+        }
+    }
+
+    /**
+     * @return number of columns of the current record
+     */
+    int columnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Returns a view of the given column of the current record. The view is reused for the following records, so it
+     * is only valid until {@link MappedCSVScanner#nextRecord()} is called again.
+     *
+     * @param index index of the column
+     * @return view of the column
+     */
+    CSVColumnView column(int index) {
+        if (index < 0 || index >= columnCount) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + columnCount);
+        }
+        if (index >= views.length) {
+            int oldLength = views.length;
+            views = Arrays.copyOf(views, Math.max(columnCount, oldLength * 2));
+            viewRecords = Arrays.copyOf(viewRecords, views.length);
+            for (int i = oldLength; i < views.length; i++) {
+                views[i] = new CSVColumnView();
+                viewRecords[i] = -1;
+            }
+        }
+        CSVColumnView view = views[index];
+        if (viewRecords[index] != recordNumber) {
+            view.reset(window, columnBounds[index * 2], columnBounds[index * 2 + 1], columnFlags[index]);
+            viewRecords[index] = recordNumber;
+        }
+        return view;
+    }
+
+    /**
+     * Returns the columns of the current record as views. The list is reused for the following records, so it is only
+     * valid until {@link MappedCSVScanner#nextRecord()} is called again.
+     *
+     * @return views of the columns of the current record
+     */
+    List<CharSequence> views() {
+        return viewList;
+    }
+
+    /**
+     * Returns the columns of the current record as strings, which are only decoded if they are accessed. The list is
+     * reused for the following records, so it is only valid until {@link MappedCSVScanner#nextRecord()} is called
+     * again (the contained strings stay valid).
+     *
+     * @return the lazily decoded columns of the current record
+     */
+    List<String> values() {
+        return valueList;
+    }
+
+    /**
+     * Decodes the current record as it is contained in the file (without the line break)
+     *
+     * @return the text of the current record
+     */
+    String recordText() {
+        byte[] bytes = new byte[(int) (recordEnd - recordOffset)];
+        ByteBuffer record = window.duplicate();
+        record.position((int) (recordOffset - windowStart));
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return byte offset of the current record in the file
+     */
+    long recordOffset() {
+        return recordOffset;
+    }
+
+    /**
+     * @return byte offset where the next record starts (can be the end of the file)
+     */
+    long nextOffset() {
+        return nextOffset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,436 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import lombok.NonNull;
+import science.aist.jack.exception.ExceptionUtils;
+import science.aist.jack.persistence.core.FixedSizeCodec;
+import science.aist.jack.persistence.filesystem.AbstractFileStorage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p>Storage for values of a fixed size, which are stored in the slots of a single memory-mapped file. The key of a
+ * value is the index of its slot, so a read or update is a bounds check and some pointer arithmetic, after which the
+ * {@link FixedSizeCodec} reads or writes the value directly in the mapped memory. There are no system calls, streams
+ * or intermediate byte arrays involved.</p>
+ * <p>The slots are grouped into chunks of 64 slots, which start with a 64 bit bitmap of the used slots. Deleted slots
+ * are reused by later creates. When all slots are used, the file is grown by another mapped region, so existing
+ * slots never move. The file is never shrunk, {@link MappedSlotStorage#deleteAll()} only clears the bitmaps.</p>
+ * <p>Changes are written to the page cache by the operating system. Use {@link MappedSlotStorage#sync()} to force them
+ * to the storage device. The header and the values are written in little endian byte order.</p>
+ * <p>File format: int magic number, int slot size, 8 bytes padding, followed by regions of chunks, which consist of
+ * the long bitmap and 64 slots.</p>
+ *
+ * @param <V> DataType of objects which should be stored
+ * @author agent
+ * @since 2.4.0
+ */
+public class MappedSlotStorage<V> extends AbstractFileStorage<Long, V> implements Closeable {
+    /**
+     * Maximum size of a slot in bytes
+     */
+    public static final int MAX_SLOT_SIZE = 1 << 24;
+    private static final int MAGIC = 0x4A534C54;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOTS_PER_CHUNK = 64;
+    private static final int BITMAP_SIZE = 8;
+    private static final int MAX_REGION_SIZE = 1 << 30;
+    private static final int MAX_CHUNKS_PER_REGION = 1024;
+    private static final int LOCK_STRIPES = 64;
+
+    private final FixedSizeCodec<V> codec;
+    private final int slotSize;
+    private final int chunkSize;
+    private final int chunksPerRegion;
+    private final FileChannel channel;
+    private final ReentrantReadWriteLock[] locks = new ReentrantReadWriteLock[LOCK_STRIPES];
+    /**
+     * Held while the bitmaps are changed or the file is grown
+     */
+    private final Object allocationLock = new Object();
+    private volatile MappedByteBuffer[] regions = new MappedByteBuffer[0];
+    /**
+     * Index of the first chunk, which may contain a free slot
+     */
+    private long freeChunkHint;
+
+    /**
+     * @param codec     codec used to write and read the stored objects
+     * @param subfolder name of the storage folder
+     */
+    public MappedSlotStorage(@NonNull FixedSizeCodec<V> codec, String subfolder) {
+        super(File.separator + subfolder, ".slot");
+        this.codec = codec;
+        this.slotSize = codec.size();
+        if (slotSize <= 0 || slotSize > MAX_SLOT_SIZE) {
+            throw new IllegalArgumentException("Slot size must be between 1 and " + MAX_SLOT_SIZE);
+        }
+        this.chunkSize = BITMAP_SIZE + SLOTS_PER_CHUNK * slotSize;
+        this.chunksPerRegion = Math.max(1, Math.min(MAX_CHUNKS_PER_REGION, MAX_REGION_SIZE / chunkSize));
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+        try {
+            channel = FileChannel.open(Paths.get(buildPath("slots")), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+        try {
+            open();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
+
+    /**
+     * Writes the header of a new file or checks the header of an existing file and maps its regions
+     */
+    private void open() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        if (channel.size() == 0) {
+            header.putInt(MAGIC).putInt(slotSize).rewind();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            return;
+        }
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                break;
+            }
+        }
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+            throw new IllegalStateException(buildPath("slots") + " is not a slot storage file");
+        }
+        int storedSlotSize = header.getInt();
+        if (storedSlotSize != slotSize) {
+            throw new IllegalArgumentException("Slot size of the codec (" + slotSize + ") does not match the slot size of the storage (" + storedSlotSize + ")");
+        }
+        long regionSize = (long) chunksPerRegion * chunkSize;
+        long regionCount = (channel.size() - HEADER_SIZE + regionSize - 1) / regionSize;
+        for (long i = 0; i < regionCount; i++) {
+            grow();
+        }
+    }
+
+    /**
+     * Maps the next region of the file, which extends the file if necessary
+     */
+    private void grow() throws IOException {
+        MappedByteBuffer[] current = regions;
+        long position = HEADER_SIZE + (long) current.length * chunksPerRegion * chunkSize;
+        MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) chunksPerRegion * chunkSize);
+        region.order(ByteOrder.LITTLE_ENDIAN);
+        MappedByteBuffer[] grown = new MappedByteBuffer[current.length + 1];
+        System.arraycopy(current, 0, grown, 0, current.length);
+        grown[current.length] = region;
+        regions = grown;
+    }
+
+    /**
+     * Method for getting the number of slots of the file
+     *
+     * @return number of slots, which can be used without growing the file
+     */
+    public long getCapacity() {
+        return (long) regions.length * chunksPerRegion * SLOTS_PER_CHUNK;
+    }
+
+    /**
+     * Method for counting the stored objects
+     *
+     * @return number of used slots
+     */
+    public long size() {
+        MappedByteBuffer[] current = regions;
+        long size = 0;
+        for (MappedByteBuffer region : current) {
+            for (int chunk = 0; chunk < chunksPerRegion; chunk++) {
+                size += Long.bitCount(region.getLong(chunk * chunkSize));
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Method for storing an given object in the first free slot
+     *
+     * @param value Object which should be stored
+     * @return The slot of the stored object
+     */
+    @Override
+    public Long create(@NonNull V value) {
+        ensureOpen();
+        synchronized (allocationLock) {
+            long slot = findFreeSlot();
+            write(slot, value);
+            return slot;
+        }
+    }
+
+    /**
+     * Method for storing an given object
+     *
+     * @param value        Object which should be stored
+     * @param suggestedKey Suggested slot, which is used if it is free and within the capacity of the file
+     * @return The slot of the stored object
+     */
+    @Override
+    public Long create(@NonNull V value, Long suggestedKey) {
+        ensureOpen();
+        synchronized (allocationLock) {
+            long slot = suggestedKey != null && suggestedKey >= 0 && suggestedKey < getCapacity() && !isUsed(suggestedKey)
+                    ? suggestedKey : findFreeSlot();
+            write(slot, value);
+            return slot;
+        }
+    }
+
+    /**
+     * Encodes the value into the given free slot and marks it as used
+     */
+    private void write(long slot, V value) {
+        Lock lock = lock(slot).writeLock();
+        lock.lock();
+        try {
+            ByteBuffer region = region(slot);
+            codec.encode(value, region, slotOffset(slot));
+            int bitmap = bitmapOffset(slot);
+            region.putLong(bitmap, region.getLong(bitmap) | bit(slot));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the first free slot, for which the file is grown if all slots are used
+     */
+    private long findFreeSlot() {
+        long chunks = getCapacity() / SLOTS_PER_CHUNK;
+        for (long chunk = freeChunkHint; chunk < chunks; chunk++) {
+            long bitmap = regions[(int) (chunk / chunksPerRegion)].getLong((int) (chunk % chunksPerRegion) * chunkSize);
+            if (bitmap != -1L) {
+                freeChunkHint = chunk;
+                return chunk * SLOTS_PER_CHUNK + Long.numberOfTrailingZeros(~bitmap);
+            }
+        }
+        try {
+            grow();
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+        freeChunkHint = chunks;
+        return chunks * SLOTS_PER_CHUNK;
+    }
+
+    /**
+     * Method for reading an object identified by the given slot
+     *
+     * @param key Slot of the object which should be read
+     * @return The Object stored in the slot or NULL if the slot is free.
+     */
+    @Override
+    public V read(Long key) {
+        ensureOpen();
+        if (key == null || key < 0 || key >= getCapacity()) {
+            return null;
+        }
+        Lock lock = lock(key).readLock();
+        lock.lock();
+        try {
+            return isUsed(key) ? codec.decode(region(key), slotOffset(key)) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method for reading all objects managed by the storage
+     *
+     * @return Collection of all managed objects in the order of their slots
+     */
+    @Override
+    public Collection<V> read() {
+        ensureOpen();
+        List<V> values = new ArrayList<>();
+        MappedByteBuffer[] current = regions;
+        for (int r = 0; r < current.length; r++) {
+            for (int chunk = 0; chunk < chunksPerRegion; chunk++) {
+                long bitmap = current[r].getLong(chunk * chunkSize);
+                long first = ((long) r * chunksPerRegion + chunk) * SLOTS_PER_CHUNK;
+                while (bitmap != 0) {
+                    V value = read(first + Long.numberOfTrailingZeros(bitmap));
+                    if (value != null) {
+                        values.add(value);
+                    }
+                    bitmap &= bitmap - 1;
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Method for updating the stored object in a given slot
+     *
+     * @param key   Slot of the object which should be updated
+     * @param value Object which should be restored
+     * @return True if object was updated; else false if the slot is free
+     */
+    @Override
+    public boolean update(Long key, @NonNull V value) {
+        ensureOpen();
+        if (key == null || key < 0 || key >= getCapacity()) {
+            return false;
+        }
+        Lock lock = lock(key).writeLock();
+        lock.lock();
+        try {
+            if (!isUsed(key)) {
+                return false;
+            }
+            codec.encode(value, region(key), slotOffset(key));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method for deleting a stored object, which frees its slot
+     *
+     * @param key Slot of the object which should be deleted
+     * @return True if object was deleted; else false
+     */
+    @Override
+    public boolean delete(Long key) {
+        ensureOpen();
+        if (key == null || key < 0 || key >= getCapacity()) {
+            return false;
+        }
+        synchronized (allocationLock) {
+            Lock lock = lock(key).writeLock();
+            lock.lock();
+            try {
+                if (!isUsed(key)) {
+                    return false;
+                }
+                ByteBuffer region = region(key);
+                int bitmap = bitmapOffset(key);
+                region.putLong(bitmap, region.getLong(bitmap) & ~bit(key));
+                freeChunkHint = Math.min(freeChunkHint, key / SLOTS_PER_CHUNK);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Method for deleting all stored objects, which frees all slots but keeps the size of the file
+     *
+     * @return True if object was deleted; else false
+     */
+    @Override
+    public boolean deleteAll() {
+        ensureOpen();
+        synchronized (allocationLock) {
+            for (ReentrantReadWriteLock lock : locks) {
+                lock.writeLock().lock();
+            }
+            try {
+                for (MappedByteBuffer region : regions) {
+                    for (int chunk = 0; chunk < chunksPerRegion; chunk++) {
+                        region.putLong(chunk * chunkSize, 0L);
+                    }
+                }
+                freeChunkHint = 0;
+                return true;
+            } finally {
+                for (ReentrantReadWriteLock lock : locks) {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Forces the changes of the mapped file to the storage device
+     */
+    public void sync() {
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+    }
+
+    /**
+     * Forces the changes to the storage device and closes the file. The storage can't be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (!channel.isOpen()) {
+            return;
+        }
+        synchronized (allocationLock) {
+            try {
+                sync();
+                channel.close();
+            } catch (IOException e) {
+                throw ExceptionUtils.unchecked(e);
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (!channel.isOpen()) {
+            throw new IllegalStateException("Storage " + completePath + " is closed");
+        }
+    }
+
+    private boolean isUsed(long slot) {
+        return (region(slot).getLong(bitmapOffset(slot)) & bit(slot)) != 0;
+    }
+
+    private ReentrantReadWriteLock lock(long slot) {
+        return locks[(int) (slot % LOCK_STRIPES)];
+    }
+
+    private ByteBuffer region(long slot) {
+        return regions[(int) (slot / SLOTS_PER_CHUNK / chunksPerRegion)];
+    }
+
+    private int bitmapOffset(long slot) {
+        return (int) (slot / SLOTS_PER_CHUNK % chunksPerRegion) * chunkSize;
+    }
+
+    private int slotOffset(long slot) {
+        return bitmapOffset(slot) + BITMAP_SIZE + (int) (slot % SLOTS_PER_CHUNK) * slotSize;
+    }
+
+    private static long bit(long slot) {
+        return 1L << (slot % SLOTS_PER_CHUNK);
+    }
+}
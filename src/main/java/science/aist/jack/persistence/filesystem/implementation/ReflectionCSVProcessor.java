@@ -10,15 +10,30 @@
 package science.aist.jack.persistence.filesystem.implementation;
 
 import lombok.CustomLog;
+import lombok.NonNull;
 import lombok.SneakyThrows;
+import science.aist.jack.exception.ExceptionUtils;
+import science.aist.jack.math.NumberParser;
 import science.aist.jack.reflection.ReflectionUtils;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
 
 /**
  * <p>Reflection based implementation for reading/writing CSV files. </p>
@@ -30,6 +45,21 @@ import java.util.stream.Collectors;
 public class ReflectionCSVProcessor<T> extends CSVProcessor<T> {
     private final Set<String> ignoredFields = new HashSet<>();
     private final Map<Class<?>, Function<String, Object>> converters = new HashMap<>();
+    private final Class<T> clazz;
+    private final Map<String, Field> classFields;
+    private final MethodHandle constructor;
+    /**
+     * Binder of the last used column definition, reset if the ignored fields or converters change
+     */
+    private volatile RowBinder binder;
+    private ToIntFunction<CharSequence> intConverter = this::parseInt;
+    private ToLongFunction<CharSequence> longConverter = this::parseLong;
+    private ToDoubleFunction<CharSequence> doubleConverter = this::parseDouble;
+    private boolean sidecarCache;
+    /**
+     * True if a converter was added or replaced, which disables the sidecar cache
+     */
+    private boolean customConverters;
 
     /**
      * Constructor of a ReflectionCSVProcessor for domain types with simple-typed properties only (int, double, float, long, boolean, char, Integer, Float, Double, Long, String, Character, Boolean)
@@ -48,24 +78,12 @@ public class ReflectionCSVProcessor<T> extends CSVProcessor<T> {
             throw new IllegalArgumentException("Given class (" + clazz.getName() + ") doesn't have the required default constructor");
         }
 
-        converters.put(double.class, s -> parseOrDefault(s, Double::parseDouble, 0.0));
-        converters.put(Double.class, s -> parseOrDefault(s, Double::parseDouble, null));
-        converters.put(int.class, s -> parseOrDefault(s, Integer::parseInt, 0));
-        converters.put(Integer.class, s -> parseOrDefault(s, Integer::parseInt, null));
-        converters.put(float.class, s -> parseOrDefault(s, Float::parseFloat, 0.0f));
-        converters.put(Float.class, s -> parseOrDefault(s, Float::parseFloat, null));
-        converters.put(long.class, s -> parseOrDefault(s, Long::parseLong, 0L));
-        converters.put(Long.class, s -> parseOrDefault(s, Long::parseLong, null));
-        converters.put(boolean.class, s -> parseOrDefault(s, Boolean::parseBoolean, false));
-        converters.put(Boolean.class, s -> parseOrDefault(s, Boolean::parseBoolean, null));
+        converters.put(Double.class, s -> NumberParser.isDecimal(s) ? (Object) NumberParser.parseDouble(s, 0.0) : invalidValue(s, null));
+        converters.put(Integer.class, s -> NumberParser.isInt(s) ? (Object) NumberParser.parseInt(s, 0) : invalidValue(s, null));
+        converters.put(Float.class, s -> NumberParser.isDecimal(s) ? (Object) NumberParser.parseFloat(s, 0.0f) : invalidValue(s, null));
+        converters.put(Long.class, s -> NumberParser.isLong(s) ? (Object) NumberParser.parseLong(s, 0L) : invalidValue(s, null));
+        converters.put(Boolean.class, Boolean::parseBoolean);
         converters.put(String.class, s -> s);
-        converters.put(char.class, s -> {
-            if (s.length() > 0) {
-                return s.charAt(0);
-            } else {
-                return '\u0000';
-            }
-        });
         converters.put(Character.class, s -> {
             if (s.length() > 0) {
                 return s.charAt(0);
@@ -78,92 +96,218 @@ public class ReflectionCSVProcessor<T> extends CSVProcessor<T> {
                 .stream()
                 .filter(f -> !f.isSynthetic())
                 .collect(Collectors.toMap(Field::getName, p -> p));
+        this.clazz = clazz;
+        this.classFields = classFields;
+        Constructor<T> defaultConstructor = clazz.getConstructor();
+        defaultConstructor.setAccessible(true);
+        this.constructor = MethodHandles.lookup()
+                .unreflectConstructor(defaultConstructor)
+                .asType(MethodType.methodType(Object.class));
 
-        this.elementToFunc = (elem, columns) -> {
-            List<String> result = new ArrayList<>();
-            for (String column : columns) {
-                try {
-                    if (ignoredFields.contains(column)) {
-                        continue;
-                    }
-                    Field field = classFields.getOrDefault(column, null);
-                    if (field != null) {
-                        boolean accessible = field.canAccess(elem);
-                        field.setAccessible(true);
-                        Object o = field.get(elem);
-                        field.setAccessible(accessible);
-
-                        if (o != null) {
-                            result.add(o.toString());
-                        } else {
-                            result.add(null);
-                        }
-                    } else {
-                        throw new IllegalArgumentException("Column " + column + " does not exist in class " + clazz.getName());
-                    }
-                } catch (IllegalAccessException e) {
-                    String error = "Reflective access of field (" + column + ") was not able.";
-                    log.error(error, e);
-                    throw new IllegalArgumentException(error);
-                }
-            }
+        this.elementToFunc = (elem, columns) -> getBinder(columns).toColumns(elem);
 
-            return result;
+        this.columnsToElementFunc = (splitLines, columns) -> {
+            @SuppressWarnings("unchecked")
+            T obj = (T) getBinder(columns).toElement(splitLines);
+            return obj;
         };
+    }
 
-        this.columnsToElementFunc = (splitLines, columns) -> {
-            T obj;
-            try {
-                obj = clazz.getDeclaredConstructor().newInstance();
-            } catch (IllegalAccessException | NoSuchMethodException | InvocationTargetException | InstantiationException e) {
-                String error = "Can't access the constructor of the declared class " + clazz;
-                log.error(error, e);
-                throw new IllegalArgumentException(error);
+    /**
+     * Method for reading the given csv file (see {@link CSVProcessor#read(File, boolean, boolean)}). If the sidecar
+     * cache is enabled (see {@link ReflectionCSVProcessor#setSidecarCache(boolean)}) the elements are restored from
+     * the sidecar if it matches the file, otherwise the sidecar is written after the file was read.
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumnDefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of the definition in the constructor (only used if containsColumndefinition == true)
+     * @return the read elements
+     */
+    @Override
+    public List<T> read(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition) {
+        if (!usesSidecar()) {
+            return super.read(csvFile, containsColumnDefinition, useFileColumnDefinition);
+        }
+        try {
+            long[] stat = CSVSidecar.statOf(csvFile);
+            String fingerprint = fingerprint(containsColumnDefinition, useFileColumnDefinition);
+            Path sidecar = CSVSidecar.sidecarOf(csvFile);
+            List<T> cached = readSidecar(sidecar, csvFile, stat, fingerprint);
+            if (cached != null) {
+                return cached;
             }
-            for (int i = 0; i < columns.size(); i++) {
-                String columnName = columns.get(i);
+            // the checksum is calculated while the file is parsed, so the file is only read once
+            CRC32C checksum = new CRC32C();
+            List<T> elements;
+            try (Stream<T> stream = super.stream(new CheckedInputStream(new FileInputStream(csvFile), checksum), containsColumnDefinition, useFileColumnDefinition)) {
+                elements = stream.collect(Collectors.toCollection(ArrayList::new));
+            }
+            writeSidecar(sidecar, new long[]{stat[0], stat[1], checksum.getValue()}, fingerprint, elements);
+            return elements;
+        } catch (IOException e) {
+            throw ExceptionUtils.unchecked(e);
+        }
+    }
 
-                if (ignoredFields.contains(columnName)) {
-                    continue;
+    /**
+     * Method for lazily reading the given csv file (see {@link CSVProcessor#stream(File, boolean, boolean)}). If the
+     * sidecar cache is enabled and the sidecar matches the file, the elements are restored from the sidecar.
+     *
+     * @param csvFile                  source file to read
+     * @param containsColumnDefinition flag which signals if the file contains a column definition
+     * @param useFileColumnDefinition  flag if the column definition in the csv file should be used instead of the definition in the constructor (only used if containsColumndefinition == true)
+     * @return stream of the read elements, which must be closed to release the underlying file
+     */
+    @Override
+    public Stream<T> stream(File csvFile, boolean containsColumnDefinition, boolean useFileColumnDefinition) {
+        if (usesSidecar()) {
+            try {
+                List<T> cached = readSidecar(CSVSidecar.sidecarOf(csvFile), csvFile, CSVSidecar.statOf(csvFile),
+                        fingerprint(containsColumnDefinition, useFileColumnDefinition));
+                if (cached != null) {
+                    return cached.stream();
                 }
+            } catch (IOException e) {
+                throw ExceptionUtils.unchecked(e);
+            }
+        }
+        return super.stream(csvFile, containsColumnDefinition, useFileColumnDefinition);
+    }
 
-                String columnValue = splitLines.get(i);
-                try {
-                    Field field = classFields.getOrDefault(columnName, null);
-                    if (field != null) {
-                        boolean accessible = field.canAccess(obj);
-                        field.setAccessible(true);
-                        Object castedColumnValue;
-                        Class<?> fieldType = field.getType();
-
-                        if (columnValue == null) {
-                            castedColumnValue = null;
-                        } else {
-                            castedColumnValue = converters.getOrDefault(fieldType, fieldType::cast).apply(columnValue);
-                        }
-
-                        field.set(obj, castedColumnValue);
-                        field.setAccessible(accessible);
-                    } else {
-                        throw new IllegalArgumentException("Column " + columnName + " does not exist in class " + clazz.getName());
-                    }
-                } catch (IllegalAccessException e) {
-                    String error = "Reflective access of field (" + columnName + ") was not able.";
-                    log.error(error, e);
-                    throw new IllegalArgumentException(error);
+    /**
+     * Enables or disables the binary sidecar cache (default: disabled). If it is enabled, the values of the fields are
+     * stored in a column oriented binary file next to the csv file (csv file name + ".jackcache")
+     * after the file was read with {@link ReflectionCSVProcessor#read(File, boolean, boolean)}. Later reads of the
+     * unchanged file (same size and modification time or checksum) with the same configuration restore the elements
+     * from the memory mapped sidecar instead of parsing the file.
+     * <p>Attention: Converters can't be compared, so the sidecar is not used if a converter was added or replaced.
+     * Subclasses, which change how values are converted, must include their configuration in
+     * {@link ReflectionCSVProcessor#getSidecarFingerprint()}. Rows rejected by the error policy are not part of the sidecar and are not reported again. The sidecar is only
+     * written if all read fields are primitives, wrappers of primitives, strings or enums.</p>
+     *
+     * @param sidecarCache true to enable the sidecar cache
+     */
+    public void setSidecarCache(boolean sidecarCache) {
+        this.sidecarCache = sidecarCache;
+    }
+
+    /**
+     * Method for getting the configuration of a subclass, which changes how the values of a csv file are converted
+     * (e.g. normalization rules). It is part of the fingerprint of the sidecar cache, so sidecars written with another
+     * configuration are not used.
+     *
+     * @return the configuration of the subclass as string (default: empty)
+     */
+    protected String getSidecarFingerprint() {
+        return "";
+    }
+
+    private boolean usesSidecar() {
+        return sidecarCache && !customConverters;
+    }
+
+    private String fingerprint(boolean containsColumnDefinition, boolean useFileColumnDefinition) {
+        return getClass().getName() + '|' + getSidecarFingerprint() + '|' + clazz.getName() + '|' + separator + '|' + containsColumnDefinition + '|' + useFileColumnDefinition + '|'
+                + columnDefinition + '|' + new TreeSet<>(ignoredFields) + '|' + getErrorPolicy().rejectsRows();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<T> readSidecar(Path sidecar, File csvFile, long[] stat, String fingerprint) throws IOException {
+        return (List<T>) CSVSidecar.read(sidecar, csvFile, stat, fingerprint, this::accessibleField, constructor);
+    }
+
+    /**
+     * Returns the field with the given name and makes it accessible. Only fields, which are bound to columns, are made
+     * accessible, so inherited fields of e.g. JDK classes are not touched.
+     *
+     * @param name name of the field
+     * @return the accessible field or null if the class doesn't contain the field
+     */
+    private Field accessibleField(String name) {
+        Field field = classFields.get(name);
+        if (field != null) {
+            field.setAccessible(true);
+        }
+        return field;
+    }
+
+    private void writeSidecar(Path sidecar, long[] key, String fingerprint, List<T> elements) {
+        RowBinder rowBinder = binder;
+        if (rowBinder == null) {
+            return;
+        }
+        List<Field> fields = new ArrayList<>();
+        for (int i = 0; i < rowBinder.columns.size(); i++) {
+            if (rowBinder.setters[i] != null) {
+                Field field = classFields.get(rowBinder.columns.get(i));
+                if (!CSVSidecar.supports(field.getType())) {
+                    log.warn("Sidecar not written, as field " + field.getName() + " of type " + field.getType().getName() + " is not supported");
+                    return;
                 }
+                fields.add(field);
             }
-            return obj;
-        };
+        }
+        try {
+            CSVSidecar.write(sidecar, key, fingerprint, fields, elements);
+        } catch (IOException e) {
+            log.warn("Could not write sidecar " + sidecar, e);
+        }
     }
 
-    private static Object parseOrDefault(String value, Function<String, Object> parseFunction, Object defaultValue) {
-        try {
-            return parseFunction.apply(value);
-        } catch (Exception e) {
-            log.error("Could not parse value (" + value + ") with given parse function. So using default value", e);
-            return defaultValue;
+    /**
+     * Returns the binder for the given column definition. The binder of the last column definition is cached, so the
+     * fields are only resolved once per file.
+     *
+     * @param columns the column definition
+     * @return the binder for the given column definition
+     */
+    private RowBinder getBinder(List<String> columns) {
+        RowBinder binder = this.binder;
+        if (binder == null || (binder.columns != columns && !binder.columns.equals(columns))) {
+            binder = new RowBinder(List.copyOf(columns));
+            this.binder = binder;
+        }
+        return binder;
+    }
+
+    private int parseInt(CharSequence value) {
+        int result = NumberParser.parseInt(value, 0);
+        // a result equal to the default value needs to be checked, as it could also be the result of an invalid value
+        return result != 0 || NumberParser.isInt(value) ? result : invalidValue(value, 0);
+    }
+
+    private long parseLong(CharSequence value) {
+        long result = NumberParser.parseLong(value, 0L);
+        return result != 0L || NumberParser.isLong(value) ? result : invalidValue(value, 0L);
+    }
+
+    private double parseDouble(CharSequence value) {
+        double result = NumberParser.parseDouble(value, 0.0);
+        return result != 0.0 || NumberParser.isDecimal(value) ? result : invalidValue(value, 0.0);
+    }
+
+    private float parseFloat(CharSequence value) {
+        float result = NumberParser.parseFloat(value, 0.0f);
+        return result != 0.0f || NumberParser.isDecimal(value) ? result : invalidValue(value, 0.0f);
+    }
+
+    /**
+     * Handles a value which can't be parsed. Instead of logging every value, it is counted in the error counters
+     * (see {@link CSVProcessor#getErrorCounters()}) and depending on the error policy either the default value is used
+     * or the row is rejected.
+     *
+     * @param value        the invalid value
+     * @param defaultValue the default value
+     * @param <V>          type of the value
+     * @return the default value
+     * @throws CSVValueException if the error policy rejects invalid rows
+     */
+    private <V> V invalidValue(CharSequence value, V defaultValue) {
+        getErrorCounters().invalidValue();
+        if (getErrorPolicy().rejectsRows()) {
+            throw new CSVValueException("Could not parse value (" + value + ")");
         }
+        return defaultValue;
     }
 
     /**
@@ -173,6 +317,7 @@ public class ReflectionCSVProcessor<T> extends CSVProcessor<T> {
      */
     public void addIgnoredField(String fieldName) {
         ignoredFields.add(fieldName);
+        binder = null;
     }
 
     /**
@@ -184,5 +329,195 @@ public class ReflectionCSVProcessor<T> extends CSVProcessor<T> {
      */
     public void addFieldConverter(Class<?> clazz, Function<String, Object> converter) {
         converters.put(clazz, converter);
+        customConverters = true;
+        binder = null;
+    }
+
+    /**
+     * Sets the converter for int fields. In contrast to a converter added with
+     * {@link ReflectionCSVProcessor#addFieldConverter(Class, Function)} the values are not boxed.
+     *
+     * @param converter converter which transforms the given csv value to an int
+     */
+    public void setIntFieldConverter(@NonNull ToIntFunction<CharSequence> converter) {
+        intConverter = converter;
+        converters.remove(int.class);
+        customConverters = true;
+        binder = null;
+    }
+
+    /**
+     * Sets the converter for long fields. In contrast to a converter added with
+     * {@link ReflectionCSVProcessor#addFieldConverter(Class, Function)} the values are not boxed.
+     *
+     * @param converter converter which transforms the given csv value to a long
+     */
+    public void setLongFieldConverter(@NonNull ToLongFunction<CharSequence> converter) {
+        longConverter = converter;
+        converters.remove(long.class);
+        customConverters = true;
+        binder = null;
+    }
+
+    /**
+     * Sets the converter for double fields. In contrast to a converter added with
+     * {@link ReflectionCSVProcessor#addFieldConverter(Class, Function)} the values are not boxed.
+     *
+     * @param converter converter which transforms the given csv value to a double
+     */
+    public void setDoubleFieldConverter(@NonNull ToDoubleFunction<CharSequence> converter) {
+        doubleConverter = converter;
+        converters.remove(double.class);
+        customConverters = true;
+        binder = null;
+    }
+
+    /**
+     * <p>Field accessors and converters of a processor bound to the order of a column definition. Ignored columns are
+     * represented by null entries, so reading and writing a line is a plain walk over the arrays.</p>
+     * <p>Primitive fields without a converter added by {@link ReflectionCSVProcessor#addFieldConverter(Class, Function)}
+     * are written with primitive typed setters, so the values are not boxed.</p>
+     */
+    private final class RowBinder {
+        private static final byte OBJECT = 0;
+        private static final byte INT = 1;
+        private static final byte LONG = 2;
+        private static final byte DOUBLE = 3;
+        private static final byte FLOAT = 4;
+        private static final byte BOOLEAN = 5;
+        private static final byte CHAR = 6;
+
+        private final List<String> columns;
+        private final MethodHandle[] getters;
+        private final MethodHandle[] setters;
+        private final byte[] kinds;
+        private final Function<String, Object>[] converters;
+        private final ToIntFunction<CharSequence> intConverter = ReflectionCSVProcessor.this.intConverter;
+        private final ToLongFunction<CharSequence> longConverter = ReflectionCSVProcessor.this.longConverter;
+        private final ToDoubleFunction<CharSequence> doubleConverter = ReflectionCSVProcessor.this.doubleConverter;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private RowBinder(List<String> columns) {
+            this.columns = columns;
+            this.getters = new MethodHandle[columns.size()];
+            this.setters = new MethodHandle[columns.size()];
+            this.kinds = new byte[columns.size()];
+            this.converters = new Function[columns.size()];
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            for (int i = 0; i < columns.size(); i++) {
+                String column = columns.get(i);
+                if (ignoredFields.contains(column)) {
+                    continue;
+                }
+                Field field = accessibleField(column);
+                if (field == null) {
+                    throw new IllegalArgumentException("Column " + column + " does not exist in class " + clazz.getName());
+                }
+                Class<?> fieldType = field.getType();
+                Function<String, Object> converter = ReflectionCSVProcessor.this.converters.get(fieldType);
+                kinds[i] = converter == null ? kindOf(fieldType) : OBJECT;
+                converters[i] = converter == null ? fieldType::cast : converter;
+                try {
+                    getters[i] = lookup.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+                    setters[i] = lookup.unreflectSetter(field)
+                            .asType(MethodType.methodType(void.class, Object.class, kinds[i] == OBJECT ? Object.class : fieldType));
+                } catch (IllegalAccessException e) {
+                    String error = "Reflective access of field (" + column + ") was not able.";
+                    log.error(error, e);
+                    throw new IllegalArgumentException(error);
+                }
+            }
+        }
+
+        private byte kindOf(Class<?> fieldType) {
+            if (fieldType == int.class) {
+                return INT;
+            } else if (fieldType == long.class) {
+                return LONG;
+            } else if (fieldType == double.class) {
+                return DOUBLE;
+            } else if (fieldType == float.class) {
+                return FLOAT;
+            } else if (fieldType == boolean.class) {
+                return BOOLEAN;
+            } else if (fieldType == char.class) {
+                return CHAR;
+            }
+            return OBJECT;
+        }
+
+        private Object toElement(List<String> values) {
+            Object obj;
+            try {
+                obj = (Object) constructor.invokeExact();
+            } catch (Throwable e) {
+                String error = "Can't access the constructor of the declared class " + clazz;
+                log.error(error, e);
+                throw new IllegalArgumentException(error);
+            }
+            try {
+                for (int i = 0; i < setters.length; i++) {
+                    MethodHandle setter = setters[i];
+                    if (setter == null) {
+                        continue;
+                    }
+                    if (i >= values.size()) {
+                        throw new CSVValueException("Missing column (" + columns.get(i) + ")");
+                    }
+                    String value = values.get(i);
+                    byte kind = kinds[i];
+                    if (kind == OBJECT) {
+                        setter.invokeExact(obj, value == null ? null : converters[i].apply(value));
+                    } else if (value != null) {
+                        setPrimitive(setter, kind, obj, value);
+                    }
+                }
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+            return obj;
+        }
+
+        private void setPrimitive(MethodHandle setter, byte kind, Object obj, String value) throws Throwable {
+            switch (kind) {
+                case INT:
+                    setter.invokeExact(obj, intConverter.applyAsInt(value));
+                    break;
+                case LONG:
+                    setter.invokeExact(obj, longConverter.applyAsLong(value));
+                    break;
+                case DOUBLE:
+                    setter.invokeExact(obj, doubleConverter.applyAsDouble(value));
+                    break;
+                case FLOAT:
+                    setter.invokeExact(obj, parseFloat(value));
+                    break;
+                case BOOLEAN:
+                    setter.invokeExact(obj, Boolean.parseBoolean(value));
+                    break;
+                default:
+                    setter.invokeExact(obj, value.isEmpty() ? '\u0000' : value.charAt(0));
+                    break;
+            }
+        }
+
+        private List<String> toColumns(Object elem) {
+            List<String> result = new ArrayList<>(getters.length);
+            try {
+                for (MethodHandle getter : getters) {
+                    if (getter != null) {
+                        Object o = (Object) getter.invokeExact(elem);
+                        result.add(o == null ? null : o.toString());
+                    }
+                }
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+            return result;
+        }
     }
 }
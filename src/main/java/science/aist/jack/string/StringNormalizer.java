@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.string;
+
+import lombok.NonNull;
+
+import java.util.*;
+
+/**
+ * <p>Normalizer which strips a string (see {@link String#strip()}), removes a set of strings and then replaces a set of
+ * strings. Both the removals and the replacements are compiled once into a pass with a lookup table of the first
+ * characters of the search strings, so characters which can't start a match are skipped with a single lookup.</p>
+ * <p>The removals are applied before the replacements, so replacements only match the string without the removed
+ * strings. Within a pass the longest matching search string is replaced at every position and the scan continues
+ * after the match, so inserted replacements are not searched again. Strings which don't need to be changed are
+ * returned as they are (same instance).</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public final class StringNormalizer {
+    private static final Rule[] NO_RULES = new Rule[0];
+
+    private final Pass removals;
+    private final Pass replacements;
+
+    private StringNormalizer(Map<String, String> removals, Map<String, String> replacements) {
+        this.removals = new Pass(removals);
+        this.replacements = new Pass(replacements);
+    }
+
+    /**
+     * Compiles a normalizer, which removes all strings of toRemove and afterwards replaces all keys of toReplace with
+     * the associated value. Empty search strings are ignored.
+     *
+     * @param toRemove  strings which should be removed
+     * @param toReplace key value pairs describing how one string should be replaced. Key is the search term, value is
+     *                  the replacement string
+     * @return the compiled normalizer
+     */
+    public static StringNormalizer compile(@NonNull Iterable<String> toRemove, @NonNull Map<String, String> toReplace) {
+        Map<String, String> removals = new HashMap<>();
+        for (String search : toRemove) {
+            if (!search.isEmpty()) {
+                removals.put(search, "");
+            }
+        }
+        Map<String, String> replacements = new HashMap<>();
+        toReplace.forEach((search, replacement) -> {
+            if (!search.isEmpty()) {
+                replacements.put(search, replacement);
+            }
+        });
+        return new StringNormalizer(removals, replacements);
+    }
+
+    /**
+     * Strips the given string, removes the configured strings and replaces the configured strings
+     *
+     * @param s the string to normalize
+     * @return the normalized string, s itself if it doesn't need to be changed, null if s is null
+     */
+    public String normalize(String s) {
+        if (s == null) {
+            return null;
+        }
+        int from = 0;
+        int to = s.length();
+        while (from < to && Character.isWhitespace(s.charAt(from))) {
+            from++;
+        }
+        while (to > from && Character.isWhitespace(s.charAt(to - 1))) {
+            to--;
+        }
+        String removed = removals.apply(s, from, to);
+        return replacements.apply(removed, 0, removed.length());
+    }
+
+    /**
+     * Compiled set of search strings, which are replaced in a single scan
+     */
+    private static final class Pass {
+        /**
+         * Bit set of the characters, which start at least one search string
+         */
+        private final long[] firstCharacters = new long[(Character.MAX_VALUE + 1) / Long.SIZE];
+        /**
+         * Rules by their first character, sorted by the length of the search string (descending)
+         */
+        private final Map<Character, Rule[]> rules = new HashMap<>();
+
+        private Pass(Map<String, String> replacements) {
+            Map<Character, List<Rule>> rulesByFirstCharacter = new HashMap<>();
+            replacements.forEach((search, replacement) -> {
+                char first = search.charAt(0);
+                firstCharacters[first >>> 6] |= 1L << first;
+                rulesByFirstCharacter.computeIfAbsent(first, c -> new ArrayList<>()).add(new Rule(search, replacement));
+            });
+            rulesByFirstCharacter.forEach((first, list) -> {
+                list.sort(Comparator.comparingInt((Rule r) -> r.search.length()).reversed());
+                rules.put(first, list.toArray(NO_RULES));
+            });
+        }
+
+        /**
+         * @return s[from, to) with all matches replaced, s itself if it is not changed
+         */
+        private String apply(String s, int from, int to) {
+            StringBuilder result = null;
+            int copied = from;
+            int i = from;
+            while (i < to) {
+                char c = s.charAt(i);
+                Rule rule = (firstCharacters[c >>> 6] & (1L << c)) == 0 ? null : match(s, i, to, c);
+                if (rule == null) {
+                    i++;
+                } else {
+                    if (result == null) {
+                        result = new StringBuilder(to - from);
+                    }
+                    result.append(s, copied, i).append(rule.replacement);
+                    i += rule.search.length();
+                    copied = i;
+                }
+            }
+
+            if (result == null) {
+                return from == 0 && to == s.length() ? s : s.substring(from, to);
+            }
+            return result.append(s, copied, to).toString();
+        }
+
+        private Rule match(String s, int position, int to, char first) {
+            for (Rule rule : rules.get(first)) {
+                int length = rule.search.length();
+                if (position + length <= to && s.startsWith(rule.search, position)) {
+                    return rule;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class Rule {
+        private final String search;
+        private final String replacement;
+
+        private Rule(String search, String replacement) {
+            this.search = search;
+            this.replacement = replacement;
+        }
+    }
+}
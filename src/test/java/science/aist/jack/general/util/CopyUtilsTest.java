@@ -11,6 +11,7 @@ package science.aist.jack.general.util;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
+import science.aist.jack.persistence.core.Codecs;
 
 import java.io.Serializable;
 
@@ -39,6 +40,25 @@ public class CopyUtilsTest {
         Assert.assertEquals(a.b.s, "test");
     }
 
+    @Test
+    public void testDeepCopyCodec() {
+        // given
+        B b = new B();
+        b.s = "test";
+        A a = new A();
+        a.b = b;
+        a.s = "test2";
+
+        // when
+        A copy = CopyUtils.deepCopy(a, Codecs.binary(A.class));
+
+        // then
+        Assert.assertNotSame(copy, a);
+        Assert.assertNotSame(copy.b, a.b);
+        Assert.assertEquals(copy.s, "test2");
+        Assert.assertEquals(copy.b.s, "test");
+    }
+
     @Test
     public void testDeepFail() {
         // given
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.math;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>Test class for {@link NumberParser}</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public class NumberParserTest {
+
+    @Test
+    public void testParseInt() {
+        // given
+        List<String> values = List.of("0", "42", "-42", "+7", " 12 ", "2147483647", "-2147483648", "007");
+
+        // when
+        // then
+        for (String value : values) {
+            Assert.assertEquals(NumberParser.parseInt(value, -1), Integer.parseInt(value.trim()), value);
+        }
+    }
+
+    @Test
+    public void testParseIntInvalid() {
+        // given
+        List<String> values = List.of("", " ", "-", "+", "1.5", "abc", "12a", "2147483648", "-2147483649");
+
+        // when
+        // then
+        for (String value : values) {
+            Assert.assertEquals(NumberParser.parseInt(value, -1), -1, value);
+            Assert.assertFalse(NumberParser.isInt(value), value);
+        }
+        Assert.assertEquals(NumberParser.parseInt(null, -1), -1);
+    }
+
+    @Test
+    public void testParseLong() {
+        // given
+        List<String> values = List.of("0", "9223372036854775807", "-9223372036854775808", "-15", "+15");
+
+        // when
+        // then
+        for (String value : values) {
+            Assert.assertEquals(NumberParser.parseLong(value, -1L), Long.parseLong(value), value);
+        }
+        Assert.assertEquals(NumberParser.parseLong("9223372036854775808", -1L), -1L);
+        Assert.assertFalse(NumberParser.isLong("x"));
+        Assert.assertTrue(NumberParser.isLong("0"));
+    }
+
+    @Test
+    public void testParseDouble() {
+        // given
+        List<String> values = List.of("0", "-0.0", "0.5155", " 5.45646 ", "6464.234", "1e10", "-1.5E-3", ".5", "5.",
+                "12345678901234567890.123", "0.1234567890123456789", "1e400", "4.9e-324", "NaN", "-Infinity", "1.5d", "2f",
+                "9007199254740993", "0.000000000000000000001");
+
+        // when
+        // then
+        for (String value : values) {
+            Assert.assertEquals(Double.doubleToLongBits(NumberParser.parseDouble(value, -1.0)),
+                    Double.doubleToLongBits(Double.parseDouble(value)), value);
+        }
+    }
+
+    @Test
+    public void testParseDoubleRandom() {
+        // given
+        Random random = new Random(42);
+
+        for (int i = 0; i < 10_000; i++) {
+            // when
+            String value = Double.toString((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20));
+
+            // then
+            Assert.assertEquals(NumberParser.parseDouble(value, Double.NaN), Double.parseDouble(value), value);
+        }
+    }
+
+    @Test
+    public void testParseDoubleInvalid() {
+        // given
+        List<String> values = List.of("", ".", "-", "e5", "1e", "1e+", "1.2.3", "abc", "1,5", "0x1p3", "NaNa");
+
+        // when
+        // then
+        for (String value : values) {
+            Assert.assertEquals(NumberParser.parseDouble(value, -1.0), -1.0, value);
+            Assert.assertFalse(NumberParser.isDecimal(value), value);
+        }
+    }
+
+    @Test
+    public void testParseFloat() {
+        // given
+        List<String> values = List.of("0", "0.1", "-3.75", "16777217", "1.17549435E-38", "3.4028235e38", "1e39", "123.456e-2");
+
+        // when
+        // then
+        for (String value : values) {
+            Assert.assertEquals(NumberParser.parseFloat(value, -1.0f), Float.parseFloat(value), value);
+        }
+        Assert.assertEquals(NumberParser.parseFloat("x", -1.0f), -1.0f);
+    }
+}
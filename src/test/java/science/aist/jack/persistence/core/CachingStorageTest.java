@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.core;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Test class for {@link CachingStorage}</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public class CachingStorageTest {
+
+    @Test
+    public void testReadThrough() {
+        // given
+        MapStorage backend = new MapStorage();
+        CachingStorage<String, String> storage = new CachingStorage<>(backend, 100);
+        String key = storage.create("value");
+
+        // when
+        String first = storage.read(key);
+        String second = storage.read(key);
+
+        // then
+        Assert.assertEquals(first, "value");
+        Assert.assertEquals(second, "value");
+        Assert.assertEquals(backend.reads.get(), 1);
+        Assert.assertEquals(storage.getStats().getHits(), 1);
+        Assert.assertEquals(storage.getStats().getMisses(), 1);
+        Assert.assertEquals(storage.getStats().getHitRate(), 0.5);
+    }
+
+    @Test
+    public void testMissingKeyIsNotCached() {
+        // given
+        MapStorage backend = new MapStorage();
+        CachingStorage<String, String> storage = new CachingStorage<>(backend, 100);
+
+        // when
+        storage.read("missing");
+        storage.read("missing");
+
+        // then
+        Assert.assertEquals(backend.reads.get(), 2);
+    }
+
+    @Test
+    public void testScanDoesNotEvictFrequentlyReadEntries() {
+        // given
+        MapStorage backend = new MapStorage();
+        CachingStorage<String, String> storage = new CachingStorage<>(backend, 10);
+        String hot = storage.create("hot");
+        storage.read(hot);
+        storage.read(hot);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            keys.add(storage.create("cold" + i));
+        }
+
+        // when
+        keys.forEach(storage::read);
+        int readsBefore = backend.reads.get();
+        storage.read(hot);
+
+        // then
+        Assert.assertEquals(backend.reads.get(), readsBefore);
+        Assert.assertEquals(storage.getStats().getEvictions(), 41);
+    }
+
+    @Test
+    public void testWeightBound() {
+        // given
+        MapStorage backend = new MapStorage();
+        CachingStorage<String, String> storage = new CachingStorage<>(backend, 10, String::length);
+        String small = storage.create("12345");
+        String large = storage.create("12345678901");
+
+        // when
+        storage.read(small);
+        storage.read(large);
+        storage.read(small);
+        storage.read(large);
+
+        // then
+        Assert.assertEquals(backend.reads.get(), 3);
+    }
+
+    @Test
+    public void testWriteThroughInvalidates() {
+        // given
+        MapStorage backend = new MapStorage();
+        CachingStorage<String, String> storage = new CachingStorage<>(backend, 100);
+        String key = storage.create("old");
+        storage.read(key);
+
+        // when
+        boolean updated = storage.update(key, "new");
+
+        // then
+        Assert.assertTrue(updated);
+        Assert.assertEquals(backend.values.get(key), "new");
+        Assert.assertEquals(storage.read(key), "new");
+        Assert.assertTrue(storage.delete(key));
+        Assert.assertNull(storage.read(key));
+        Assert.assertFalse(storage.update(key, "other"));
+    }
+
+    @Test
+    public void testWriteBehind() {
+        // given
+        MapStorage backend = new MapStorage();
+        CachingStorage<String, String> storage = new CachingStorage<>(backend, 100);
+        List<Runnable> tasks = new ArrayList<>();
+        storage.setWriteBehind(tasks::add);
+        String key = storage.create("v0");
+        String deleted = storage.create("x");
+        storage.read(key);
+        storage.read(deleted);
+
+        // when
+        for (int i = 1; i <= 10; i++) {
+            Assert.assertTrue(storage.update(key, "v" + i));
+        }
+        Assert.assertTrue(storage.delete(deleted));
+
+        // then
+        Assert.assertEquals(backend.values.get(key), "v0");
+        Assert.assertEquals(storage.read(key), "v10");
+        Assert.assertNull(storage.read(deleted));
+        Assert.assertFalse(storage.delete(deleted));
+        Assert.assertEquals(tasks.size(), 1);
+        tasks.get(0).run();
+        Assert.assertEquals(backend.values.get(key), "v10");
+        Assert.assertFalse(backend.values.containsKey(deleted));
+        Assert.assertEquals(backend.updates.get(), 1);
+    }
+
+    @Test
+    public void testWriteBehindUpdateAfterDelete() {
+        // given
+        MapStorage backend = new MapStorage();
+        CachingStorage<String, String> storage = new CachingStorage<>(backend, 100);
+        storage.setWriteBehind(task -> {
+        });
+        String key = storage.create("v0");
+        storage.read(key);
+        storage.delete(key);
+
+        // when
+        boolean updated = storage.update(key, "v1");
+        storage.flush();
+
+        // then
+        Assert.assertFalse(updated);
+        Assert.assertNull(storage.read(key));
+        Assert.assertFalse(backend.values.containsKey(key));
+        Assert.assertEquals(backend.updates.get(), 0);
+    }
+
+    @Test
+    public void testWriteBehindFlush() {
+        // given
+        MapStorage backend = new MapStorage();
+        CachingStorage<String, String> storage = new CachingStorage<>(backend, 100);
+        storage.setWriteBehind(task -> {
+        });
+        String key = storage.create("v0");
+        storage.read(key);
+        storage.update(key, "v1");
+
+        // when
+        Collection<String> values = storage.read();
+
+        // then
+        Assert.assertEquals(values, List.of("v1"));
+        Assert.assertEquals(backend.values.get(key), "v1");
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        // given
+        MapStorage backend = new MapStorage();
+        CachingStorage<String, String> storage = new CachingStorage<>(backend, 64);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            keys.add(storage.create("0"));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // when
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    String key = keys.get((i * 31 + thread) % keys.size());
+                    if (i % 10 == 0) {
+                        storage.update(key, String.valueOf(i));
+                    } else {
+                        Assert.assertNotNull(storage.read(key));
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // then
+        for (String key : keys) {
+            Assert.assertEquals(storage.read(key), backend.values.get(key));
+        }
+    }
+
+    /**
+     * In memory storage, which counts the accesses
+     */
+    private static final class MapStorage implements Storage<String, String> {
+        private final Map<String, String> values = new ConcurrentHashMap<>();
+        private final AtomicInteger keys = new AtomicInteger();
+        private final AtomicInteger reads = new AtomicInteger();
+        private final AtomicInteger updates = new AtomicInteger();
+
+        @Override
+        public String create(String value) {
+            return create(value, "key" + keys.incrementAndGet());
+        }
+
+        @Override
+        public String create(String value, String suggestedKey) {
+            return values.putIfAbsent(suggestedKey, value) == null ? suggestedKey : create(value);
+        }
+
+        @Override
+        public String read(String key) {
+            reads.incrementAndGet();
+            return values.get(key);
+        }
+
+        @Override
+        public Collection<String> read() {
+            return new ArrayList<>(values.values());
+        }
+
+        @Override
+        public boolean update(String key, String value) {
+            updates.incrementAndGet();
+            return values.replace(key, value) != null;
+        }
+
+        @Override
+        public boolean delete(String key) {
+            return values.remove(key) != null;
+        }
+
+        @Override
+        public boolean deleteAll() {
+            values.clear();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.core;
+
+import lombok.EqualsAndHashCode;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import science.aist.jack.persistence.filesystem.domain.JavaPoint;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Test class for {@link Codecs}</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public class CodecsTest {
+
+    @Test
+    public void testBinary() {
+        // given
+        Codec<Sample> codec = Codecs.binary(Sample.class);
+        Sample sample = Sample.create();
+
+        // when
+        Sample decoded = codec.fromBytes(codec.toBytes(sample));
+
+        // then
+        Assert.assertEquals(decoded, sample);
+        Assert.assertEquals(decoded.transientValue, 0);
+    }
+
+    @Test
+    public void testBinaryDefaults() {
+        // given
+        Codec<Sample> codec = Codecs.binary(Sample.class);
+        Sample sample = new Sample();
+
+        // when
+        Sample decoded = codec.fromBytes(codec.toBytes(sample));
+
+        // then
+        Assert.assertEquals(decoded, sample);
+        Assert.assertNull(codec.fromBytes(codec.toBytes(null)));
+    }
+
+    @Test
+    public void testBinaryIsCached() {
+        // given
+
+        // when
+        Codec<Sample> codec = Codecs.binary(Sample.class);
+
+        // then
+        Assert.assertSame(Codecs.binary(Sample.class), codec);
+    }
+
+    @Test
+    public void testBinaryConsecutiveValues() throws IOException {
+        // given
+        Codec<JavaPoint> codec = Codecs.binary(JavaPoint.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        codec.encode(new JavaPoint(1, 2), out);
+        codec.encode(new JavaPoint(3, 4), out);
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+
+        // then
+        Assert.assertEquals(codec.decode(in), new JavaPoint(1, 2));
+        Assert.assertEquals(codec.decode(in), new JavaPoint(3, 4));
+        Assert.assertEquals(in.available(), 0);
+    }
+
+    @Test
+    public void testBinaryIsSmallerThanJavaSerialization() {
+        // given
+        Sample sample = Sample.create();
+
+        // when
+        int binary = Codecs.binary(Sample.class).toBytes(sample).length;
+        int java = Codecs.javaSerialization(Sample.class).toBytes(sample).length;
+
+        // then
+        Assert.assertTrue(binary * 5 < java, binary + " vs " + java);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBinaryUnsupportedField() {
+        // given
+
+        // when
+        Codecs.binary(Unsupported.class);
+
+        // then
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBinarySubclass() {
+        // given
+        Codec<Sample> codec = Codecs.binary(Sample.class);
+
+        // when
+        codec.toBytes(new Sample() {
+        });
+
+        // then
+    }
+
+    @Test
+    public void testJavaSerialization() {
+        // given
+        Codec<JavaPoint> codec = Codecs.javaSerialization(JavaPoint.class);
+
+        // when
+        JavaPoint decoded = codec.fromBytes(codec.toBytes(new JavaPoint(1, 2)));
+
+        // then
+        Assert.assertEquals(decoded, new JavaPoint(1, 2));
+    }
+
+    @Test
+    public void testBytes() {
+        // given
+        byte[] bytes = {1, 2, 3};
+
+        // when
+        byte[] decoded = Codecs.bytes().fromBytes(Codecs.bytes().toBytes(bytes));
+
+        // then
+        Assert.assertEquals(decoded, bytes);
+    }
+
+    @Test(expectedExceptions = StreamCorruptedException.class)
+    public void testBinaryNegativeLength() {
+        // given
+        byte[] corrupt = withLength(new byte[]{-1, -1, -1, -1, -1, -1, -1, -1, -1, 1});
+
+        // when
+        Codecs.binary(Text.class).fromBytes(corrupt);
+
+        // then
+        // exception
+    }
+
+    @Test(expectedExceptions = EOFException.class)
+    public void testBinaryLengthExceedsStream() {
+        // given
+        byte[] corrupt = withLength(new byte[]{-1, -1, -1, -1, 7});
+
+        // when
+        Codecs.binary(Text.class).fromBytes(corrupt);
+
+        // then
+        // exception
+    }
+
+    @Test(expectedExceptions = InvalidClassException.class)
+    public void testJavaSerializationUnknownClass() {
+        // given
+        Codec<Text> codec = Codecs.javaSerialization(Text.class);
+        String encoded = new String(codec.toBytes(new Text()), StandardCharsets.ISO_8859_1);
+        byte[] unknown = encoded.replace("CodecsTest$Text", "CodecsTest$Tex0").getBytes(StandardCharsets.ISO_8859_1);
+
+        // when
+        codec.fromBytes(unknown);
+
+        // then
+        // exception
+    }
+
+    /**
+     * @return an encoded {@link Text}, of which the length of the value is replaced by the given variable length integer
+     */
+    private static byte[] withLength(byte[] length) {
+        Text text = new Text();
+        text.value = "";
+        byte[] encoded = Codecs.binary(Text.class).toBytes(text);
+        byte[] corrupt = Arrays.copyOf(encoded, encoded.length - 1 + length.length);
+        System.arraycopy(length, 0, corrupt, encoded.length - 1, length.length);
+        return corrupt;
+    }
+
+    enum Color {
+        RED, GREEN
+    }
+
+    @EqualsAndHashCode
+    static class Base implements Serializable {
+        private long id;
+    }
+
+    @EqualsAndHashCode(callSuper = true)
+    static class Sample extends Base {
+        private boolean flag;
+        private byte smallNumber;
+        private short shortNumber;
+        private char character;
+        private int number;
+        private float ratio;
+        private double value;
+        private Integer boxedNumber;
+        private Double boxedValue;
+        private String name;
+        private Color color;
+        private byte[] payload;
+        private JavaPoint point;
+        private Sample next;
+        @EqualsAndHashCode.Exclude
+        private transient int transientValue;
+
+        static Sample create() {
+            Sample sample = new Sample();
+            ((Base) sample).id = 7;
+            sample.flag = true;
+            sample.smallNumber = -3;
+            sample.shortNumber = -300;
+            sample.character = 'ä';
+            sample.number = -123456;
+            sample.ratio = 0.5f;
+            sample.value = Math.PI;
+            sample.boxedNumber = Integer.MIN_VALUE;
+            sample.name = "Grüße";
+            sample.color = Color.GREEN;
+            sample.payload = new byte[]{1, 2, 3};
+            sample.point = new JavaPoint(1, 2);
+            sample.next = new Sample();
+            sample.next.name = "next";
+            sample.transientValue = 42;
+            return sample;
+        }
+    }
+
+    static class Text implements Serializable {
+        private String value;
+    }
+
+    static class Unsupported {
+        private List<String> values;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import science.aist.jack.exception.ExceptionUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>Test class for {@link CSVReader}</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public class CSVReaderTest {
+
+    @Test
+    public void testStreamInputStream() {
+        // given
+        AtomicReference<File> readFile = new AtomicReference<>();
+        CSVReader<String> reader = (csvFile, containsColumndefinition, useFileColumnDefinition) -> {
+            readFile.set(csvFile);
+            try {
+                List<String> lines = Files.readAllLines(csvFile.toPath());
+                return containsColumndefinition ? lines.subList(1, lines.size()) : lines;
+            } catch (IOException e) {
+                throw ExceptionUtils.unchecked(e);
+            }
+        };
+        ByteArrayInputStream in = new ByteArrayInputStream("x;y\n1;2\n3;4\n".getBytes(StandardCharsets.UTF_8));
+
+        // when
+        List<String> lines;
+        try (Stream<String> stream = reader.stream(in, true, false)) {
+            lines = stream.collect(Collectors.toList());
+        }
+
+        // then
+        Assert.assertEquals(lines, List.of("1;2", "3;4"));
+        Assert.assertFalse(readFile.get().exists());
+    }
+}
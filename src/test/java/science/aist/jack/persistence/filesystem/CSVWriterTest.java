@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import science.aist.jack.exception.ExceptionUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * <p>Test class for {@link CSVWriter}</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public class CSVWriterTest {
+
+    @Test
+    public void testWriteOutputStream() {
+        // given
+        CSVWriter<String> writer = (File targetFile, List<String> elements, boolean writeColumnDefinition) -> {
+            try {
+                Files.write(targetFile.toPath(), elements);
+                return true;
+            } catch (IOException e) {
+                throw ExceptionUtils.unchecked(e);
+            }
+        };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        boolean written = writer.write(out, List.of("1;2", "3;4").iterator(), false);
+
+        // then
+        Assert.assertTrue(written);
+        Assert.assertEquals(out.toString(StandardCharsets.UTF_8), "1;2" + System.lineSeparator() + "3;4" + System.lineSeparator());
+    }
+}
@@ -15,6 +15,8 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
@@ -183,6 +185,34 @@ public class AdvancedCsvProcessorTest {
         Assert.assertEquals(result, expected);
     }
 
+    @SneakyThrows
+    @Test
+    public void testSidecarCacheWithOtherConfig() {
+        // given
+        Path file = Files.createTempFile("advancedTestFile", ".csv");
+        Files.write(file, List.of("valid,invalid Stuff,fancy Int", "45,a-b,1"));
+        AdvancedCsvProcessor<TestData> removing = new AdvancedCsvProcessor<>(',', null, TestData.class, CsvProcessorConfigBuilder.builder()
+                .headerCharactersToRemove(List.of(" "))
+                .colCharactersToRemove(List.of("-"))
+                .build());
+        AdvancedCsvProcessor<TestData> replacing = new AdvancedCsvProcessor<>(',', null, TestData.class, CsvProcessorConfigBuilder.builder()
+                .headerCharactersToRemove(List.of(" "))
+                .colCharactersToReplace(Map.of("-", "+"))
+                .build());
+        removing.setSidecarCache(true);
+        replacing.setSidecarCache(true);
+
+        // when
+        List<TestData> removed = removing.read(file.toFile(), true, true);
+        List<TestData> replaced = replacing.read(file.toFile(), true, true);
+
+        // then
+        Assert.assertEquals(removed, List.of(new TestData(45, "ab", 1)));
+        Assert.assertEquals(replaced, List.of(new TestData(45, "a+b", 1)));
+        Files.delete(file.resolveSibling(file.getFileName() + ".jackcache"));
+        Files.delete(file);
+    }
+
     @Getter
     @AllArgsConstructor
     @NoArgsConstructor
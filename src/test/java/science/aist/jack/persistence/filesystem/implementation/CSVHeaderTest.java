@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Test class for {@link CSVHeader}</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public class CSVHeaderTest {
+
+    @Test
+    public void testColumnsAreInterned() {
+        // given
+        String column = new String(new char[]{'n', 'a', 'm', 'e'});
+        List<String> columns = Arrays.asList("id", column, "id");
+
+        // when
+        CSVHeader header = new CSVHeader(columns);
+
+        // then
+        Assert.assertSame(header.getNormalizedColumns().get(1), "name");
+        Assert.assertEquals(header.indexOf("id"), 0);
+        Assert.assertEquals(header.indexOf("name"), 1);
+        Assert.assertEquals(header.indexOf("missing"), -1);
+    }
+}
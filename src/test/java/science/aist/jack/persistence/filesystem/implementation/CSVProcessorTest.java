@@ -17,14 +17,28 @@ import science.aist.jack.math.MathUtils;
 import science.aist.jack.persistence.filesystem.CSVReader;
 import science.aist.jack.persistence.filesystem.CSVWriter;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
 
 /**
  * <p>Test class for {@link CSVProcessor}</p>
@@ -86,6 +100,373 @@ public class CSVProcessorTest {
         Assert.assertTrue(read.contains(new Point(2.9873, 1, 6464.234)));
     }
 
+    @Test
+    public void testStream() throws IOException {
+        // given
+        ClassPathResource resource = new ClassPathResource("points.csv");
+        File file = resource.getFile();
+        CSVReader<Point> reader = CSVProcessor.getReader(';', Arrays.asList("x", "y", "z"), columnsToElementFunc);
+
+        // when
+        List<Point> read;
+        try (Stream<Point> stream = reader.stream(file, true)) {
+            read = stream.collect(Collectors.toList());
+        }
+
+        // then
+        Assert.assertEquals(read.size(), 3);
+        Assert.assertTrue(read.contains(new Point(0.5155, 0.88489, 0.568949)));
+        Assert.assertTrue(read.contains(new Point(5.45646, 8.197997, 6.18916)));
+        Assert.assertTrue(read.contains(new Point(2.9873, 1, 6464.234)));
+    }
+
+    @Test
+    public void testStreamIsLazy() throws IOException {
+        // given
+        ClassPathResource resource = new ClassPathResource("points.csv");
+        File file = resource.getFile();
+        AtomicInteger convertedLines = new AtomicInteger();
+        CSVReader<Point> reader = CSVProcessor.getReader(';', Arrays.asList("x", "y", "z"), (splitLines, columnDefinition) -> {
+            convertedLines.incrementAndGet();
+            return columnsToElementFunc.apply(splitLines, columnDefinition);
+        });
+
+        // when
+        Point first;
+        try (Stream<Point> stream = reader.stream(file, true, true)) {
+            first = stream.findFirst().orElseThrow();
+        }
+
+        // then
+        Assert.assertEquals(first, new Point(0.5155, 0.88489, 0.568949));
+        Assert.assertEquals(convertedLines.get(), 1);
+    }
+
+    @Test
+    public void testStreamMapped() throws IOException {
+        // given
+        ClassPathResource resource = new ClassPathResource("points.csv");
+        File file = resource.getFile();
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+
+        // when
+        List<Point> read;
+        try (Stream<Point> stream = processor.streamMapped(file, true, false)) {
+            read = stream.collect(Collectors.toList());
+        }
+
+        // then
+        Assert.assertEquals(read, processor.read(file, true));
+    }
+
+    @Test
+    public void testReadFromCheckpoint() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+        List<Point> points = IntStream.range(0, 1000).mapToObj(i -> new Point(i, -i, i / 4.0)).collect(Collectors.toList());
+        processor.write(file.toFile(), points, true);
+        List<CSVPosition> checkpoints = new ArrayList<>();
+        try (Stream<Point> interrupted = processor.readFrom(file.toFile(), true, false, CSVPosition.START, 100, checkpoints::add)) {
+            interrupted.limit(350).forEach(point -> {
+            });
+        }
+
+        // when
+        CSVPosition resume = checkpoints.get(checkpoints.size() - 1);
+        List<CSVPosition> resumedCheckpoints = new ArrayList<>();
+        List<Point> resumed;
+        try (Stream<Point> read = processor.readFrom(file.toFile(), true, false, resume, 100, resumedCheckpoints::add)) {
+            resumed = read.collect(Collectors.toList());
+        }
+
+        // then
+        Assert.assertEquals(checkpoints.size(), 3);
+        Assert.assertEquals(resume.getRow(), 300);
+        Assert.assertEquals(resumed, points.subList(300, 1000));
+        Assert.assertEquals(resumedCheckpoints.size(), 7);
+        Assert.assertEquals(resumedCheckpoints.get(6), CSVPosition.of(Files.size(file), 1000));
+        Files.delete(file);
+    }
+
+    @Test
+    public void testStreamMappedViews() throws IOException {
+        // given
+        ClassPathResource resource = new ClassPathResource("points.csv");
+        File file = resource.getFile();
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+
+        // when
+        List<Point> read;
+        try (Stream<Point> stream = processor.streamMapped(file, true, true,
+                (views, columns) -> new Point(Double.parseDouble(views.get(columns.indexOf("x")).toString()), 0, 0))) {
+            read = stream.collect(Collectors.toList());
+        }
+
+        // then
+        Assert.assertEquals(read, List.of(new Point(0.5155, 0, 0), new Point(5.45646, 0, 0), new Point(2.9873, 0, 0)));
+    }
+
+    @Test
+    public void testReadWhere() throws IOException {
+        // given
+        ClassPathResource resource = new ClassPathResource("points.csv");
+        File file = resource.getFile();
+        AtomicInteger convertedLines = new AtomicInteger();
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, (splitLines, columnDefinition) -> {
+            convertedLines.incrementAndGet();
+            return columnsToElementFunc.apply(splitLines, columnDefinition);
+        });
+        Map<String, Predicate<CharSequence>> predicates = new LinkedHashMap<>();
+        predicates.put("z", z -> z.charAt(0) != '0');
+        predicates.put("y", y -> y.length() > 1);
+
+        // when
+        List<Point> read = processor.readWhere(file, true, true, predicates);
+
+        // then
+        Assert.assertEquals(read, List.of(new Point(5.45646, 8.197997, 6.18916)));
+        Assert.assertEquals(convertedLines.get(), 1);
+        Assert.assertEquals(processor.getErrorCounters().getRejectedRows(), 0L);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testReadWhereUnknownColumn() throws IOException {
+        // given
+        ClassPathResource resource = new ClassPathResource("points.csv");
+        File file = resource.getFile();
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+
+        // when
+        processor.readWhere(file, true, true, Map.of("w", value -> true));
+
+        // then
+    }
+
+    @Test
+    public void testReadColumns() throws IOException {
+        // given
+        ClassPathResource resource = new ClassPathResource("points.csv");
+        File file = resource.getFile();
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+        Map<String, CSVColumnType> projection = new LinkedHashMap<>();
+        projection.put("z", CSVColumnType.DOUBLE);
+        projection.put("x", CSVColumnType.STRING);
+
+        // when
+        CSVColumnTable table = processor.readColumns(file, true, false, projection);
+
+        // then
+        Assert.assertEquals(table.getRowCount(), 3);
+        Assert.assertEquals(table.getColumnNames(), List.of("z", "x"));
+        Assert.assertEquals(table.getDoubleColumn("z"), new double[]{0.568949, 6.18916, 6464.234});
+        Assert.assertEquals(table.getStringColumn("x").get(1), "5.45646");
+    }
+
+    @Test
+    public void testReadColumnsTypes() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        Files.write(file, List.of("id;name;count;ignored", "1;a;10;x", "2;b;;\"y\"", "3;a;x", "4"));
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', null, elementToColumnFunc, columnsToElementFunc);
+        Map<String, CSVColumnType> projection = new LinkedHashMap<>();
+        projection.put("id", CSVColumnType.LONG);
+        projection.put("name", CSVColumnType.STRING);
+        projection.put("count", CSVColumnType.INT);
+
+        // when
+        CSVColumnTable table = processor.readColumns(file.toFile(), true, true, projection);
+
+        // then
+        Assert.assertEquals(table.getLongColumn("id"), new long[]{1, 2, 3, 4});
+        Assert.assertEquals(table.getIntColumn("count"), new int[]{10, 0, 0, 0});
+        Assert.assertEquals(table.getStringColumn("name").getCodes(), new int[]{0, 1, 0, 2});
+        Assert.assertEquals(table.getStringColumn("name").getDictionary(), List.of("a", "b", ""));
+        Files.delete(file);
+    }
+
+    @Test
+    public void testInferSchema() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        Files.write(file, List.of("id;big;value;flag;time;name;empty", "1;3000000000;1;true;2020-01-31;a;",
+                "2;4;2.5;FALSE;2020-01-31T12:30:15.250Z;7;", "x;5;6;false;2020-02-01 00:00;b;"));
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', null, elementToColumnFunc, columnsToElementFunc);
+
+        // when
+        Map<String, CSVColumnType> schema = processor.inferSchema(file.toFile(), true, true, 2);
+
+        // then
+        Map<String, CSVColumnType> expected = new LinkedHashMap<>();
+        expected.put("id", CSVColumnType.INT);
+        expected.put("big", CSVColumnType.LONG);
+        expected.put("value", CSVColumnType.DOUBLE);
+        expected.put("flag", CSVColumnType.BOOLEAN);
+        expected.put("time", CSVColumnType.TIMESTAMP);
+        expected.put("name", CSVColumnType.STRING);
+        expected.put("empty", CSVColumnType.STRING);
+        Assert.assertEquals(schema, expected);
+        Assert.assertEquals(List.copyOf(schema.keySet()), List.copyOf(expected.keySet()));
+        Files.delete(file);
+    }
+
+    @Test
+    public void testReadColumnsInferredAndWidened() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        Files.write(file, List.of("id;value;flag;time", "1;1;true;2020-01-31", "2;;false;2020-01-31T12:30:15.250+01:00",
+                "3;3000000000;true;", "4;2.5;no;2020-02-01", "x;3;false;2020-02-01"));
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', null, elementToColumnFunc, columnsToElementFunc);
+
+        // when
+        CSVColumnTable table = processor.readColumns(file.toFile(), true, true, 2);
+
+        // then
+        Assert.assertEquals(table.getRowCount(), 5);
+        Assert.assertEquals(table.getColumnType("id"), CSVColumnType.STRING);
+        Assert.assertEquals(List.of(table.getStringColumn("id").get(0), table.getStringColumn("id").get(4)), List.of("1", "x"));
+        Assert.assertEquals(table.getColumnType("value"), CSVColumnType.DOUBLE);
+        Assert.assertEquals(table.getDoubleColumn("value"), new double[]{1, 0, 3e9, 2.5, 3});
+        Assert.assertEquals(table.getColumnType("flag"), CSVColumnType.STRING);
+        Assert.assertEquals(table.getStringColumn("flag").getDictionary(), List.of("true", "false", "no"));
+        Assert.assertEquals(table.getColumnType("time"), CSVColumnType.TIMESTAMP);
+        Assert.assertEquals(table.getTimestampColumn("time"), new long[]{1580428800000L, 1580470215250L, 0, 1580515200000L, 1580515200000L});
+        Files.delete(file);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testReadColumnsUnknownColumn() throws IOException {
+        // given
+        ClassPathResource resource = new ClassPathResource("points.csv");
+        File file = resource.getFile();
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+
+        // when
+        processor.readColumns(file, true, true, Map.of("w", CSVColumnType.DOUBLE));
+
+        // then
+    }
+
+    @Test
+    public void testNormalizeColumnDefinitionOncePerFile() throws IOException {
+        // given
+        ClassPathResource resource = new ClassPathResource("points.csv");
+        File file = resource.getFile();
+        AtomicInteger normalizations = new AtomicInteger();
+        List<List<String>> columnDefinitions = new ArrayList<>();
+        CSVProcessor<Point> processor = new CSVProcessor<>(';', null, elementToColumnFunc, (line, columns) -> {
+            columnDefinitions.add(columns);
+            return columnsToElementFunc.apply(line, columns);
+        }) {
+            @Override
+            protected List<String> normalizeColumnDefinition(List<String> columnHeader) {
+                normalizations.incrementAndGet();
+                return columnHeader.stream().map(String::toLowerCase).collect(Collectors.toList());
+            }
+        };
+
+        // when
+        List<Point> read = processor.read(file, true, true);
+
+        // then
+        Assert.assertEquals(read.size(), 3);
+        Assert.assertEquals(normalizations.get(), 1);
+        Assert.assertEquals(columnDefinitions.get(0), List.of("x", "y", "z"));
+        Assert.assertSame(columnDefinitions.get(1), columnDefinitions.get(0));
+        Assert.assertSame(columnDefinitions.get(2), columnDefinitions.get(0));
+    }
+
+    @Test
+    public void testReadAsync() throws Exception {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        List<Point> points = IntStream.range(0, 5000).mapToObj(i -> new Point(i, i, i)).collect(Collectors.toList());
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+        processor.write(file.toFile(), points, true);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        List<Point> read = new ArrayList<>();
+
+        // when
+        processor.readAsync(file.toFile(), true, false, executor, read::add).get(10, TimeUnit.SECONDS);
+
+        // then
+        Assert.assertEquals(read, points);
+        executor.shutdown();
+        Files.delete(file);
+    }
+
+    @Test
+    public void testReadAsyncFailure() throws Exception {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        Files.write(file, List.of("1;2;3", "a;b;c"));
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        // when
+        try {
+            processor.readAsync(file.toFile(), false, false, executor, p -> {
+            }).get(10, TimeUnit.SECONDS);
+            Assert.fail("reading must fail");
+        } catch (ExecutionException e) {
+            // then
+            Assert.assertTrue(e.getCause() instanceof NumberFormatException);
+        } finally {
+            executor.shutdown();
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testPublishCancel() throws Exception {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+        processor.write(file.toFile(), IntStream.range(0, 100_000).mapToObj(i -> new Point(i, i, i)), false);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        List<Point> read = new ArrayList<>();
+        CountDownLatch received = new CountDownLatch(10);
+
+        // when
+        processor.publish(file.toFile(), false, false, executor).subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(Point item) {
+                read.add(item);
+                received.countDown();
+                if (read.size() == 10) {
+                    subscription.cancel();
+                } else {
+                    subscription.request(1);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                Assert.fail("unexpected error", throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                // not expected, as the subscription is cancelled
+            }
+        });
+
+        // then
+        Assert.assertTrue(received.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(read, IntStream.range(0, 10).mapToObj(i -> new Point(i, i, i)).collect(Collectors.toList()));
+        Files.delete(file);
+    }
+
     @Test
     public void testWrite() throws IOException {
         // given
@@ -109,6 +490,216 @@ public class CSVProcessorTest {
         Assert.assertTrue(read.contains(new Point(2.9873, 1, 6464.234)));
     }
 
+    @Test
+    public void testWriteStream() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+        processor.setWriteBufferSize(100);
+
+        // when
+        boolean write = processor.write(file.toFile(), IntStream.range(0, 1000).mapToObj(i -> new Point(i, -i, i / 4.0)), true);
+
+        // then
+        Assert.assertTrue(write);
+        List<Point> read = processor.read(file.toFile(), true);
+        Assert.assertEquals(read, IntStream.range(0, 1000).mapToObj(i -> new Point(i, -i, i / 4.0)).collect(Collectors.toList()));
+        Files.delete(file);
+    }
+
+    @Test
+    public void testWriteNonAscii() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        List<String> values = List.of("\u00e4\u00f6\u00fc", "\u20ac \"x\"", "\ud83d\ude00;", "\ud83d");
+        CSVProcessor<List<String>> processor = CSVProcessor.getProcessor(',', List.of("a"), (elem, columns) -> elem, (line, columns) -> line);
+        processor.setWriteBufferSize(8);
+
+        // when
+        boolean write = processor.write(file.toFile(), List.of(values));
+
+        // then
+        Assert.assertTrue(write);
+        Assert.assertEquals(processor.read(file.toFile()), List.of(List.of("\u00e4\u00f6\u00fc", "\u20ac \"x\"", "\ud83d\ude00;", "?", "")));
+        Files.delete(file);
+    }
+
+    @Test
+    public void testAppend() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+
+        // when
+        processor.append(file.toFile(), List.of(new Point(1, 2, 3)).iterator(), true);
+        processor.append(file.toFile(), List.of(new Point(4, 5, 6)).iterator(), true);
+
+        // then
+        Assert.assertEquals(processor.read(file.toFile(), true), List.of(new Point(1, 2, 3), new Point(4, 5, 6)));
+        Files.delete(file);
+    }
+
+    @Test
+    public void testFlushPolicy() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+        processor.setFlushPolicy(CSVFlushPolicy.everyLines(2));
+        List<Long> fileSizes = new ArrayList<>();
+        Iterator<Point> points = IntStream.range(0, 5)
+                .mapToObj(i -> {
+                    fileSizes.add(file.toFile().length());
+                    return new Point(i, i, i);
+                })
+                .iterator();
+
+        // when
+        processor.write(file.toFile(), points, false);
+
+        // then
+        Assert.assertEquals(fileSizes.get(0), Long.valueOf(0));
+        Assert.assertEquals(fileSizes.get(1), Long.valueOf(0));
+        Assert.assertTrue(fileSizes.get(2) > 0);
+        Assert.assertEquals(fileSizes.get(3), fileSizes.get(2));
+        Assert.assertTrue(fileSizes.get(4) > fileSizes.get(3));
+        Files.delete(file);
+    }
+
+    @Test
+    public void testWriteGzip() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv.gz");
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+        List<Point> points = IntStream.range(0, 1000).mapToObj(i -> new Point(i, -i, i / 4.0)).collect(Collectors.toList());
+
+        // when
+        boolean write = processor.write(file, points.iterator(), true);
+
+        // then
+        Assert.assertTrue(write);
+        byte[] bytes = Files.readAllBytes(file);
+        Assert.assertEquals(bytes[0], (byte) 0x1f);
+        Assert.assertEquals(bytes[1], (byte) 0x8b);
+        Assert.assertEquals(processor.read(file, true, false), points);
+        Files.delete(file);
+    }
+
+    @Test
+    public void testAppendGzip() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv.gz");
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+
+        // when
+        processor.append(file.toFile(), List.of(new Point(1, 2, 3)).iterator(), true);
+        processor.append(file.toFile(), List.of(new Point(4, 5, 6)).iterator(), true);
+
+        // then
+        try (Stream<Point> read = processor.stream(file, true, false)) {
+            Assert.assertEquals(read.collect(Collectors.toList()), List.of(new Point(1, 2, 3), new Point(4, 5, 6)));
+        }
+        Files.delete(file);
+    }
+
+    @Test
+    public void testReadDeflateStream() throws IOException {
+        // given
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes)) {
+            Assert.assertTrue(processor.write(out, List.of(new Point(1, 2, 3), new Point(4, 5, 6)).iterator(), true));
+        }
+
+        // when
+        List<Point> read = processor.read(new ByteArrayInputStream(bytes.toByteArray()), true, false);
+
+        // then
+        Assert.assertEquals(read, List.of(new Point(1, 2, 3), new Point(4, 5, 6)));
+    }
+
+    @Test
+    public void testReadUncompressedStream() {
+        // given
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        processor.write(bytes, List.of(new Point(1, 2, 3)).iterator(), false);
+
+        // when
+        List<Point> read = processor.read(new ByteArrayInputStream(bytes.toByteArray()), false, false);
+
+        // then
+        Assert.assertEquals(read, List.of(new Point(1, 2, 3)));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testStreamMappedGzip() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv.gz");
+        file.toFile().deleteOnExit();
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+        processor.write(file, List.of(new Point(1, 2, 3)).iterator(), false);
+
+        // when
+        processor.streamMapped(file.toFile(), false, false);
+    }
+
+    @Test
+    public void testDeadLetterParallel() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        Files.write(file, List.of("1;2;3", "4;five;6", "7;8;9"));
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+        processor.setParallelChunkSize(4);
+        Queue<CSVRejectedRow> deadLetters = new ConcurrentLinkedQueue<>();
+        processor.setErrorPolicy(CSVErrorPolicy.deadLetter(deadLetters));
+
+        // when
+        List<Point> read = processor.readParallel(file.toFile(), false, false, ForkJoinPool.commonPool());
+
+        // then
+        Assert.assertEquals(read, List.of(new Point(1, 2, 3), new Point(7, 8, 9)));
+        Assert.assertEquals(deadLetters.size(), 1);
+        Assert.assertEquals(deadLetters.peek().getRow(), -1);
+        Assert.assertEquals(deadLetters.peek().getLine(), "4;five;6");
+        Assert.assertEquals(processor.getErrorCounters().getRejectedRows(), 1);
+        Files.delete(file);
+    }
+
+    @Test
+    public void testDeadLetterAsync() throws Exception {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        Files.write(file, List.of("1;2;3", " 4 ; five;6", "7;8;9"));
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+        Queue<CSVRejectedRow> deadLetters = new ConcurrentLinkedQueue<>();
+        processor.setErrorPolicy(CSVErrorPolicy.deadLetter(deadLetters));
+        ExecutorService executor = Executors.newCachedThreadPool();
+        List<Point> read = new ArrayList<>();
+
+        // when
+        processor.readAsync(file.toFile(), false, false, executor, read::add).get(10, TimeUnit.SECONDS);
+
+        // then
+        Assert.assertEquals(read, List.of(new Point(1, 2, 3), new Point(7, 8, 9)));
+        Assert.assertEquals(deadLetters.size(), 1);
+        Assert.assertEquals(deadLetters.peek().getRow(), 1);
+        Assert.assertEquals(deadLetters.peek().getLine(), " 4 ; five;6");
+        executor.shutdown();
+        Files.delete(file);
+    }
+
+    @Test(expectedExceptions = NumberFormatException.class)
+    public void testDefaultErrorPolicy() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        file.toFile().deleteOnExit();
+        Files.write(file, List.of("1;2;3", "4;five;6"));
+        CSVProcessor<Point> processor = CSVProcessor.getProcessor(';', Arrays.asList("x", "y", "z"), elementToColumnFunc, columnsToElementFunc);
+
+        // when
+        processor.read(file.toFile());
+    }
+
     @Test
     public void testGetReader() {
         // given
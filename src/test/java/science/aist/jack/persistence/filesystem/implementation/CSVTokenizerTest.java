@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>Test class for {@link CSVTokenizer}</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public class CSVTokenizerTest {
+
+    /**
+     * The split implementation which was used by {@link CSVProcessor} before the {@link CSVTokenizer}
+     */
+    private static List<String> legacySplit(String string, String delimiter) {
+        return Stream.of(string.replace(delimiter, " " + delimiter + " ").split(delimiter))
+                .map(String::trim)
+                .collect(Collectors.toList());
+    }
+
+    private static List<List<String>> tokenize(String content, char separator, int bufferSize) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (CSVTokenizer tokenizer = new CSVTokenizer(new StringReader(content), separator, bufferSize)) {
+            List<String> csvRecord;
+            while ((csvRecord = tokenizer.nextRecord()) != null) {
+                records.add(csvRecord);
+            }
+        }
+        return records;
+    }
+
+    @Test
+    public void testNextRecordMatchesLegacySplit() throws IOException {
+        // given
+        List<String> lines = List.of("a;b;c", "a;b;", "a;;c", ";b;c", ";;", "", " a ; b\t;  c  ", "0.5155; 0.88489; 0.568949");
+
+        // when
+        List<List<String>> records = tokenize(String.join("\n", lines), ';', 8192);
+
+        // then
+        Assert.assertEquals(records.size(), lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            Assert.assertEquals(records.get(i), legacySplit(lines.get(i), ";"));
+        }
+    }
+
+    @Test
+    public void testNextRecordLineSeparators() throws IOException {
+        // given
+        String content = "a,b\r\nc,d\re,f\ng,h\n";
+
+        // when
+        List<List<String>> records = tokenize(content, ',', 8192);
+
+        // then
+        Assert.assertEquals(records, List.of(List.of("a", "b"), List.of("c", "d"), List.of("e", "f"), List.of("g", "h")));
+    }
+
+    @Test
+    public void testNextRecordSmallBuffer() throws IOException {
+        // given
+        String longValue = "x".repeat(100);
+        String content = longValue + ";" + longValue + "\r\n1;2\r\n" + longValue;
+
+        // when
+        List<List<String>> records = tokenize(content, ';', 16);
+
+        // then
+        Assert.assertEquals(records, List.of(List.of(longValue, longValue), List.of("1", "2"), List.of(longValue)));
+    }
+
+    @Test
+    public void testNextRecordQuoted() throws IOException {
+        // given
+        String content = "\"a;b\";\"say \"\"hi\"\"\"; \" padded \" ;x\"y\n\"multi\r\nline\";\"\"\n";
+
+        // when
+        List<List<String>> records = tokenize(content, ';', 8192);
+
+        // then
+        Assert.assertEquals(records, List.of(List.of("a;b", "say \"hi\"", " padded ", "x\"y"), List.of("multi\r\nline", "")));
+    }
+
+    @Test
+    public void testNextRecordQuotedSmallBuffer() throws IOException {
+        // given
+        String value = "\"\"" + "x;\n".repeat(20) + "\"\"";
+        String escaped = "\"" + value.replace("\"", "\"\"") + "\"";
+        String content = escaped + ";" + escaped + "\n1;2";
+
+        // when
+        List<List<String>> records = tokenize(content, ';', 16);
+
+        // then
+        Assert.assertEquals(records, List.of(List.of(value, value), List.of("1", "2")));
+    }
+
+    @Test
+    public void testNextRecordUnclosedQuote() throws IOException {
+        // given
+        String content = "a;\"b;c\nd";
+
+        // when
+        List<List<String>> records = tokenize(content, ';', 8192);
+
+        // then
+        Assert.assertEquals(records, List.of(List.of("a", "b;c\nd")));
+    }
+
+    @Test
+    public void testNextRecordQuotedAtEndOfInput() throws IOException {
+        // given
+        String content = "a;\"b\"\n\"x\"\"y\"\n\"c\";";
+
+        // when
+        List<List<String>> records = tokenize(content, ';', 8192);
+
+        // then
+        Assert.assertEquals(records, List.of(List.of("a", "b"), List.of("x\"y"), List.of("c", "")));
+    }
+
+    @Test
+    public void testNextRecordEmptyInput() throws IOException {
+        // given
+
+        // when
+        List<List<String>> records = tokenize("", ';', 8192);
+
+        // then
+        Assert.assertTrue(records.isEmpty());
+    }
+}
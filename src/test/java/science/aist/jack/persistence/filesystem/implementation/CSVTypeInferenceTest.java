@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+
+/**
+ * <p>Test class for {@link CSVTypeInference}</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public class CSVTypeInferenceTest {
+
+    @Test
+    public void testInfer() {
+        Assert.assertNull(CSVTypeInference.infer(""));
+        Assert.assertEquals(CSVTypeInference.infer("-12"), CSVColumnType.INT);
+        Assert.assertEquals(CSVTypeInference.infer("12345678901"), CSVColumnType.LONG);
+        Assert.assertEquals(CSVTypeInference.infer("1e3"), CSVColumnType.DOUBLE);
+        Assert.assertEquals(CSVTypeInference.infer("True"), CSVColumnType.BOOLEAN);
+        Assert.assertEquals(CSVTypeInference.infer("2020-02-29 23:59:59"), CSVColumnType.TIMESTAMP);
+        Assert.assertEquals(CSVTypeInference.infer("2021-02-29"), CSVColumnType.STRING);
+        Assert.assertEquals(CSVTypeInference.infer("abc"), CSVColumnType.STRING);
+    }
+
+    @Test
+    public void testWiden() {
+        Assert.assertEquals(CSVTypeInference.widen(null, CSVColumnType.INT), CSVColumnType.INT);
+        Assert.assertEquals(CSVTypeInference.widen(CSVColumnType.INT, null), CSVColumnType.INT);
+        Assert.assertEquals(CSVTypeInference.widen(CSVColumnType.INT, CSVColumnType.LONG), CSVColumnType.LONG);
+        Assert.assertEquals(CSVTypeInference.widen(CSVColumnType.LONG, CSVColumnType.DOUBLE), CSVColumnType.DOUBLE);
+        Assert.assertEquals(CSVTypeInference.widen(CSVColumnType.INT, CSVColumnType.BOOLEAN), CSVColumnType.STRING);
+        Assert.assertEquals(CSVTypeInference.widen(CSVColumnType.TIMESTAMP, CSVColumnType.DOUBLE), CSVColumnType.STRING);
+    }
+
+    @Test
+    public void testParseTimestamp() {
+        Assert.assertEquals(CSVTypeInference.parseTimestamp("1970-01-01", -1), 0L);
+        Assert.assertEquals(CSVTypeInference.parseTimestamp("2020-01-31T12:30:15.1234-02:30", -1),
+                OffsetDateTime.parse("2020-01-31T12:30:15.123-02:30").toInstant().toEpochMilli());
+        Assert.assertEquals(CSVTypeInference.parseTimestamp("1969-12-31T23:59Z", -1), Instant.parse("1969-12-31T23:59:00Z").toEpochMilli());
+        Assert.assertEquals(CSVTypeInference.parseTimestamp("2020-01-31T24:00", -1), -1L);
+        Assert.assertEquals(CSVTypeInference.parseTimestamp("2020-01-31T12:3", -1), -1L);
+        Assert.assertEquals(CSVTypeInference.parseTimestamp("2020-01-31T12:30:1", -1), -1L);
+        Assert.assertEquals(CSVTypeInference.parseTimestamp("2020-01-31T12:30:15.", -1), -1L);
+        Assert.assertEquals(CSVTypeInference.parseTimestamp("2020-01-31T12:30+01", -1), -1L);
+        Assert.assertEquals(CSVTypeInference.parseTimestamp("2020-1-31", -1), -1L);
+    }
+}
@@ -12,12 +12,25 @@ package science.aist.jack.persistence.filesystem.implementation;
 import lombok.CustomLog;
 import org.testng.Assert;
 import org.testng.annotations.Test;
+import science.aist.jack.persistence.core.Codecs;
 import science.aist.jack.persistence.filesystem.AbstractFileStorageTest;
 import science.aist.jack.persistence.filesystem.domain.JavaPoint;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * <p>Test class for GenericFileStorage</p>
@@ -125,6 +138,52 @@ public class GenericFileStorageTest extends AbstractFileStorageTest {
         }
     }
 
+    @Test
+    public void testReadParallel() throws IOException {
+        // given
+        GenericFileStorage<JavaPoint> storage = new GenericFileStorage<>(JavaPoint.class, ".javapoint", "ParallelJavaPoint", 1);
+        Set<JavaPoint> points = new HashSet<>();
+        for (int i = 0; i < 600; i++) {
+            JavaPoint point = new JavaPoint(i, -i);
+            points.add(point);
+            storage.create(point);
+        }
+        Files.write(Paths.get(storage.getPath(), "broken.javapoint"), new byte[]{1, 2, 3});
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // when
+        Collection<JavaPoint> read;
+        try {
+            read = storage.readParallel(executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        // then
+        Assert.assertEquals(read.size(), points.size());
+        Assert.assertEquals(new HashSet<>(read), points);
+        Assert.assertEquals(new HashSet<>(storage.read()), points);
+        Assert.assertTrue(storage.deleteAll());
+    }
+
+    @Test
+    public void testStream() {
+        // given
+        GenericFileStorage<JavaPoint> storage = new GenericFileStorage<>(JavaPoint.class, ".javapoint", "StreamJavaPoint");
+        storage.create(new JavaPoint(1, 2));
+        storage.create(new JavaPoint(3, 4));
+
+        // when
+        Set<JavaPoint> read;
+        try (Stream<JavaPoint> stream = storage.stream()) {
+            read = stream.collect(Collectors.toSet());
+        }
+
+        // then
+        Assert.assertEquals(read, Set.of(new JavaPoint(1, 2), new JavaPoint(3, 4)));
+        Assert.assertTrue(storage.deleteAll());
+    }
+
     @Test
     public void testUpdate1() {
         // given
@@ -177,6 +236,157 @@ public class GenericFileStorageTest extends AbstractFileStorageTest {
         Assert.assertFalse(success);
     }
 
+    @Test
+    public void testShardedLayout() throws IOException {
+        // given
+        GenericFileStorage<JavaPoint> sharded = new GenericFileStorage<>(JavaPoint.class, ".javapoint", "ShardedJavaPoint", 2);
+        JavaPoint jp = new JavaPoint(1, 2);
+
+        // when
+        String key = sharded.create(jp, "test");
+
+        // then
+        Path root = Paths.get(sharded.getPath());
+        Path file;
+        try (Stream<Path> paths = Files.walk(root)) {
+            file = paths.filter(path -> path.getFileName().toString().equals(key + ".javapoint")).findFirst().orElseThrow();
+        }
+        Assert.assertEquals(root.relativize(file).getNameCount(), 3);
+        Assert.assertTrue(file.getParent().getFileName().toString().matches("[0-9a-f]{2}"));
+        Assert.assertEquals(sharded.read(key), jp);
+        Assert.assertEquals(sharded.read().size(), 1);
+        Assert.assertTrue(sharded.update(key, new JavaPoint(3, 4)));
+        Assert.assertEquals(sharded.read(key), new JavaPoint(3, 4));
+        Assert.assertTrue(sharded.delete(key));
+        Assert.assertNull(sharded.read(key));
+        Assert.assertTrue(sharded.deleteAll());
+    }
+
+    @Test
+    public void testMigrateLayout() {
+        // given
+        GenericFileStorage<JavaPoint> flat = new GenericFileStorage<>(JavaPoint.class, ".javapoint", "MigratedJavaPoint");
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            keys.add(flat.create(new JavaPoint(i, i)));
+        }
+        GenericFileStorage<JavaPoint> sharded = new GenericFileStorage<>(JavaPoint.class, ".javapoint", "MigratedJavaPoint", 2);
+
+        // when
+        long moved = sharded.migrateLayout();
+
+        // then
+        Assert.assertEquals(moved, 5);
+        Assert.assertEquals(sharded.migrateLayout(), 0);
+        for (int i = 0; i < keys.size(); i++) {
+            Assert.assertNull(flat.read(keys.get(i)));
+            Assert.assertEquals(sharded.read(keys.get(i)), new JavaPoint(i, i));
+        }
+        Assert.assertEquals(flat.migrateLayout(), 5);
+        Assert.assertEquals(flat.read(keys.get(0)), new JavaPoint(0, 0));
+        Assert.assertTrue(flat.deleteAll());
+    }
+
+    @Test
+    public void testBinaryCodec() {
+        // given
+        GenericFileStorage<JavaPoint> binary = new GenericFileStorage<>(JavaPoint.class, ".javapoint", "BinaryJavaPoint", 0, Codecs.binary(JavaPoint.class));
+        JavaPoint jp = new JavaPoint(1, 2);
+
+        // when
+        String key = binary.create(jp);
+
+        // then
+        Assert.assertEquals(binary.read(key), jp);
+        Assert.assertEquals(new File(binary.getPath(), key + ".javapoint").length(), 17);
+        Assert.assertTrue(binary.deleteAll());
+    }
+
+    @Test
+    public void testConcurrentCreateWithSameKey() throws Exception {
+        // given
+        GenericFileStorage<JavaPoint> storage = new GenericFileStorage<>(JavaPoint.class, ".javapoint", "ConcurrentJavaPoint");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // when
+        List<Future<String>> keys = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            JavaPoint point = new JavaPoint(i, i);
+            keys.add(executor.submit(() -> storage.create(point, "same")));
+        }
+        Set<String> distinctKeys = new HashSet<>();
+        for (Future<String> key : keys) {
+            distinctKeys.add(key.get());
+        }
+        executor.shutdown();
+
+        // then
+        Assert.assertEquals(distinctKeys.size(), 32);
+        Assert.assertEquals(storage.read().size(), 32);
+        assertNoTemporaryFiles(storage);
+        Assert.assertTrue(storage.deleteAll());
+    }
+
+    @Test
+    public void testPerWriteDurability() throws IOException {
+        // given
+        GenericFileStorage<JavaPoint> storage = new GenericFileStorage<>(JavaPoint.class, ".javapoint", "DurableJavaPoint", 1);
+        storage.setDurabilityPolicy(FileDurabilityPolicy.perWrite());
+
+        // when
+        String key = storage.create(new JavaPoint(1, 2));
+        boolean updated = storage.update(key, new JavaPoint(3, 4));
+
+        // then
+        Assert.assertTrue(updated);
+        Assert.assertEquals(storage.read(key), new JavaPoint(3, 4));
+        assertNoTemporaryFiles(storage);
+        Assert.assertTrue(storage.deleteAll());
+    }
+
+    @Test
+    public void testGroupCommit() throws Exception {
+        // given
+        GenericFileStorage<JavaPoint> storage = new GenericFileStorage<>(JavaPoint.class, ".javapoint", "GroupCommitJavaPoint");
+        storage.setDurabilityPolicy(FileDurabilityPolicy.groupCommit(20));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // when
+        List<Future<String>> keys = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            JavaPoint point = new JavaPoint(i, i);
+            keys.add(executor.submit(() -> {
+                String key = storage.create(new JavaPoint(-1, -1));
+                storage.update(key, point);
+                return key;
+            }));
+        }
+
+        // then
+        for (int i = 0; i < keys.size(); i++) {
+            Assert.assertEquals(storage.read(keys.get(i).get()), new JavaPoint(i, i));
+        }
+        executor.shutdown();
+        assertNoTemporaryFiles(storage);
+        Assert.assertTrue(storage.deleteAll());
+    }
+
+    private static void assertNoTemporaryFiles(GenericFileStorage<?> storage) throws IOException {
+        try (Stream<Path> paths = Files.walk(Paths.get(storage.getPath()))) {
+            Assert.assertTrue(paths.noneMatch(path -> path.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidShardLevels() {
+        // given
+
+        // when
+        new GenericFileStorage<>(JavaPoint.class, ".javapoint", "ShardedJavaPoint", 5);
+
+        // then
+    }
+
     // deleteAllTest priority is necessary so the test is always the last one otherwise the can be concurrency problems
     @Test(priority = 99)
     public void testDeleteAll() {
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import science.aist.jack.persistence.core.Codec;
+import science.aist.jack.persistence.core.Codecs;
+import science.aist.jack.persistence.filesystem.domain.JavaPoint;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>Test class for {@link LogStructuredStorage}</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public class LogStructuredStorageTest {
+    private final Codec<JavaPoint> codec = Codecs.binary(JavaPoint.class);
+
+    @Test
+    public void testCreateReadUpdateDelete() {
+        // given
+        LogStructuredStorage<JavaPoint> storage = new LogStructuredStorage<>(codec, "LogJavaPoint");
+        storage.deleteAll();
+
+        // when
+        String key = storage.create(new JavaPoint(1, 2));
+        String secondKey = storage.create(new JavaPoint(3, 4), key);
+
+        // then
+        Assert.assertNotEquals(secondKey, key);
+        Assert.assertEquals(storage.read(key), new JavaPoint(1, 2));
+        Assert.assertTrue(storage.update(key, new JavaPoint(5, 6)));
+        Assert.assertEquals(storage.read(key), new JavaPoint(5, 6));
+        Assert.assertFalse(storage.update("missing", new JavaPoint(5, 6)));
+        Assert.assertTrue(storage.delete(key));
+        Assert.assertFalse(storage.delete(key));
+        Assert.assertNull(storage.read(key));
+        Assert.assertEquals(storage.read(), List.of(new JavaPoint(3, 4)));
+        Assert.assertTrue(storage.deleteAll());
+        Assert.assertTrue(storage.read().isEmpty());
+        storage.close();
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testReadAfterClose() throws IOException {
+        // given
+        LogStructuredStorage<JavaPoint> storage = new LogStructuredStorage<>(codec, "ClosedLogJavaPoint");
+        storage.deleteAll();
+        String key = storage.create(new JavaPoint(1, 2));
+        storage.close();
+
+        // when
+        try {
+            storage.read(key);
+        } finally {
+            for (Path file : segments(storage)) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void testReopen() {
+        // given
+        LogStructuredStorage<JavaPoint> storage = new LogStructuredStorage<>(codec, "ReopenedLogJavaPoint", 256);
+        storage.deleteAll();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            keys.add(storage.create(new JavaPoint(i, i), "key" + i));
+        }
+        for (int i = 0; i < 100; i += 2) {
+            storage.update(keys.get(i), new JavaPoint(-i, -i));
+        }
+        storage.delete(keys.get(1));
+        storage.close();
+
+        // when
+        LogStructuredStorage<JavaPoint> reopened = new LogStructuredStorage<>(codec, "ReopenedLogJavaPoint", 256);
+
+        // then
+        Assert.assertNull(reopened.read(keys.get(1)));
+        Assert.assertEquals(reopened.read(keys.get(2)), new JavaPoint(-2, -2));
+        Assert.assertEquals(reopened.read(keys.get(3)), new JavaPoint(3, 3));
+        Assert.assertEquals(reopened.read().size(), 99);
+        Assert.assertTrue(reopened.deleteAll());
+        reopened.close();
+    }
+
+    @Test
+    public void testTornRecordIsTruncated() throws IOException {
+        // given
+        LogStructuredStorage<JavaPoint> storage = new LogStructuredStorage<>(codec, "TornLogJavaPoint");
+        storage.deleteAll();
+        String key = storage.create(new JavaPoint(1, 2));
+        String torn = storage.create(new JavaPoint(3, 4));
+        storage.close();
+        Path segment = segments(storage).get(0);
+        long size = Files.size(segment);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(size - 3);
+        }
+
+        // when
+        LogStructuredStorage<JavaPoint> reopened = new LogStructuredStorage<>(codec, "TornLogJavaPoint");
+
+        // then
+        Assert.assertEquals(reopened.read(key), new JavaPoint(1, 2));
+        Assert.assertNull(reopened.read(torn));
+        String next = reopened.create(new JavaPoint(5, 6));
+        Assert.assertEquals(reopened.read(next), new JavaPoint(5, 6));
+        Assert.assertTrue(reopened.deleteAll());
+        reopened.close();
+    }
+
+    @Test(expectedExceptions = StreamCorruptedException.class)
+    public void testCorruptSealedSegmentIsRejected() throws IOException {
+        // given
+        LogStructuredStorage<JavaPoint> storage = new LogStructuredStorage<>(codec, "CorruptLogJavaPoint", 256);
+        storage.deleteAll();
+        for (int i = 0; i < 20; i++) {
+            storage.create(new JavaPoint(i, i));
+        }
+        storage.close();
+        List<Path> files = segments(storage);
+        Assert.assertTrue(files.size() > 1);
+        Path sealed = files.get(0);
+        long size = Files.size(sealed);
+        try (RandomAccessFile file = new RandomAccessFile(sealed.toFile(), "rw")) {
+            file.seek(size / 2);
+            int value = file.read();
+            file.seek(size / 2);
+            file.write(value ^ 0xFF);
+        }
+
+        // when
+        try {
+            new LogStructuredStorage<>(codec, "CorruptLogJavaPoint", 256);
+        } finally {
+            // then
+            Assert.assertEquals(Files.size(sealed), size);
+            for (Path file : segments(storage)) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void testCompaction() throws IOException {
+        // given
+        LogStructuredStorage<JavaPoint> storage = new LogStructuredStorage<>(codec, "CompactedLogJavaPoint", 512);
+        storage.deleteAll();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            keys.add(storage.create(new JavaPoint(i, i)));
+        }
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 10; i++) {
+                storage.update(keys.get(i), new JavaPoint(round, -i));
+            }
+        }
+        for (int i = 10; i < 15; i++) {
+            storage.delete(keys.get(i));
+        }
+        long sizeBefore = size(storage);
+
+        // when
+        storage.compact();
+
+        // then
+        Assert.assertTrue(size(storage) < sizeBefore / 2, size(storage) + " vs " + sizeBefore);
+        for (int i = 0; i < 20; i++) {
+            JavaPoint expected = i < 10 ? new JavaPoint(19, -i) : i < 15 ? null : new JavaPoint(i, i);
+            Assert.assertEquals(storage.read(keys.get(i)), expected);
+        }
+        storage.close();
+        LogStructuredStorage<JavaPoint> reopened = new LogStructuredStorage<>(codec, "CompactedLogJavaPoint", 512);
+        Assert.assertEquals(reopened.read().size(), 15);
+        Assert.assertNull(reopened.read(keys.get(12)));
+        Assert.assertTrue(reopened.deleteAll());
+        reopened.close();
+    }
+
+    @Test
+    public void testReopenAfterCompactionWithoutClose() {
+        // given
+        LogStructuredStorage<JavaPoint> storage = new LogStructuredStorage<>(codec, "UnclosedCompactedLogJavaPoint", 512);
+        storage.deleteAll();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            keys.add(storage.create(new JavaPoint(i, i)));
+        }
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 10; i++) {
+                storage.update(keys.get(i), new JavaPoint(round, -i));
+            }
+        }
+        storage.flush();
+
+        // when
+        storage.compact();
+        LogStructuredStorage<JavaPoint> reopened = new LogStructuredStorage<>(codec, "UnclosedCompactedLogJavaPoint", 512);
+
+        // then
+        for (int i = 0; i < 20; i++) {
+            JavaPoint expected = i < 10 ? new JavaPoint(19, -i) : new JavaPoint(i, i);
+            Assert.assertEquals(reopened.read(keys.get(i)), expected);
+        }
+        Assert.assertTrue(reopened.deleteAll());
+        reopened.close();
+        storage.close();
+    }
+
+    @Test
+    public void testBackgroundCompactionAndConcurrentWrites() throws Exception {
+        // given
+        LogStructuredStorage<JavaPoint> storage = new LogStructuredStorage<>(codec, "ConcurrentLogJavaPoint", 1024);
+        storage.deleteAll();
+        ExecutorService compaction = Executors.newSingleThreadExecutor();
+        storage.setCompactionExecutor(compaction);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // when
+        List<Future<String>> keys = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            keys.add(executor.submit(() -> {
+                String key = storage.create(new JavaPoint(thread, 0));
+                for (int i = 1; i <= 500; i++) {
+                    storage.update(key, new JavaPoint(thread, i));
+                    Assert.assertEquals(storage.read(key), new JavaPoint(thread, i));
+                }
+                return key;
+            }));
+        }
+        Set<JavaPoint> expected = new HashSet<>();
+        for (int t = 0; t < 4; t++) {
+            Assert.assertEquals(storage.read(keys.get(t).get()), new JavaPoint(t, 500));
+            expected.add(new JavaPoint(t, 500));
+        }
+        executor.shutdown();
+        compaction.shutdown();
+
+        // then
+        Assert.assertEquals(new HashSet<>(storage.read()), expected);
+        Assert.assertTrue(segments(storage).size() < 20);
+        Assert.assertTrue(storage.deleteAll());
+        storage.close();
+    }
+
+    private static List<Path> segments(LogStructuredStorage<?> storage) throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(storage.getPath()))) {
+            return files.filter(path -> path.toString().endsWith(storage.getFileExtension())).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static long size(LogStructuredStorage<?> storage) throws IOException {
+        storage.flush();
+        long size = 0;
+        for (Path segment : segments(storage)) {
+            size += Files.size(segment);
+        }
+        return size;
+    }
+}
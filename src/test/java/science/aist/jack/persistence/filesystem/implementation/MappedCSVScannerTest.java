@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Test class for {@link MappedCSVScanner}</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public class MappedCSVScannerTest {
+
+    private static final String CONTENT = "a;b;c\na;b;\n;;\n\n 0.5155 ; 0.88489 \r\n\"a;b\";\"say \"\"hi\"\"\"; \" x \" \r" +
+            "\"multi\nline\";äöü;\"€\"\nlast;\"quoted\"";
+
+    private static List<List<String>> scan(String content, int windowSize) throws IOException {
+        Path file = Files.createTempFile("mappedScanner", ".csv");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        List<List<String>> records = new ArrayList<>();
+        try (MappedCSVScanner scanner = new MappedCSVScanner(file, ';', 0, windowSize)) {
+            while (scanner.nextRecord()) {
+                records.add(new ArrayList<>(scanner.values()));
+            }
+        } finally {
+            Files.delete(file);
+        }
+        return records;
+    }
+
+    private static List<List<String>> tokenize(String content) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (CSVTokenizer tokenizer = new CSVTokenizer(new StringReader(content), ';')) {
+            List<String> csvRecord;
+            while ((csvRecord = tokenizer.nextRecord()) != null) {
+                records.add(csvRecord);
+            }
+        }
+        return records;
+    }
+
+    @Test
+    public void testNextRecordMatchesTokenizer() throws IOException {
+        // given
+        List<List<String>> expected = tokenize(CONTENT);
+
+        // when
+        List<List<String>> records = scan(CONTENT, MappedCSVScanner.DEFAULT_WINDOW_SIZE);
+
+        // then
+        Assert.assertEquals(records, expected);
+    }
+
+    @Test
+    public void testNextRecordSmallWindow() throws IOException {
+        // given
+        String content = CONTENT + "\n" + "x".repeat(100) + ";\"" + "y;\n".repeat(30) + "\"\n";
+        List<List<String>> expected = tokenize(content);
+
+        // when
+        List<List<String>> records = scan(content, 16);
+
+        // then
+        Assert.assertEquals(records, expected);
+    }
+
+    @Test
+    public void testNextRecordEndOfFile() throws IOException {
+        // given
+        String content = "a;\"b\"\n\"c\";\n\"d\"\"\"";
+        List<List<String>> expected = tokenize(content);
+
+        // when
+        List<List<String>> records = scan(content, 16);
+
+        // then
+        Assert.assertEquals(records, expected);
+        Assert.assertEquals(records, List.of(List.of("a", "b"), List.of("c", ""), List.of("d\"")));
+    }
+
+    @Test
+    public void testColumnView() throws IOException {
+        // given
+        Path file = Files.createTempFile("mappedScanner", ".csv");
+        Files.write(file, "12345;äb".getBytes(StandardCharsets.UTF_8));
+
+        try (MappedCSVScanner scanner = new MappedCSVScanner(file, ';')) {
+            // when
+            Assert.assertTrue(scanner.nextRecord());
+            CharSequence ascii = scanner.column(0);
+            CharSequence utf8 = scanner.column(1);
+
+            // then
+            Assert.assertEquals(ascii.length(), 5);
+            Assert.assertEquals(ascii.charAt(2), '3');
+            Assert.assertEquals(utf8.length(), 2);
+            Assert.assertEquals(utf8.charAt(0), 'ä');
+            Assert.assertEquals(utf8.toString(), "äb");
+            Assert.assertEquals(scanner.recordOffset(), 0);
+            Assert.assertFalse(scanner.nextRecord());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testStartAtOffset() throws IOException {
+        // given
+        Path file = Files.createTempFile("mappedScanner", ".csv");
+        Files.write(file, "a;1\r\nb;2\r\nc;3".getBytes(StandardCharsets.UTF_8));
+
+        // when
+        List<List<String>> records = new ArrayList<>();
+        try (MappedCSVScanner scanner = new MappedCSVScanner(file, ';', 4, 16)) {
+            while (scanner.nextRecord()) {
+                records.add(new ArrayList<>(scanner.values()));
+            }
+        } finally {
+            Files.delete(file);
+        }
+
+        // then
+        Assert.assertEquals(records, List.of(List.of("b", "2"), List.of("c", "3")));
+    }
+}
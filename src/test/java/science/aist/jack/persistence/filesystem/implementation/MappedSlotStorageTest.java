@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.persistence.filesystem.implementation;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import science.aist.jack.persistence.core.FixedSizeCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>Test class for {@link MappedSlotStorage}</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public class MappedSlotStorageTest {
+    /**
+     * Encodes a timestamp and a measurement
+     */
+    private static final FixedSizeCodec<long[]> CODEC = new FixedSizeCodec<>() {
+        @Override
+        public int size() {
+            return 16;
+        }
+
+        @Override
+        public void encode(long[] value, ByteBuffer buffer, int offset) {
+            buffer.putLong(offset, value[0]);
+            buffer.putLong(offset + 8, value[1]);
+        }
+
+        @Override
+        public long[] decode(ByteBuffer buffer, int offset) {
+            return new long[]{buffer.getLong(offset), buffer.getLong(offset + 8)};
+        }
+    };
+
+    @Test
+    public void testCreateReadUpdateDelete() {
+        // given
+        MappedSlotStorage<long[]> storage = new MappedSlotStorage<>(CODEC, "SlotTelemetry");
+        storage.deleteAll();
+
+        // when
+        long first = storage.create(new long[]{1, 2});
+        long second = storage.create(new long[]{3, 4}, first);
+
+        // then
+        Assert.assertNotEquals(second, first);
+        Assert.assertEquals(storage.read(first), new long[]{1, 2});
+        Assert.assertTrue(storage.update(first, new long[]{5, 6}));
+        Assert.assertEquals(storage.read(first), new long[]{5, 6});
+        Assert.assertFalse(storage.update(-1L, new long[]{5, 6}));
+        Assert.assertFalse(storage.update(storage.getCapacity(), new long[]{5, 6}));
+        Assert.assertTrue(storage.delete(first));
+        Assert.assertFalse(storage.delete(first));
+        Assert.assertNull(storage.read(first));
+        Assert.assertEquals(storage.size(), 1);
+        Assert.assertEquals(storage.create(new long[]{7, 8}), Long.valueOf(first));
+        Assert.assertTrue(storage.deleteAll());
+        Assert.assertTrue(storage.read().isEmpty());
+        storage.close();
+    }
+
+    @Test
+    public void testGrowAndReopen() {
+        // given
+        MappedSlotStorage<long[]> storage = new MappedSlotStorage<>(CODEC, "GrowingSlotTelemetry");
+        storage.deleteAll();
+        long capacity = Math.max(storage.getCapacity(), 64 * 1024);
+        for (long i = 0; i <= capacity; i++) {
+            Assert.assertEquals(storage.create(new long[]{i, -i}), Long.valueOf(i));
+        }
+        storage.delete(3L);
+        storage.close();
+
+        // when
+        MappedSlotStorage<long[]> reopened = new MappedSlotStorage<>(CODEC, "GrowingSlotTelemetry");
+
+        // then
+        Assert.assertTrue(reopened.getCapacity() > capacity);
+        Assert.assertEquals(reopened.size(), capacity);
+        Assert.assertEquals(reopened.read(capacity), new long[]{capacity, -capacity});
+        Assert.assertNull(reopened.read(3L));
+        Assert.assertEquals(reopened.create(new long[]{0, 0}), Long.valueOf(3));
+        Assert.assertEquals(reopened.read().size(), capacity + 1);
+        Assert.assertTrue(reopened.deleteAll());
+        reopened.close();
+    }
+
+    @Test
+    public void testHeaderIsLittleEndian() throws IOException {
+        // given
+        MappedSlotStorage<long[]> storage = new MappedSlotStorage<>(CODEC, "HeaderSlotTelemetry");
+        storage.close();
+
+        // when
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(Paths.get(storage.getPath(), "slots" + storage.getFileExtension())));
+
+        // then
+        Assert.assertEquals(header.order(ByteOrder.LITTLE_ENDIAN).getInt(4), CODEC.size());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testSlotSizeMismatch() {
+        // given
+        new MappedSlotStorage<>(CODEC, "MismatchedSlotTelemetry").close();
+        FixedSizeCodec<Long> codec = new FixedSizeCodec<>() {
+            @Override
+            public int size() {
+                return 8;
+            }
+
+            @Override
+            public void encode(Long value, ByteBuffer buffer, int offset) {
+                buffer.putLong(offset, value);
+            }
+
+            @Override
+            public Long decode(ByteBuffer buffer, int offset) {
+                return buffer.getLong(offset);
+            }
+        };
+
+        // when
+        new MappedSlotStorage<>(codec, "MismatchedSlotTelemetry");
+
+        // then
+        // exception
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testClosed() {
+        // given
+        MappedSlotStorage<long[]> storage = new MappedSlotStorage<>(CODEC, "ClosedSlotTelemetry");
+        storage.close();
+
+        // when
+        storage.create(new long[]{1, 2});
+
+        // then
+        // exception
+    }
+
+    @Test
+    public void testConcurrentWrites() throws Exception {
+        // given
+        MappedSlotStorage<long[]> storage = new MappedSlotStorage<>(CODEC, "ConcurrentSlotTelemetry");
+        storage.deleteAll();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // when
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long thread = t;
+            futures.add(executor.submit(() -> {
+                List<Long> slots = new ArrayList<>();
+                for (long i = 0; i < 1000; i++) {
+                    long slot = storage.create(new long[]{thread, i});
+                    Assert.assertTrue(storage.update(slot, new long[]{thread, -i}));
+                    Assert.assertEquals(storage.read(slot), new long[]{thread, -i});
+                    if (i % 2 == 0) {
+                        Assert.assertTrue(storage.delete(slot));
+                    } else {
+                        slots.add(slot);
+                    }
+                }
+                return slots;
+            }));
+        }
+        Set<Long> slots = new HashSet<>();
+        for (Future<List<Long>> future : futures) {
+            slots.addAll(future.get());
+        }
+        executor.shutdown();
+
+        // then
+        Assert.assertEquals(slots.size(), 2000);
+        Assert.assertEquals(storage.size(), 2000);
+        Assert.assertTrue(storage.deleteAll());
+        storage.close();
+    }
+}
@@ -21,9 +21,12 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Objects;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * <p>Test class for {@link ReflectionCSVProcessor}</p>
@@ -96,6 +99,68 @@ public class ReflectionCSVProcessorTest {
         Assert.assertTrue(read.contains(new Sample("", "", "")));
     }
 
+    @Test
+    public void testWriteQuoted() throws IOException {
+        // given
+        List<Sample> samples = Arrays.asList(new Sample("a;b", "say \"hi\"", "multi\nline"),
+                new Sample(" padded ", "", "c"));
+
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        ReflectionCSVProcessor<Sample> processor = new ReflectionCSVProcessor<>(';', Arrays.asList("a", "b", "c"), Sample.class);
+
+        // when
+        boolean write = processor.write(file.toFile(), samples, true);
+
+        // then
+        Assert.assertTrue(write);
+        List<Sample> read = processor.read(file.toFile(), true);
+        Assert.assertEquals(read, samples);
+    }
+
+    @Test
+    public void testReadParallel() throws IOException {
+        // given
+        List<Something> somethings = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            somethings.add(new Something(i, "value" + i, -i));
+        }
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        ReflectionCSVProcessor<Something> processor = new ReflectionCSVProcessor<>(',', Arrays.asList("x", "y", "z"), Something.class);
+        processor.write(file.toFile(), somethings, true);
+        processor.setParallelChunkSize(128);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // when
+        List<Something> read;
+        try {
+            read = processor.readParallel(file.toFile(), true, false, executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        // then
+        Assert.assertEquals(read, somethings);
+    }
+
+    @Test
+    public void testParallelStream() throws IOException {
+        // given
+        List<Something> somethings = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            somethings.add(new Something(i, "value" + i, -i));
+        }
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        ReflectionCSVProcessor<Something> processor = new ReflectionCSVProcessor<>(',', Arrays.asList("x", "y", "z"), Something.class);
+        processor.write(file.toFile(), somethings, false);
+        processor.setParallelChunkSize(100);
+
+        // when
+        Set<Something> read = processor.parallelStream(file.toFile(), false, false).collect(Collectors.toSet());
+
+        // then
+        Assert.assertEquals(read, new HashSet<>(somethings));
+    }
+
     @Test
     public void testRead3() throws IOException {
         // given
@@ -158,6 +223,37 @@ public class ReflectionCSVProcessorTest {
         Assert.assertTrue(read.contains(new Point(2.9873, 1, 0)));
     }
 
+    @Test
+    public void testAddIgnoredFieldAfterRead() throws IOException {
+        // given
+        ReflectionCSVProcessor<Something> reader = new ReflectionCSVProcessor<>(',', Arrays.asList("x", "y", "z"), Something.class);
+        ClassPathResource resource = new ClassPathResource("test.csv");
+        File file = resource.getFile();
+        reader.read(file, false);
+
+        // when
+        reader.addIgnoredField("y");
+        List<Something> read = reader.read(file, false);
+
+        // then
+        Assert.assertTrue(read.contains(new Something(45, null, 1)));
+        Assert.assertTrue(read.contains(new Something(73, null, 5)));
+        Assert.assertTrue(read.contains(new Something(99, null, -1)));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testReadUnknownColumn() throws IOException {
+        // given
+        ReflectionCSVProcessor<Something> reader = new ReflectionCSVProcessor<>(',', Arrays.asList("x", "unknown", "z"), Something.class);
+        ClassPathResource resource = new ClassPathResource("test.csv");
+        File file = resource.getFile();
+
+        // when
+        reader.read(file, false);
+
+        // then
+    }
+
     @Test
     public void testAddFieldConverter() throws IOException {
         // given
@@ -177,6 +273,220 @@ public class ReflectionCSVProcessorTest {
         Assert.assertTrue(read.contains(new Something2(99, SomeEnum.ghi, -1)));
     }
 
+    @Test
+    public void testSidecarCache() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        Files.write(file, List.of("x;y;z", "1;2;3", "4;5;6"));
+        ReflectionCSVProcessor<Point> reader = new ReflectionCSVProcessor<>(';', Arrays.asList("x", "y", "z"), Point.class);
+        reader.setSidecarCache(true);
+        List<Point> expected = List.of(new Point(1, 2, 3), new Point(4, 5, 6));
+        List<Point> read = reader.read(file.toFile(), true);
+        FileTime modified = Files.getLastModifiedTime(file);
+
+        // when
+        // same size and modification time, so the content is not read again
+        Files.write(file, List.of("x;y;z", "7;8;9", "4;5;6"));
+        Files.setLastModifiedTime(file, modified);
+        List<Point> cached = reader.read(file.toFile(), true);
+        List<Point> streamed;
+        try (Stream<Point> stream = reader.stream(file.toFile(), true)) {
+            streamed = stream.collect(Collectors.toList());
+        }
+
+        // then
+        Path sidecar = file.resolveSibling(file.getFileName() + ".jackcache");
+        Assert.assertTrue(Files.exists(sidecar));
+        Assert.assertEquals(read, expected);
+        Assert.assertEquals(cached, expected);
+        Assert.assertEquals(streamed, expected);
+        Files.delete(sidecar);
+        Files.delete(file);
+    }
+
+    @Test
+    public void testSidecarCacheCustomConverter() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        Files.write(file, List.of("x,y,z", "45,abc,1", "73,def,5", "99,,-1"));
+        ReflectionCSVProcessor<Something2> reader = new ReflectionCSVProcessor<>(',', Arrays.asList("x", "y", "z"), Something2.class);
+        List<String> converted = new ArrayList<>();
+        reader.addFieldConverter(SomeEnum.class, s -> {
+            converted.add(s);
+            return s.isEmpty() ? null : SomeEnum.valueOf(s);
+        });
+        reader.setSidecarCache(true);
+        List<Something2> expected = List.of(new Something2(45, SomeEnum.abc, 1), new Something2(73, SomeEnum.def, 5), new Something2(99, null, -1));
+
+        // when
+        List<Something2> read = reader.read(file.toFile(), true);
+        List<Something2> readAgain = reader.read(file.toFile(), true);
+
+        // then
+        Assert.assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".jackcache")));
+        Assert.assertEquals(read, expected);
+        Assert.assertEquals(readAgain, expected);
+        Assert.assertEquals(converted.size(), 6);
+        Files.delete(file);
+    }
+
+    @Test
+    public void testSidecarCacheTouchedFile() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        Files.write(file, List.of("1;x;3", "4;5;6"));
+        ReflectionCSVProcessor<Point> reader = new ReflectionCSVProcessor<>(';', Arrays.asList("x", "y", "z"), Point.class);
+        reader.setSidecarCache(true);
+        reader.read(file.toFile(), false);
+        FileTime modified = Files.getLastModifiedTime(file);
+
+        // when
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified.toMillis() + 2000));
+        List<Point> read = reader.read(file.toFile(), false);
+
+        // then
+        // the checksum is unchanged, so the invalid value is not parsed again
+        Assert.assertEquals(read, List.of(new Point(1, 0, 3), new Point(4, 5, 6)));
+        Assert.assertEquals(reader.getErrorCounters().getInvalidValues(), 1);
+        Files.delete(file.resolveSibling(file.getFileName() + ".jackcache"));
+        Files.delete(file);
+    }
+
+    @Test
+    public void testSidecarCacheChangedFile() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        Files.write(file, List.of("1;2;3", "4;5;6"));
+        ReflectionCSVProcessor<Point> reader = new ReflectionCSVProcessor<>(';', Arrays.asList("x", "y", "z"), Point.class);
+        reader.setSidecarCache(true);
+        reader.read(file.toFile(), false);
+        FileTime modified = Files.getLastModifiedTime(file);
+
+        // when
+        Files.write(file, List.of("1;2;3", "4;5;7"));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified.toMillis() + 2000));
+        List<Point> read = reader.read(file.toFile(), false);
+
+        // then
+        Assert.assertEquals(read, List.of(new Point(1, 2, 3), new Point(4, 5, 7)));
+        Files.delete(file.resolveSibling(file.getFileName() + ".jackcache"));
+        Files.delete(file);
+    }
+
+    @Test
+    public void testReadInvalidValues() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        Files.write(file, List.of("1;x;3", "a;2.5;", "4;5;6"));
+        ReflectionCSVProcessor<Point> processor = new ReflectionCSVProcessor<>(';', Arrays.asList("x", "y", "z"), Point.class);
+
+        // when
+        List<Point> read = processor.read(file.toFile(), false);
+
+        // then
+        Assert.assertEquals(read, List.of(new Point(1, 0, 3), new Point(0, 2.5, 0), new Point(4, 5, 6)));
+        Assert.assertEquals(processor.getErrorCounters().getInvalidValues(), 3);
+        Assert.assertEquals(processor.getErrorCounters().getRejectedRows(), 0);
+    }
+
+    @Test
+    public void testReadInvalidValuesSkipRow() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        Files.write(file, List.of("1;x;3", "a;2.5;", "4;5;6"));
+        ReflectionCSVProcessor<Point> processor = new ReflectionCSVProcessor<>(';', Arrays.asList("x", "y", "z"), Point.class);
+        processor.setErrorPolicy(CSVErrorPolicy.skipRow());
+
+        // when
+        List<Point> read = processor.read(file.toFile(), false);
+
+        // then
+        Assert.assertEquals(read, List.of(new Point(4, 5, 6)));
+        Assert.assertEquals(processor.getErrorCounters().getInvalidValues(), 2);
+        Assert.assertEquals(processor.getErrorCounters().getRejectedRows(), 2);
+        Files.delete(file);
+    }
+
+    @Test
+    public void testReadInvalidValuesDeadLetter() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        Files.write(file, List.of("x;y;z", "1; x ;3", "4;5;6", "a;2.5;", "7;8"));
+        ReflectionCSVProcessor<Point> processor = new ReflectionCSVProcessor<>(';', Arrays.asList("x", "y", "z"), Point.class);
+        List<CSVRejectedRow> deadLetters = new ArrayList<>();
+        processor.setErrorPolicy(CSVErrorPolicy.deadLetter(deadLetters));
+
+        // when
+        List<Point> read = processor.read(file.toFile(), true);
+
+        // then
+        Assert.assertEquals(read, List.of(new Point(4, 5, 6)));
+        Assert.assertEquals(deadLetters, List.of(
+                CSVRejectedRow.of(0, "1; x ;3", "Could not parse value (x)"),
+                CSVRejectedRow.of(2, "a;2.5;", "Could not parse value (a)"),
+                CSVRejectedRow.of(3, "7;8", "Missing column (z)")));
+        Files.delete(file);
+    }
+
+    @Test
+    public void testStreamMappedInvalidValuesDeadLetter() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        Files.write(file, List.of("x;y;z", "1; x ;3", "4;5;6", "\"a\";2.5;", "7;8"));
+        ReflectionCSVProcessor<Point> processor = new ReflectionCSVProcessor<>(';', Arrays.asList("x", "y", "z"), Point.class);
+        List<CSVRejectedRow> deadLetters = new ArrayList<>();
+        processor.setErrorPolicy(CSVErrorPolicy.deadLetter(deadLetters));
+
+        // when
+        List<Point> read;
+        try (Stream<Point> stream = processor.streamMapped(file.toFile(), true, false)) {
+            read = stream.collect(Collectors.toList());
+        }
+
+        // then
+        Assert.assertEquals(read, List.of(new Point(4, 5, 6)));
+        Assert.assertEquals(deadLetters, List.of(
+                CSVRejectedRow.of(0, "1; x ;3", "Could not parse value (x)"),
+                CSVRejectedRow.of(2, "\"a\";2.5;", "Could not parse value (a)"),
+                CSVRejectedRow.of(3, "7;8", "Missing column (z)")));
+        Files.delete(file);
+    }
+
+    @Test
+    public void testReadClassExtendingJdkClass() throws IOException {
+        // given
+        Path file = Files.createTempFile("someTestFile", ".csv");
+        Files.write(file, List.of("1", "2"));
+
+        // when
+        ReflectionCSVProcessor<Event> processor = new ReflectionCSVProcessor<>(';', List.of("id"), Event.class);
+        List<Event> read = processor.read(file.toFile(), false);
+
+        // then
+        Assert.assertEquals(read.size(), 2);
+        Assert.assertEquals(read.get(0).id, 1);
+        Assert.assertEquals(read.get(1).id, 2);
+        Files.delete(file);
+    }
+
+    @Test
+    public void testSetIntFieldConverter() throws IOException {
+        // given
+        ReflectionCSVProcessor<Something> reader = new ReflectionCSVProcessor<>(',', Arrays.asList("x", "y", "z"), Something.class);
+        ClassPathResource resource = new ClassPathResource("test.csv");
+        File file = resource.getFile();
+
+        // when
+        reader.setIntFieldConverter(s -> s.length());
+        reader.setLongFieldConverter(s -> -1L);
+        List<Something> read = reader.read(file, false);
+
+        // then
+        Assert.assertTrue(read.contains(new Something(-1, "abc", 1)));
+        Assert.assertTrue(read.contains(new Something(-1, "def", 1)));
+        Assert.assertTrue(read.contains(new Something(-1, "ghi", 2)));
+    }
+
 
     private enum SomeEnum {
         abc, def, ghi
@@ -209,6 +519,15 @@ public class ReflectionCSVProcessorTest {
         String c;
     }
 
+    @SuppressWarnings("serial")
+    private static class Event extends EventObject {
+        int id;
+
+        public Event() {
+            super("csv");
+        }
+    }
+
     @AllArgsConstructor
     @NoArgsConstructor
     private static class Point {
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2020 the original author or authors.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+
+package science.aist.jack.string;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Test class for {@link StringNormalizer}</p>
+ *
+ * @author agent
+ * @since 2.4.0
+ */
+public class StringNormalizerTest {
+
+    @Test
+    public void testNormalize() {
+        // given
+        StringNormalizer normalizer = StringNormalizer.compile(List.of(" ", "(", ")"), Map.of("a", "b"));
+
+        // when
+        String normalized = normalizer.normalize("  fancy ((I))nt a ");
+
+        // then
+        Assert.assertEquals(normalized, "fbncyIntb");
+    }
+
+    @Test
+    public void testNormalizeUnchanged() {
+        // given
+        StringNormalizer normalizer = StringNormalizer.compile(List.of("\""), Map.of("x", "y"));
+        String value = "abc";
+
+        // when
+        String normalized = normalizer.normalize(value);
+
+        // then
+        Assert.assertSame(normalized, value);
+    }
+
+    @Test
+    public void testNormalizeStripOnly() {
+        // given
+        StringNormalizer normalizer = StringNormalizer.compile(List.of(), Map.of());
+
+        // when
+        String normalized = normalizer.normalize("\t abc \n");
+
+        // then
+        Assert.assertEquals(normalized, "abc");
+        Assert.assertNull(normalizer.normalize(null));
+    }
+
+    @Test
+    public void testNormalizeLongestMatch() {
+        // given
+        StringNormalizer normalizer = StringNormalizer.compile(List.of(), Map.of("a", "x", "abc", "y", "b", "a"));
+
+        // when
+        String normalized = normalizer.normalize("abcabab");
+
+        // then
+        Assert.assertEquals(normalized, "yxaxa");
+    }
+
+    @Test
+    public void testNormalizeNoRescan() {
+        // given
+        StringNormalizer normalizer = StringNormalizer.compile(List.of(), Map.of("a", "aa", "b", "a"));
+
+        // when
+        String normalized = normalizer.normalize("ab");
+
+        // then
+        Assert.assertEquals(normalized, "aaa");
+    }
+
+    @Test
+    public void testNormalizeRemoveWins() {
+        // given
+        StringNormalizer normalizer = StringNormalizer.compile(List.of("("), Map.of("(", "["));
+
+        // when
+        String normalized = normalizer.normalize("(a)");
+
+        // then
+        Assert.assertEquals(normalized, "a)");
+    }
+
+    @Test
+    public void testNormalizeRemoveBeforeReplace() {
+        // given
+        StringNormalizer normalizer = StringNormalizer.compile(List.of(" "), Map.of("first name", "x", "firstname", "name", "ab", "c"));
+
+        // when
+        String normalized = normalizer.normalize(" first name ");
+        String removedMatch = normalizer.normalize("a b");
+
+        // then
+        Assert.assertEquals(normalized, "name");
+        Assert.assertEquals(removedMatch, "c");
+    }
+}